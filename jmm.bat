@@ -1,3 +1,7 @@
 @echo off
 
-call "./build/install/jmm/bin/jmm.bat" %*
+if exist "./build/install/jmm/bin/jmmc.bat" (
+    call "./build/install/jmm/bin/jmmc.bat" %*
+) else (
+    call "./build/install/jmm/bin/jmm.bat" %*
+)
@@ -0,0 +1,61 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.parser.AstBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the AST with the {@link AstBuilder} against the generic reflective conversion of the library, on
+ * parse trees prepared outside the measured time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AstBuilderBenchmark {
+
+    @Param({"cpf", "synthetic-100", "synthetic-500"})
+    public String input;
+
+    private List<JavammParser> parsers;
+    private List<ParseTree> trees;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        parsers = new ArrayList<>();
+        trees = new ArrayList<>();
+
+        for (var code : BenchmarkInputs.load(input)) {
+            var parser = new JavammParser(new CommonTokenStream(new JavammLexer(new ANTLRInputStream(code))));
+            trees.add(parser.program());
+            parsers.add(parser);
+        }
+    }
+
+    @Benchmark
+    public void astBuilder(Blackhole blackhole) {
+        for (var tree : trees) {
+            blackhole.consume(AstBuilder.build(tree));
+        }
+    }
+
+    @Benchmark
+    public void genericConversion(Blackhole blackhole) {
+        for (int i = 0; i < trees.size(); i++) {
+            // The converter reads the token positions through the parser
+            blackhole.consume(AntlrToJmmNodeConverter.convert(trees.get(i), parsers.get(i)));
+        }
+    }
+}
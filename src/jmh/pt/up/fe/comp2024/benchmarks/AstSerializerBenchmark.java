@@ -0,0 +1,66 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.ast.AstSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading back an annotated AST encoded by the {@link AstSerializer} against parsing and annotating its
+ * source again, over all the sources of the selected input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AstSerializerBenchmark {
+
+    @Param({"cpf", "synthetic-10", "synthetic-100"})
+    public String input;
+
+    private List<String> codes;
+    private List<JmmNode> roots;
+    private List<byte[]> encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        codes = BenchmarkInputs.load(input);
+        roots = new ArrayList<>(codes.size());
+        encoded = new ArrayList<>(codes.size());
+
+        for (var code : codes) {
+            var root = new CompilationSession(code, BenchmarkInputs.getConfig()).getSemanticsResult().getRootNode();
+            roots.add(root);
+            encoded.add(AstSerializer.serialize(root));
+        }
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole) {
+        for (var data : encoded) {
+            blackhole.consume(AstSerializer.deserialize(data));
+        }
+    }
+
+    @Benchmark
+    public void parseAndAnalyse(Blackhole blackhole) {
+        for (var code : codes) {
+            blackhole.consume(new CompilationSession(code, BenchmarkInputs.getConfig()).getSemanticsResult());
+        }
+    }
+
+    @Benchmark
+    public void serialize(Blackhole blackhole) {
+        // Encoding does not change the trees, so they are shared by all the invocations
+        for (var root : roots) {
+            blackhole.consume(AstSerializer.serialize(root));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.generator.ProgramGenerator.Options;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sources compiled by the benchmarks.
+ * <p>
+ * An input is either 'cpf', every fixture under test/pt/up/fe/comp/cpf that compiles without errors (the folder can
+ * be changed with the system property 'jmm.fixtures'), or 'synthetic-N', a single program with N methods from
+ * the {@link ProgramGenerator}.
+ */
+public class BenchmarkInputs {
+
+    private static final String CPF = "cpf";
+    private static final String SYNTHETIC = "synthetic-";
+    private static final String FIXTURES = System.getProperty("jmm.fixtures", "test/pt/up/fe/comp/cpf");
+
+    public static Map<String, String> getConfig() {
+        return CompilerConfig.getDefault();
+    }
+
+    public static List<String> load(String input) {
+        if (input.equals(CPF)) {
+            return loadFixtures(Path.of(FIXTURES));
+        }
+
+        if (input.startsWith(SYNTHETIC)) {
+            return List.of(synthetic(input.substring(SYNTHETIC.length())));
+        }
+
+        throw new RuntimeException("Unknown benchmark input '" + input + "', expected 'cpf' or 'synthetic-N'");
+    }
+
+    private static List<String> loadFixtures(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(path -> path.toString().endsWith(".jmm"))
+                    .sorted()
+                    .map(path -> SpecsIo.read(path.toFile()))
+                    // Fixtures with expected errors stop early and would skew the later stages
+                    .filter(code -> new CompilationSession(code, getConfig()).compile())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read fixtures from '" + root + "'", e);
+        }
+    }
+
+    /**
+     * A generated program, given as 'synthetic-N' for N methods, optionally followed by other knobs of the generator,
+     * for example 'synthetic-100:statements=20:depth=5:locals=8:loops=3:and=4:fields=10:seed=7'. Knobs are separated
+     * by ':' since JMH already splits parameter values on ','.
+     */
+    static String synthetic(String spec) {
+        var parts = spec.split(":");
+        var options = Options.defaults().withMethods(Integer.parseInt(parts[0]));
+        long seed = 0;
+
+        for (int i = 1; i < parts.length; i++) {
+            var knob = parts[i];
+            var keyValue = knob.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new RuntimeException("Expected 'knob=value' in benchmark input, got '" + knob + "'");
+            }
+
+            int value = Integer.parseInt(keyValue[1].strip());
+            switch (keyValue[0].strip()) {
+                case "statements" -> options = options.withStatementsPerMethod(value);
+                case "depth" -> options = options.withExpressionDepth(value);
+                case "locals" -> options = options.withLocalsPerMethod(value);
+                case "loops" -> options = options.withLoopNesting(value);
+                case "and" -> options = options.withAndChainLength(value);
+                case "fields" -> options = options.withFields(value);
+                case "seed" -> seed = value;
+                default -> throw new RuntimeException("Unknown generator knob '" + keyValue[0] + "'");
+            }
+        }
+
+        return new ProgramGenerator(seed, options).generate("Synthetic");
+    }
+}
@@ -0,0 +1,59 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.parser.IncrementalParser;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing an edit inside a method with the {@link IncrementalParser} against a full parse of the edited code.
+ * <p>
+ * Each invocation inserts or removes a space in the body of the method in the middle of the class, so the code
+ * alternates between two versions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IncrementalParserBenchmark {
+
+    @Param({"synthetic-10", "synthetic-100"})
+    public String input;
+
+    private IncrementalParser parser;
+    private int offset;
+    private boolean inserted;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var code = BenchmarkInputs.load(input).get(0);
+        parser = new IncrementalParser(code, BenchmarkInputs.getConfig());
+
+        // Right after the opening brace of the middle method
+        int method = code.indexOf("public int", code.length() / 2);
+        offset = code.indexOf('{', method) + 1;
+        inserted = false;
+    }
+
+    @Benchmark
+    public JmmParserResult incremental() {
+        var result = inserted ? parser.edit(offset, 1, "") : parser.edit(offset, 0, " ");
+        inserted = !inserted;
+
+        return result;
+    }
+
+    @Benchmark
+    public JmmParserResult full() {
+        var code = parser.getCode();
+        var edited = inserted ? code.substring(0, offset) + code.substring(offset + 1)
+                : code.substring(0, offset) + " " + code.substring(offset);
+        inserted = !inserted;
+
+        return new JmmParserImpl().parse(edited, BenchmarkInputs.getConfig());
+    }
+}
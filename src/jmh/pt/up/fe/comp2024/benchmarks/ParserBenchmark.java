@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.PrattParserImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ANTLR parser with the hand-written Pratt parser, from the source code to the AST.
+ * <p>
+ * The last input has deeply nested expressions and long chains of '&&', where the left-recursive rule of the grammar
+ * is at its most expensive.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"cpf", "synthetic-100", "synthetic-20:depth=10:and=40"})
+    public String input;
+
+    private List<String> codes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        codes = BenchmarkInputs.load(input);
+    }
+
+    @Benchmark
+    public void antlr(Blackhole blackhole) {
+        var parser = new JmmParserImpl();
+        for (var code : codes) {
+            blackhole.consume(parser.parse(code, BenchmarkInputs.getConfig()));
+        }
+    }
+
+    @Benchmark
+    public void pratt(Blackhole blackhole) {
+        var parser = new PrattParserImpl();
+        for (var code : codes) {
+            blackhole.consume(parser.parse(code, BenchmarkInputs.getConfig()));
+        }
+    }
+}
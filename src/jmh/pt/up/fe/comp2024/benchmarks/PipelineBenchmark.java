@@ -0,0 +1,39 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.CompilationSession;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the whole pipeline, from the source to the Jasmin code, over all the sources of the selected input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    @Param({"cpf", "synthetic-10", "synthetic-100"})
+    public String input;
+
+    private List<String> codes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        codes = BenchmarkInputs.load(input);
+    }
+
+    @Benchmark
+    public void compile(Blackhole blackhole) {
+        for (var code : codes) {
+            var session = new CompilationSession(code, BenchmarkInputs.getConfig());
+            session.compile();
+            blackhole.consume(session.getJasminCode());
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.analysis.ASTAnnotator;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminGenerator;
+import pt.up.fe.comp2024.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2024.optimization.OptUtils;
+import pt.up.fe.comp2024.optimization.optimizers.ast.ASTOptimizer;
+import pt.up.fe.comp2024.optimization.optimizers.ollir.RegisterOptimizer;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each stage of the compiler in isolation, over all the sources of the selected input.
+ * <p>
+ * Stages that change the AST or the OLLIR in place get fresh copies before every invocation, prepared outside the
+ * measured time, so each invocation does the same work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Sources {
+
+        @Param({"cpf", "synthetic-10", "synthetic-100"})
+        public String input;
+
+        List<String> codes;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            codes = BenchmarkInputs.load(input);
+        }
+
+        List<CompilationSession> newSessions() {
+            var sessions = new ArrayList<CompilationSession>(codes.size());
+            for (var code : codes) {
+                sessions.add(new CompilationSession(code, BenchmarkInputs.getConfig()));
+            }
+
+            return sessions;
+        }
+    }
+
+    /**
+     * Parsed sources, with their symbol tables, that are not changed by the benchmarks using them.
+     */
+    @State(Scope.Thread)
+    public static class Parsed {
+
+        List<JmmParserResult> results;
+        List<JmmSymbolTable> tables;
+
+        @Setup(Level.Trial)
+        public void setup(Sources sources) {
+            parse(sources);
+        }
+
+        void parse(Sources sources) {
+            results = new ArrayList<>();
+            tables = new ArrayList<>();
+
+            for (var session : sources.newSessions()) {
+                results.add(session.getParserResult());
+                tables.add(JmmSymbolTableBuilder.build(session.getParserResult().getRootNode()));
+            }
+        }
+    }
+
+    /**
+     * Parsed sources that are parsed again before every invocation, for stages that annotate the AST.
+     */
+    @State(Scope.Thread)
+    public static class FreshlyParsed extends Parsed {
+
+        @Override
+        @Setup(Level.Invocation)
+        public void setup(Sources sources) {
+            parse(sources);
+        }
+    }
+
+    /**
+     * Analysed sources that are not changed by the benchmarks using them.
+     */
+    @State(Scope.Thread)
+    public static class Analysed {
+
+        List<JmmSemanticsResult> results;
+
+        @Setup(Level.Trial)
+        public void setup(Sources sources) {
+            analyse(sources);
+        }
+
+        void analyse(Sources sources) {
+            results = new ArrayList<>();
+
+            for (var session : sources.newSessions()) {
+                results.add(session.getSemanticsResult());
+            }
+        }
+    }
+
+    /**
+     * Analysed sources that are analysed again before every invocation, for stages that rewrite the AST.
+     */
+    @State(Scope.Thread)
+    public static class FreshlyAnalysed extends Analysed {
+
+        @Override
+        @Setup(Level.Invocation)
+        public void setup(Sources sources) {
+            analyse(sources);
+        }
+    }
+
+    /**
+     * OLLIR of the sources, without register allocation.
+     */
+    @State(Scope.Thread)
+    public static class Ollir {
+
+        List<OllirResult> results;
+
+        @Setup(Level.Trial)
+        public void setup(Sources sources) {
+            generate(sources);
+        }
+
+        void generate(Sources sources) {
+            results = new ArrayList<>();
+
+            for (var session : sources.newSessions()) {
+                results.add(session.getOllirResult());
+            }
+        }
+    }
+
+    /**
+     * OLLIR that is parsed again before every invocation, for register allocation, which changes the variable tables.
+     */
+    @State(Scope.Thread)
+    public static class FreshOllir {
+
+        List<String> codes;
+        List<OllirResult> results;
+
+        @Setup(Level.Trial)
+        public void generate(Ollir ollir) {
+            codes = ollir.results.stream().map(OllirResult::getOllirCode).toList();
+        }
+
+        @Setup(Level.Invocation)
+        public void parse() {
+            results = new ArrayList<>();
+
+            for (var code : codes) {
+                results.add(new OllirResult(code, BenchmarkInputs.getConfig()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void parse(Sources sources, Blackhole blackhole) {
+        var parser = new JmmParserImpl();
+
+        for (var code : sources.codes) {
+            blackhole.consume(parser.parse(code, BenchmarkInputs.getConfig()));
+        }
+    }
+
+    @Benchmark
+    public void parallelParse(Sources sources, Blackhole blackhole) {
+        var parser = new JmmParserImpl();
+        var config = BenchmarkInputs.getConfig();
+        config.put("parallelParse", "true");
+
+        for (var code : sources.codes) {
+            blackhole.consume(parser.parse(code, config));
+        }
+    }
+
+    @Benchmark
+    public void symbolTable(Parsed parsed, Blackhole blackhole) {
+        for (var result : parsed.results) {
+            blackhole.consume(JmmSymbolTableBuilder.build(result.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void annotation(FreshlyParsed parsed) {
+        for (int i = 0; i < parsed.results.size(); i++) {
+            new ASTAnnotator().visit(parsed.results.get(i).getRootNode(), parsed.tables.get(i));
+        }
+    }
+
+    @Benchmark
+    public void analysis(FreshlyParsed parsed, Blackhole blackhole) {
+        var analysis = new JmmAnalysisImpl();
+
+        for (var result : parsed.results) {
+            blackhole.consume(analysis.semanticAnalysis(result));
+        }
+    }
+
+    @Benchmark
+    public void astOptimization(FreshlyAnalysed analysed) {
+        for (var result : analysed.results) {
+            new ASTOptimizer().visit(result.getRootNode(), (JmmSymbolTable) result.getSymbolTable());
+        }
+    }
+
+    @Benchmark
+    public void ollirGeneration(Analysed analysed, Blackhole blackhole) {
+        for (var result : analysed.results) {
+            OptUtils.resetTempNumber();
+            blackhole.consume(new OllirGeneratorVisitor(result.getSymbolTable()).visit(result.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void registerAllocation(FreshOllir ollir, Blackhole blackhole) {
+        // Zero registers searches for the smallest number of registers that works
+        for (var result : ollir.results) {
+            blackhole.consume(new RegisterOptimizer(result, 0).optimize());
+        }
+    }
+
+    @Benchmark
+    public void jasmin(Ollir ollir, Blackhole blackhole) {
+        for (var result : ollir.results) {
+            blackhole.consume(new JasminGenerator(result).build());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
+import pt.up.fe.comp2024.output.ArtifactEmitter;
+import pt.up.fe.comp2024.output.DirectorySink;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles several Java-- files in a single JVM, spreading them over a fixed pool of workers.
+ * <p>
+ * Every file goes through parse, analysis, OLLIR and Jasmin independently of the others, and its reports are
+ * printed in input order once it is done, so the output does not depend on how the files were scheduled.
+ */
+public class BatchCompiler {
+
+    private static final String EXTENSION = ".jmm";
+
+    private final Map<String, String> config;
+    private final int threads;
+    private final ArtifactEmitter emitter;
+
+    public BatchCompiler(Map<String, String> config) {
+        this.config = config;
+        this.threads = CompilerConfig.getThreads(config);
+
+        // Artifacts of different files cannot be interleaved in a single stream, they always go to files
+        var outputDir = CompilerConfig.getClassDir(config).map(File::toPath).orElse(Path.of("").toAbsolutePath());
+        this.emitter = new ArtifactEmitter(CompilerConfig.getArtifacts(config), new DirectorySink(outputDir));
+    }
+
+    /**
+     * Expands a batch specification into the list of files to compile, sorted by path.
+     * <p>
+     * The specification can be a directory (searched recursively for .jmm files), a list file prefixed with '@'
+     * (one path per line, blank lines and lines starting with '#' are ignored) or a glob pattern.
+     *
+     * @param spec
+     * @return
+     */
+    public static List<File> resolveInputs(String spec) {
+
+        try {
+            if (spec.startsWith("@")) {
+                return resolveListFile(Paths.get(spec.substring(1)));
+            }
+
+            var path = Paths.get(spec);
+            if (Files.isDirectory(path)) {
+                return resolveGlob(path, "**" + EXTENSION);
+            }
+
+            if (Files.isRegularFile(path)) {
+                return List.of(path.toAbsolutePath().toFile());
+            }
+
+            return resolveGlob(getGlobRoot(spec), spec);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not resolve batch input '" + spec + "'", e);
+        }
+    }
+
+    private static List<File> resolveListFile(Path listFile) throws IOException {
+
+        if (!Files.isRegularFile(listFile)) {
+            throw new RuntimeException("Could not find list file '" + listFile + "'");
+        }
+
+        var inputs = new ArrayList<File>();
+        for (String line : Files.readAllLines(listFile)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            var file = new File(line);
+            if (!file.isFile()) {
+                throw new RuntimeException("Could not find input file '" + line + "' listed in '" + listFile + "'");
+            }
+            inputs.add(file.getAbsoluteFile());
+        }
+
+        return inputs;
+    }
+
+    private static List<File> resolveGlob(Path root, String pattern) throws IOException {
+
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+
+        // Relative patterns are matched against paths relative to the search root
+        var absolute = Paths.get(pattern).isAbsolute();
+        var matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(absolute ? p.toAbsolutePath() : root.relativize(p))
+                            || matcher.matches(p))
+                    .map(p -> p.toAbsolutePath().toFile())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * The deepest directory of the pattern that has no wildcards, from where the file tree is walked.
+     */
+    private static Path getGlobRoot(String pattern) {
+
+        var segments = pattern.split("[/\\\\]");
+        var root = new StringBuilder();
+
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (segments[i].matches(".*[*?\\[{].*")) break;
+            root.append(segments[i]).append(File.separator);
+        }
+
+        return root.length() == 0 ? Paths.get(".") : Paths.get(root.toString());
+    }
+
+    /**
+     * Compiles all the given files, printing the reports of each file and a throughput summary to the given stream.
+     *
+     * @param inputs
+     * @param out
+     * @return the results, in the same order as the inputs
+     */
+    public List<FileResult> compile(List<File> inputs, PrintStream out) {
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(inputs.size(), 1)));
+
+        var results = new ArrayList<FileResult>(inputs.size());
+        try {
+            var futures = new ArrayList<Future<FileResult>>(inputs.size());
+            for (File input : inputs) {
+                futures.add(pool.submit(() -> compileFile(input)));
+            }
+
+            for (Future<FileResult> future : futures) {
+                var result = getResult(future);
+                print(result, out);
+                results.add(result);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        printSummary(results, System.nanoTime() - start, out);
+
+        var metricsTarget = CompilerConfig.getMetrics(config);
+        if (metricsTarget.isPresent()) {
+            var metrics = new PipelineMetrics();
+            results.forEach(result -> metrics.merge(result.metrics()));
+            metrics.write(metricsTarget.get(), out);
+        }
+
+        return results;
+    }
+
+    private static FileResult getResult(Future<FileResult> future) {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for batch compilation", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected failure in batch compilation", e.getCause());
+        }
+    }
+
+    /**
+     * Runs the full pipeline on a single file, stopping at the first stage that reports errors.
+     */
+    FileResult compileFile(File input) {
+
+        if (CompilerConfig.getMetrics(config).isEmpty()) {
+            return runPipeline(input, null);
+        }
+
+        var metrics = PipelineMetrics.start();
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.TOTAL)) {
+            return runPipeline(input, metrics);
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    private FileResult runPipeline(File input, PipelineMetrics metrics) {
+
+        var fileConfig = CompilerConfig.getFileConfig(config);
+
+        // A file that cannot be read fails on its own, with no lines counted
+        CompilationSession session = null;
+        int lines = 0;
+
+        try {
+            session = CompilationSession.fromFile(input, fileConfig);
+            lines = session.getLineCount();
+
+            if (!session.compile()) {
+                return new FileResult(input, session.getReports(), null, lines, metrics);
+            }
+
+            emitter.emit(session);
+
+            return new FileResult(input, session.getReports(), session.getClassName(), lines, metrics);
+        } catch (RuntimeException e) {
+            var reports = new ArrayList<Report>(session != null ? session.getReports() : List.of());
+            reports.add(Report.newError(Stage.OTHER, -1, -1, "Exception during compilation: " + e.getMessage(), e));
+            return new FileResult(input, reports, null, lines, metrics);
+        }
+    }
+
+    private static void print(FileResult result, PrintStream out) {
+
+        out.println((result.isSuccess() ? "[OK] " : "[FAILED] ") + result.file());
+        for (Report report : result.reports()) {
+            out.println("    " + report);
+        }
+    }
+
+    private void printSummary(List<FileResult> results, long elapsedNanos, PrintStream out) {
+
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        long lines = results.stream().mapToLong(FileResult::lines).sum();
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+
+        out.printf("Compiled %d file(s), %d failed, in %.3f s using %d thread(s): %.1f files/s, %.0f lines/s%n",
+                results.size(), failed, seconds, threads, results.size() / seconds, lines / seconds);
+    }
+
+    /**
+     * Outcome of compiling a single file of the batch.
+     *
+     * @param file       the input file
+     * @param reports    all the reports produced until the pipeline finished or stopped
+     * @param className  name of the generated class, or null if compilation failed
+     * @param lines      number of source lines, used for throughput
+     * @param metrics    per-stage metrics of the file, or null if they were not requested
+     */
+    public record FileResult(File file, List<Report> reports, String className, int lines, PipelineMetrics metrics) {
+
+        public boolean isSuccess() {
+            return className != null && !ReportUtils.anyError(reports);
+        }
+    }
+}
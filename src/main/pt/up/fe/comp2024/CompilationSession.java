@@ -0,0 +1,317 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.cache.CacheEntry;
+import pt.up.fe.comp2024.cache.CompilationCache;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.MappedCharStream;
+import pt.up.fe.comp2024.parser.PrattParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compilation of a single source, holding the result of every stage.
+ * <p>
+ * Each stage is computed lazily the first time it is needed, and exactly once, so asking for the Jasmin code after
+ * the OLLIR code does not redo any work. A stage can only run if the previous ones reported no errors, otherwise
+ * asking for it throws an exception with the first error.
+ * <p>
+ * Note that the AST is shared by the stages, and AST optimizations change it in place once the OLLIR is requested.
+ */
+public class CompilationSession {
+
+    private final MappedCharStream source;
+    private final Map<String, String> config;
+    private final CompilationCache cache;
+    private final List<Report> reports = new ArrayList<>();
+
+    private JmmParserResult parserResult;
+    private JmmSemanticsResult semanticsResult;
+    private OllirResult ollirResult;
+    private JasminResult jasminResult;
+
+    private String code;
+    private CacheEntry cacheEntry;
+    private boolean cached;
+    private byte[] classBytes;
+
+    public CompilationSession(String code, Map<String, String> config) {
+        this(code, null, config);
+    }
+
+    private CompilationSession(String code, MappedCharStream source, Map<String, String> config) {
+        this.code = code;
+        this.source = source;
+        this.config = config;
+        this.cache = CompilationCache.fromConfig(config).orElse(null);
+    }
+
+    /**
+     * Creates a session for the given file, recording its path in the config.
+     * <p>
+     * The file is memory-mapped and lexed directly from the mapping, so its contents are never copied into a String
+     * unless {@link #getCode()} is called.
+     *
+     * @param file
+     * @param config
+     * @return
+     */
+    public static CompilationSession fromFile(File file, Map<String, String> config) {
+        var fileConfig = new HashMap<>(config);
+        fileConfig.put("inputFile", file.getAbsolutePath());
+
+        return new CompilationSession(null, MappedCharStream.open(file.toPath()), fileConfig);
+    }
+
+    public String getCode() {
+        if (code == null) {
+            code = source.toString();
+        }
+
+        return code;
+    }
+
+    /**
+     * Number of lines of the source, counted without reading a mapped file into a String.
+     *
+     * @return
+     */
+    public int getLineCount() {
+        return code != null ? (int) code.lines().count() : source.getLineCount();
+    }
+
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    /**
+     * All the reports produced by the stages that ran so far.
+     *
+     * @return
+     */
+    public List<Report> getReports() {
+        return Collections.unmodifiableList(reports);
+    }
+
+    public JmmParserResult getParserResult() {
+        if (parserResult == null) {
+            if (CompilerConfig.getParser(config).equals(CompilerConfig.PRATT_PARSER)) {
+                parserResult = new PrattParserImpl().parse(getCode(), config);
+            } else {
+                var parser = new JmmParserImpl();
+                parserResult = source != null ? parser.parse(source, config) : parser.parse(code, config);
+            }
+            reports.addAll(parserResult.getReports());
+        }
+
+        return parserResult;
+    }
+
+    /**
+     * The result of semantic analysis, which also builds the symbol table and annotates the AST with types.
+     *
+     * @return
+     */
+    public JmmSemanticsResult getSemanticsResult() {
+        if (semanticsResult == null) {
+            var parsed = getParserResult();
+            checkNoErrors();
+
+            semanticsResult = new JmmAnalysisImpl().semanticAnalysis(parsed);
+            reports.addAll(semanticsResult.getReports());
+        }
+
+        return semanticsResult;
+    }
+
+    public JmmSymbolTable getSymbolTable() {
+        return (JmmSymbolTable) getSemanticsResult().getSymbolTable();
+    }
+
+    /**
+     * The OLLIR code after the AST optimizations and register allocation selected in the config.
+     *
+     * @return
+     */
+    public OllirResult getOllirResult() {
+        if (ollirResult == null) {
+            var semantics = getSemanticsResult();
+            checkNoErrors();
+
+            var optimization = new JmmOptimizationImpl();
+            var result = optimization.toOllir(optimization.optimize(semantics));
+            reports.addAll(result.getReports());
+            checkNoErrors();
+
+            int reportsBefore = result.getReports().size();
+            result = optimization.optimize(result);
+            reports.addAll(result.getReports().subList(reportsBefore, result.getReports().size()));
+
+            ollirResult = result;
+        }
+
+        return ollirResult;
+    }
+
+    public JasminResult getJasminResult() {
+        if (jasminResult == null) {
+            var ollir = getOllirResult();
+            checkNoErrors();
+
+            jasminResult = new JasminBackendImpl().toJasmin(ollir);
+            reports.addAll(jasminResult.getReports());
+        }
+
+        return jasminResult;
+    }
+
+    /**
+     * Compiles the source down to Jasmin, or directly to a class file with the backend selected by '-g', or takes the
+     * outputs from the cache configured with '-c'. Successful compilations are stored in the cache.
+     *
+     * @return true if the compilation had no errors
+     */
+    public boolean compile() {
+        if (cacheEntry != null) {
+            return true;
+        }
+
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = source != null ? CompilationCache.key(source.getBytes(), config) : CompilationCache.key(code, config);
+            var entry = cache.get(cacheKey);
+            if (entry.isPresent()) {
+                cacheEntry = entry.get();
+                cached = true;
+                return true;
+            }
+        }
+
+        try {
+            if (usesClassFileBackend()) {
+                classBytes = new ClassFileBackendImpl().toClassFile(getOllirResult());
+            } else {
+                getJasminResult();
+            }
+            checkNoErrors();
+        } catch (CompilationException e) {
+            return false;
+        }
+
+        cacheEntry = new CacheEntry(ollirResult.getOllirClass().getClassName(), ollirResult.getOllirCode(),
+                jasminResult != null ? jasminResult.getJasminCode() : null, classBytes);
+
+        if (cache != null) {
+            cache.put(cacheKey, withClassBytes(cacheEntry));
+        }
+
+        return true;
+    }
+
+    /**
+     * True if the outputs of {@link #compile()} came from the cache, in which case no stage actually ran.
+     *
+     * @return
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public String getOllirCode() {
+        return getOutputs().ollirCode();
+    }
+
+    /**
+     * The Jasmin code, which is only generated here if the class file was written directly from the OLLIR.
+     *
+     * @return
+     */
+    public String getJasminCode() {
+        var jasminCode = getOutputs().jasminCode();
+
+        return jasminCode != null ? jasminCode : getJasminResult().getJasminCode();
+    }
+
+    public String getClassName() {
+        return getOutputs().className();
+    }
+
+    /**
+     * The contents of the class file, assembled from the Jasmin code or written directly by the backend selected
+     * with '-g'.
+     *
+     * @return
+     */
+    public byte[] getClassBytes() {
+        return withClassBytes(getOutputs()).classBytes();
+    }
+
+    private CacheEntry getOutputs() {
+        if (!compile()) {
+            checkNoErrors();
+        }
+
+        return cacheEntry;
+    }
+
+    private CacheEntry withClassBytes(CacheEntry entry) {
+        if (classBytes == null) {
+            classBytes = entry.classBytes() != null ? entry.classBytes() : JasminBackendImpl.assemble(getJasminResult());
+        }
+
+        return new CacheEntry(entry.className(), entry.ollirCode(), entry.jasminCode(), classBytes);
+    }
+
+    private boolean usesClassFileBackend() {
+        return CompilerConfig.getBackend(config).equals(CompilerConfig.CLASS_FILE_BACKEND);
+    }
+
+    /**
+     * Throws a {@link CompilationException} if any stage that ran so far reported an error.
+     */
+    public void checkNoErrors() {
+        reports.stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .findFirst()
+                .ifPresent(report -> {
+                    throw new CompilationException(report);
+                });
+    }
+
+    /**
+     * Thrown when a stage is requested after an earlier stage reported an error.
+     */
+    public static class CompilationException extends RuntimeException {
+
+        private final transient Report report;
+
+        CompilationException(Report report) {
+            super("Found at least one error report: " + report, report.getException().orElse(null));
+            this.report = report;
+        }
+
+        public Report getReport() {
+            return report;
+        }
+
+        public Stage getStage() {
+            return report.getStage();
+        }
+    }
+}
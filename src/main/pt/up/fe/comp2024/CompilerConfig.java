@@ -1,20 +1,59 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.comp2024.output.Artifact;
+
 import java.io.File;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String BATCH = "batch";
+    private static final String THREADS = "threads";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String CLASS_DIR = "classDir";
+    private static final String DAEMON = "daemon";
+    private static final String PORT = "port";
+    private static final int DEFAULT_PORT = 7766;
+    private static final String CACHE_DIR = "cacheDir";
+    private static final String CACHE_LIMIT = "cacheLimit";
+    private static final long DEFAULT_CACHE_LIMIT_MB = 256;
+    private static final String METRICS = "metrics";
+    private static final Set<String> PRINTED_METRICS = Set.of("true", "table", "json");
+    private static final String ARTIFACTS = "artifacts";
+    private static final String BACKEND = "backend";
+    public static final String JASMIN_BACKEND = "jasmin";
+    public static final String CLASS_FILE_BACKEND = "classfile";
+    private static final String DFA_LIMIT = "dfaLimit";
+    private static final String PARALLEL_PARSE = "parallelParse";
+    private static final String PARSER = "parser";
+    public static final String ANTLR_PARSER = "antlr";
+    public static final String PRATT_PARSER = "pratt";
+    private static final long DEFAULT_DFA_LIMIT = 100_000;
     static Map<String, String> shortToLong = new HashMap<>();
 
     static {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("b", CompilerConfig.BATCH);
+        shortToLong.put("t", CompilerConfig.THREADS);
+        shortToLong.put("d", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("s", CompilerConfig.DAEMON);
+        shortToLong.put("p", CompilerConfig.PORT);
+        shortToLong.put("c", CompilerConfig.CACHE_DIR);
+        shortToLong.put("l", CompilerConfig.CACHE_LIMIT);
+        shortToLong.put("m", CompilerConfig.METRICS);
+        shortToLong.put("a", CompilerConfig.ARTIFACTS);
+        shortToLong.put("g", CompilerConfig.BACKEND);
+        shortToLong.put("f", CompilerConfig.DFA_LIMIT);
+        shortToLong.put("j", CompilerConfig.PARALLEL_PARSE);
+        shortToLong.put("x", CompilerConfig.PARSER);
     }
 
     public static Optional<File> getInputFile(Map<String, String> config) {
@@ -36,6 +75,198 @@ public class CompilerConfig {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * The batch input, which can be a directory, a glob pattern or a list file prefixed with '@'.
+     *
+     * @param config
+     * @return
+     */
+    public static Optional<String> getBatch(Map<String, String> config) {
+        return Optional.ofNullable(config.get(BATCH));
+    }
+
+    /**
+     * The configuration to compile a single file of a batch, which is the given one without the batch input.
+     *
+     * @param config
+     * @return
+     */
+    public static Map<String, String> getFileConfig(Map<String, String> config) {
+        var fileConfig = new HashMap<>(config);
+        fileConfig.remove(BATCH);
+
+        return fileConfig;
+    }
+
+    public static int getThreads(Map<String, String> config) {
+        var threads = config.get(THREADS);
+
+        if (threads == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return Integer.parseInt(threads);
+    }
+
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        var outputDir = config.get(OUTPUT_DIR);
+
+        if (outputDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(outputDir));
+    }
+
+    /**
+     * The absolute directory where class files are written when they are not printed: the one given with '-d' or,
+     * without it, the working directory of the process that parsed the arguments. The compilation may happen in a
+     * daemon running in another directory, so it is resolved when parsing the arguments.
+     *
+     * @param config
+     * @return
+     */
+    public static Optional<File> getClassDir(Map<String, String> config) {
+        var classDir = config.get(CLASS_DIR);
+
+        if (classDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(classDir));
+    }
+
+    /**
+     * The daemon command, 'true' to start a compile daemon or 'stop' to shut down a running one.
+     *
+     * @param config
+     * @return
+     */
+    public static Optional<String> getDaemon(Map<String, String> config) {
+        return Optional.ofNullable(config.get(DAEMON));
+    }
+
+    public static int getPort(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(PORT, String.valueOf(DEFAULT_PORT)));
+    }
+
+    public static Optional<File> getCacheDir(Map<String, String> config) {
+        var cacheDir = config.get(CACHE_DIR);
+
+        if (cacheDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(cacheDir));
+    }
+
+    /**
+     * Maximum size of the compilation cache in bytes, given in megabytes with '-l'.
+     *
+     * @param config
+     * @return
+     */
+    public static long getCacheLimit(Map<String, String> config) {
+        var limit = config.get(CACHE_LIMIT);
+        long megabytes = limit == null ? DEFAULT_CACHE_LIMIT_MB : Long.parseLong(limit);
+
+        return megabytes * 1024 * 1024;
+    }
+
+    /**
+     * Maximum number of states kept in the DFA caches of the lexer and the parser, given with '-f'. The caches are
+     * shared by all compilations of the process and cleared once they grow past this limit.
+     *
+     * @param config
+     * @return
+     */
+    public static long getDfaLimit(Map<String, String> config) {
+        var limit = config.get(DFA_LIMIT);
+
+        return limit == null ? DEFAULT_DFA_LIMIT : Long.parseLong(limit);
+    }
+
+    /**
+     * True if the methods of the class are parsed in parallel, enabled with '-j'.
+     *
+     * @param config
+     * @return
+     */
+    public static boolean getParallelParse(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(PARALLEL_PARSE, "false"));
+    }
+
+    /**
+     * The parser, given with '-x': 'antlr' (the default) uses the parser generated from the grammar, 'pratt' the
+     * hand-written one.
+     *
+     * @param config
+     * @return
+     */
+    public static String getParser(Map<String, String> config) {
+        var parser = config.getOrDefault(PARSER, ANTLR_PARSER);
+
+        if (!parser.equals(ANTLR_PARSER) && !parser.equals(PRATT_PARSER)) {
+            throw new RuntimeException("Option '-x' expects 'antlr' or 'pratt', got '" + parser + "'");
+        }
+
+        return parser;
+    }
+
+    /**
+     * Where to output per-stage metrics: 'true' or 'table' for a table, 'json' for JSON, or a path to a JSON file.
+     *
+     * @param config
+     * @return
+     */
+    public static Optional<String> getMetrics(Map<String, String> config) {
+        return Optional.ofNullable(config.get(METRICS));
+    }
+
+    /**
+     * The JSON file where per-stage metrics are written, if they are not printed.
+     *
+     * @param config
+     * @return
+     */
+    public static Optional<File> getMetricsFile(Map<String, String> config) {
+        return getMetrics(config).filter(target -> !PRINTED_METRICS.contains(target)).map(File::new);
+    }
+
+    /**
+     * The artifacts to output, given with '-a' as a comma-separated list of ast, ollir, jasmin and class.
+     * Nothing is output by default, except for the Jasmin code when an output directory is given.
+     *
+     * @param config
+     * @return
+     */
+    public static Set<Artifact> getArtifacts(Map<String, String> config) {
+        var artifacts = config.get(ARTIFACTS);
+
+        if (artifacts == null) {
+            return config.containsKey(OUTPUT_DIR) ? EnumSet.of(Artifact.JASMIN) : EnumSet.noneOf(Artifact.class);
+        }
+
+        return Artifact.parseList(artifacts);
+    }
+
+    /**
+     * The backend that generates class files, given with '-g': 'jasmin' (the default) assembles the generated Jasmin
+     * code, 'classfile' writes the class file directly from the OLLIR.
+     *
+     * @param config
+     * @return
+     */
+    public static String getBackend(Map<String, String> config) {
+        var backend = config.getOrDefault(BACKEND, JASMIN_BACKEND);
+
+        if (!backend.equals(JASMIN_BACKEND) && !backend.equals(CLASS_FILE_BACKEND)) {
+            throw new RuntimeException("Option '-g' expects 'jasmin' or 'classfile', got '" + backend + "'");
+        }
+
+        return backend;
+    }
+
     public static Map<String, String> getDefault() {
 
         var config = new HashMap<String, String>();
@@ -56,6 +287,20 @@ public class CompilerConfig {
         return shortToLong.containsKey(shortOpt);
     }
 
+    private static void makeAbsolute(Map<String, String> config, String key) {
+        var path = config.get(key);
+
+        if (path != null) {
+            config.put(key, new File(path).getAbsolutePath());
+        }
+    }
+
+    private static void makeMetricsFileAbsolute(Map<String, String> config) {
+        if (getMetricsFile(config).isPresent()) {
+            makeAbsolute(config, METRICS);
+        }
+    }
+
     public static Map<String, String> parseArgs(String[] args) {
 
         // default options for config
@@ -84,9 +329,44 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
+        if (config.containsKey(DAEMON)) {
+
+            var command = config.get(DAEMON);
+            if (!command.equals("true") && !command.equals("stop")) {
+                throw new RuntimeException("Option '-s' expects no value or 'stop', got '" + command + "'");
+            }
+
+            getPort(config);
+
+            return config;
+        }
+
+        if (config.containsKey(BATCH)) {
+
+            if (config.containsKey(INPUT_FILE)) {
+                throw new RuntimeException("Options '-i' and '-b' cannot be used together");
+            }
+
+            if (getThreads(config) < 1) {
+                throw new RuntimeException("Option '-t' expects a positive number of threads");
+            }
+
+            getOptimize(config);
+            getRegisterAllocation(config);
+            getCacheLimit(config);
+            getArtifacts(config);
+            getBackend(config);
+            makeAbsolute(config, OUTPUT_DIR);
+            makeAbsolute(config, CACHE_DIR);
+            makeMetricsFileAbsolute(config);
+            config.put(CLASS_DIR, config.getOrDefault(OUTPUT_DIR, new File("").getAbsolutePath()));
+
+            return config;
+        }
+
         if (!config.containsKey(INPUT_FILE)) {
 
-            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
+            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>' or '-b=<DIR|GLOB|@LIST>'");
         }
 
         // make sure we save the absolute path of the input file
@@ -101,6 +381,15 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getCacheLimit(config);
+        getArtifacts(config);
+        getBackend(config);
+
+        // The compilation may happen in a daemon running in another directory
+        makeAbsolute(config, OUTPUT_DIR);
+        makeAbsolute(config, CACHE_DIR);
+        makeMetricsFileAbsolute(config);
+        config.put(CLASS_DIR, config.getOrDefault(OUTPUT_DIR, new File("").getAbsolutePath()));
 
         return config;
     }
@@ -1,20 +1,13 @@
 package pt.up.fe.comp2024;
 
-import pt.up.fe.comp.TestUtils;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp2024.analysis.ASTAnnotator;
-import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2024.backend.JasminBackendImpl;
-import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
-import pt.up.fe.comp2024.parser.JmmParserImpl;
-import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
-import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
-import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.comp2024.daemon.CompileDaemon;
+import pt.up.fe.comp2024.daemon.DaemonClient;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
+import pt.up.fe.comp2024.output.ArtifactEmitter;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Map;
 
 public class Launcher {
@@ -23,57 +16,101 @@ public class Launcher {
         SpecsSystem.programStandardInit();
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
+        var batch = CompilerConfig.getBatch(config);
+        if (batch.isPresent()) {
+            compileBatch(batch.get(), config);
+            return;
+        }
+
+        var daemon = CompilerConfig.getDaemon(config);
+        if (daemon.isPresent()) {
+            runDaemon(daemon.get(), config);
+            return;
+        }
+
         var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        for (var report : parserResult.getReports()) {
-            System.out.println(report);
+        // The file is lexed straight from a memory mapping, without reading it into a String
+        compile(CompilationSession.fromFile(inputFile, config), System.out);
+    }
+
+    /**
+     * Runs the whole pipeline on the given code, printing the reports to the given stream and outputting the
+     * artifacts selected with '-a'. Throws an exception at the first stage that reports an error.
+     *
+     * @param code
+     * @param config
+     * @param out
+     */
+    public static void compile(String code, Map<String, String> config, PrintStream out) {
+        compile(new CompilationSession(code, config), out);
+    }
+
+    /**
+     * Runs the whole pipeline on the given session, as {@link #compile(String, Map, PrintStream)}.
+     *
+     * @param session
+     * @param out
+     */
+    public static void compile(CompilationSession session, PrintStream out) {
+        var metricsTarget = CompilerConfig.getMetrics(session.getConfig());
+        if (metricsTarget.isEmpty()) {
+            runPipeline(session, out);
+            return;
+        }
+
+        var metrics = PipelineMetrics.start();
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.TOTAL)) {
+            runPipeline(session, out);
+        } finally {
+            metrics.stop();
+            metrics.write(metricsTarget.get(), out);
+        }
+    }
+
+    private static void runPipeline(CompilationSession session, PrintStream out) {
+        boolean success = session.compile();
+
+        for (var report : session.getReports()) {
+            out.println(report);
+        }
+
+        if (!success) {
+            session.checkNoErrors();
+        }
+
+        ArtifactEmitter.fromConfig(session.getConfig(), out).emit(session);
+    }
+
+    private static void runDaemon(String command, Map<String, String> config) {
+        int port = CompilerConfig.getPort(config);
+
+        if (command.equals("stop")) {
+            System.out.println(DaemonClient.stop(port));
+            return;
+        }
+
+        try {
+            new CompileDaemon(port, CompilerConfig.getThreads(config)).serve();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not start compile daemon on port " + port, e);
+        }
+    }
+
+    private static void compileBatch(String batch, Map<String, String> config) {
+        var inputs = BatchCompiler.resolveInputs(batch);
+        if (inputs.isEmpty()) {
+            throw new RuntimeException("Option '-b' did not match any input file, got '" + batch + "'.");
+        }
+
+        var results = new BatchCompiler(config).compile(inputs, System.out);
+
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        if (failed > 0) {
+            throw new RuntimeException(failed + " of " + results.size() + " files failed to compile.");
         }
-        TestUtils.noErrors(parserResult.getReports());
-
-        // Print AST
-        //System.out.println(parserResult.getRootNode().toTree());
-
-        JmmSymbolTable table = JmmSymbolTableBuilder.build(parserResult.getRootNode());
-        //table.print();
-        new ASTAnnotator().visit(parserResult.getRootNode(), table);
-
-        // SymbolTable table = JmmSymbolTableBuilder.build(parserResult.getRootNode());
-        // printSymbolTable(table);
-
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-
-        System.out.println(semanticsResult.getRootNode().toTree());
-        //System.out.println(semanticsResult.getReports());
-        TestUtils.noErrors(semanticsResult.getReports());
-
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        ollirGen.optimize(semanticsResult);
-        System.out.println(semanticsResult.getRootNode().toTree());
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
-        System.out.println(ollirResult.getOllirCode());
-        ollirResult = ollirGen.optimize(ollirResult);
-
-        TestUtils.noErrors(ollirResult.getReports());
-        // Print OLLIR code
-        System.out.println(ollirResult.getOllirCode());
-
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-
-//        OllirResult ollirResult = new OllirResult(code, config);
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        System.out.println(jasminResult.getJasminCode());
-        TestUtils.noErrors(jasminResult.getReports());
     }
 }
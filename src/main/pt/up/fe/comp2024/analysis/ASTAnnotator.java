@@ -4,14 +4,16 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PostorderJmmVisitor;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.PostorderKindVisitor;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
+import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 import pt.up.fe.comp2024.symboltable.MethodSymbol;
 
 import java.lang.reflect.Method;
 
-public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
+public class ASTAnnotator extends PreorderKindVisitor<JmmSymbolTable, Void> {
 
     String currentMethod;
 
@@ -28,16 +30,18 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
     private Void visitMethodDecl(JmmNode method, JmmSymbolTable table) {
         currentMethod = method.get("name");
 
-        new MethodVisitor(currentMethod).visit(method, table);
+        new MethodVisitor(currentMethod, table).visit(method, table);
 
         return null;
     }
 
-    class MethodVisitor extends PostorderJmmVisitor<JmmSymbolTable, Void> {
+    class MethodVisitor extends PostorderKindVisitor<JmmSymbolTable, Void> {
 
         String currentMethod;
-        public MethodVisitor(String currentMethod) {
+        JmmSymbolTable symbolTable;
+        public MethodVisitor(String currentMethod, JmmSymbolTable symbolTable) {
             this.currentMethod = currentMethod;
+            this.symbolTable = symbolTable;
             setDefaultValue(() -> null);
         }
         @Override
@@ -67,17 +71,44 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
             addVisit("WhileStmt", this::visitConditionalNode);
         }
 
+        /**
+         * Sets the 'type' and 'isArray' of the node, which {@link CompactJmmNode}s keep as a single {@link Type}, shared
+         * with the other nodes and declarations of the compilation by the symbol table.
+         */
+        private void setType(JmmNode node, String typeName, boolean isArray) {
+            setType(node, symbolTable.getType(typeName, isArray));
+        }
+
+        private void setType(JmmNode node, Type type) {
+            if (node instanceof CompactJmmNode compact) {
+                compact.setType(type);
+                return;
+            }
+
+            node.put("type", type.getName());
+            node.put("isArray", type.isArray() ? "true" : "false");
+        }
+
+        /**
+         * Sets the type of a node that refers to a variable to the type of its declaration, which
+         * {@link CompactJmmNode}s also keep, so that {@link TypeUtils#getExprType} does not look it up again.
+         */
+        private void setDeclaration(JmmNode node, Symbol declaration) {
+            setType(node, declaration.getType());
+
+            if (node instanceof CompactJmmNode compact) {
+                compact.setSymbol(declaration);
+            }
+        }
+
         private Void visitConditionalNode(JmmNode conditionalNode, JmmSymbolTable symbolTable) {
             JmmNode conditionalExpression = conditionalNode.getChild(0);
 
             if (conditionalExpression.get("type").equals("undefined")) {
-                conditionalExpression.put("type", "boolean");
-                conditionalExpression.put("isArray", "false");
+                setType(conditionalExpression, "boolean", false);
             }  else if (conditionalExpression.get("type").equals("undefined_array_access")){
-                conditionalExpression.put("type", "boolean");
-                conditionalExpression.put("isArray", "false");
-                conditionalExpression.getChild(0).put("type", "boolean");
-                conditionalExpression.getChild(0).put("isArray", "true");
+                setType(conditionalExpression, "boolean", false);
+                setType(conditionalExpression.getChild(0), "boolean", true);
             }
 
             return null;
@@ -86,23 +117,20 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
 
         private Void visitIntegerLiteral(JmmNode integerLiteral, SymbolTable table) {
 
-            integerLiteral.put("type", "int");
-            integerLiteral.put("isArray", "false");
+            setType(integerLiteral, "int", false);
             return null;
         }
 
         private Void visitBooleanLiteral(JmmNode booleanLiteral, SymbolTable table) {
 
-            booleanLiteral.put("type", "boolean");
-            booleanLiteral.put("isArray", "false");
+            setType(booleanLiteral, "boolean", false);
             return null;
         }
 
         private Void visitArrayExpression(JmmNode arrayExpression, SymbolTable table) {
 
             if (arrayExpression.getNumChildren() == 0){
-                arrayExpression.put("type", "empty_array");
-                arrayExpression.put("isArray", "true");
+                setType(arrayExpression, "empty_array", true);
                 return null;
             }
 
@@ -116,22 +144,18 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
                 }
             }
 
-            arrayExpression.put("type", type);
-            arrayExpression.put("isArray", "true");
+            setType(arrayExpression, type, true);
 
             return null;
         }
 
         private void updateUndefinedOperand(JmmNode operand, String type) {
-            if (operand.get("type") == "undefined") {
-                operand.put("type", type);
-                operand.put("isArray", "false");
+            if (operand.get("type").equals("undefined")) {
+                setType(operand, type, false);
             }
             else if (operand.get("type").equals("undefined_array_access")){
-                operand.put("type", type);
-                operand.put("isArray", "false");
-                operand.getChild(0).put("type", type);
-                operand.getChild(0).put("isArray", "true");
+                setType(operand, type, false);
+                setType(operand.getChild(0), type, true);
             }
         }
 
@@ -172,8 +196,7 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
             switch (unaryOp.get("op")) {
                 case "!":
                     updateUndefinedOperand(unaryOp.getChild(0), "boolean");
-                    unaryOp.put("type", "boolean");
-                    unaryOp.put("isArray", "false");
+                    setType(unaryOp, "boolean", false);
             }
             return null;
         }
@@ -199,12 +222,8 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
                 return null;
             }
 
-            String typeName = declaration.getType().getName();
-            String isArray = declaration.getType().isArray() ? "true" : "false";
-
             identifier.put("reference", "variable");
-            identifier.put("type", typeName);
-            identifier.put("isArray", isArray);
+            setDeclaration(identifier, declaration);
 
             return null;
         }
@@ -213,14 +232,14 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
 
             String type = exprStmt.getChild(0).get("type");
 
-            if (type == "undefined") {
+            if (type.equals("undefined")) {
                 exprStmt.getChild(0).put("type", "void");
                 exprStmt.put("type", "void");
                 return null;
             }
             exprStmt.put("type", type);
 
-            if (type != "invalid") {
+            if (!type.equals("invalid")) {
                 String isArray = exprStmt.getChild(0).get("isArray");
                 exprStmt.put("isArray", isArray);
             }
@@ -240,13 +259,12 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
                 arrayAccess.put("type", "undefined_array_access");
                 return null;
             }
-            else if (array.get("isArray") == "false") {
+            else if (array.get("isArray").equals("false")) {
                 arrayAccess.put("type", "invalid");
                 return null;
             }
 
-            arrayAccess.put("type", type);
-            arrayAccess.put("isArray", "false");
+            setType(arrayAccess, type, false);
 
             return null;
         }
@@ -268,9 +286,7 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
                         methodCall.put("type", "invalid");
                 else {
                     Type type = methodSymbol.getType();
-                    methodCall.put("type", type.getName());
-                    String isArray = type.isArray() ? "true" : "false";
-                    methodCall.put("isArray", isArray);
+                    setType(methodCall, type.getName(), type.isArray());
                 }
             }
 
@@ -278,9 +294,7 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
 
                 if (methodSymbol != null){
                     Type type = methodSymbol.getType();
-                    methodCall.put("type", type.getName());
-                    String isArray = type.isArray() ? "true" : "false";
-                    methodCall.put("isArray", isArray);
+                    setType(methodCall, type.getName(), type.isArray());
                     return null;
                 }
 
@@ -298,8 +312,7 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
 
         private Void visitThis(JmmNode thisNode, SymbolTable table) {
 
-            thisNode.put("type", table.getClassName());
-            thisNode.put("isArray", "false");
+            setType(thisNode, table.getClassName(), false);
 
             return null;
         }
@@ -315,30 +328,26 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
                 return null;
             }
 
-            attribute.put("type", "int");
-            attribute.put("isArray", "false");
+            setType(attribute, "int", false);
 
             return null;
         }
 
         public Void visitObjectDeclaration (JmmNode objectDeclaration, SymbolTable table) {
 
-            objectDeclaration.put("type", objectDeclaration.get("name"));
-            objectDeclaration.put("isArray", "false");
+            setType(objectDeclaration, objectDeclaration.get("name"), false);
 
             return null;
         }
 
         public Void visitArrayDeclaration (JmmNode arrayDeclaration, SymbolTable table) {
 
-            arrayDeclaration.put("type", "int");
-            arrayDeclaration.put("isArray", "true");
+            setType(arrayDeclaration, "int", true);
 
             JmmNode length = arrayDeclaration.getChild(0);
 
             if (length.get("type").equals("undefined")){
-                length.put("type", "int");
-                length.put("isArray", "false");
+                setType(length, "int", false);
             }
 
             return null;
@@ -360,25 +369,20 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
 
             String type = varDeclaration.getType().getName();
             Boolean isArray = varDeclaration.getType().isArray();
-            assignStmt.put("type", type);
-            assignStmt.put("isArray", isArray ? "true" : "false");
+            setDeclaration(assignStmt, varDeclaration);
 
             JmmNode assignment = assignStmt.getChild(0);
 
             if (assignment.get("type").equals("undefined")) {
-                assignment.put("type", type);
-                assignment.put("isArray", isArray ? "true" : "false");
+                setType(assignment, type, isArray);
             } else if (assignment.get("type").equals("undefined_array_access")){
 
-                assignment.put("type", type);
-                assignment.put("isArray", "false");
-                assignment.getChild(0).put("type", type);
-                assignment.getChild(0).put("isArray", "true");
+                setType(assignment, type, false);
+                setType(assignment.getChild(0), type, true);
             }
 
             if (assignment.get("type").equals("empty_array") && isArray){
-                assignment.put("type", type);
-                assignment.put("isArray", "true");
+                setType(assignment, type, true);
             }
 
             return null;
@@ -397,19 +401,15 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
 
             String type = varDeclaration.getType().getName();
             Boolean isArray = varDeclaration.getType().isArray();
-            arrayAssignStmt.put("type", type);
-            arrayAssignStmt.put("isArray", isArray ? "true" : "false");
+            setDeclaration(arrayAssignStmt, varDeclaration);
 
             JmmNode assignment = arrayAssignStmt.getChild(1);
 
             if (assignment.get("type").equals("undefined")) {
-                assignment.put("type", type);
-                assignment.put("isArray","false");
+                setType(assignment, type, false);
             } else if (assignment.get("type").equals("undefined_array_access")){
-                assignment.put("type", type);
-                assignment.put("isArray", "false");
-                assignment.getChild(0).put("type", type);
-                assignment.getChild(0).put("isArray", "true");
+                setType(assignment, type, false);
+                setType(assignment.getChild(0), type, true);
             }
 
             return null;
@@ -421,8 +421,7 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
             Type returnType = table.getReturnType(currentMethod);
 
             if (expression.get("type").equals("undefined")){
-                expression.put("type", returnType.getName());
-                expression.put("isArray", returnType.isArray() ? "true" : "false");
+                setType(expression, returnType.getName(), returnType.isArray());
             }
 
             returnNode.put("type", expression.get("type"));
@@ -436,16 +435,14 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
         private Void visitPrimitiveType(JmmNode primitiveType, JmmSymbolTable symbolTable) {
 
             String type =  primitiveType.getChild(0).get("name");
-            primitiveType.put("type", type);
-            primitiveType.put("isArray", "false");
+            setType(primitiveType, type, false);
 
             return null;
         }
         private Void visitArrayType(JmmNode arrayType, JmmSymbolTable symbolTable) {
 
             String type =  arrayType.getChild(0).get("name");
-            arrayType.put("type", type);
-            arrayType.put("isArray", "true");
+            setType(arrayType, type, true);
 
             return null;
         }
@@ -453,8 +450,7 @@ public class ASTAnnotator extends PreorderJmmVisitor<JmmSymbolTable, Void> {
 
             String type =  varDeclaration.getChild(0).get("type");
             String isArray = varDeclaration.getChild(0).get("isArray");
-            varDeclaration.put("type", type);
-            varDeclaration.put("isArray", isArray);
+            setType(varDeclaration, type, isArray.equals("true"));
             return null;
         }
     }
@@ -1,8 +1,8 @@
 package pt.up.fe.comp2024.analysis;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import java.util.ArrayList;
@@ -11,7 +11,7 @@ import java.util.List;
 /**
  *
  */
-public abstract class AnalysisVisitor extends PreorderJmmVisitor<JmmSymbolTable, Void> implements AnalysisPass {
+public abstract class AnalysisVisitor extends PreorderKindVisitor<JmmSymbolTable, Void> implements AnalysisPass {
 
     private List<Report> reports;
 
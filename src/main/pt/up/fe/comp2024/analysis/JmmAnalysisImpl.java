@@ -8,6 +8,7 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
 
@@ -47,23 +48,32 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         JmmNode rootNode = parserResult.getRootNode();
 
-        JmmSymbolTable table = JmmSymbolTableBuilder.build(rootNode);
+        JmmSymbolTable table;
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.SYMBOL_TABLE)) {
+            table = JmmSymbolTableBuilder.build(rootNode);
+        }
 
-        new ASTAnnotator().visit(parserResult.getRootNode(), table);
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.ANNOTATION)) {
+            new ASTAnnotator().visit(parserResult.getRootNode(), table);
+        }
 
         List<Report> reports = new ArrayList<>();
 
-        for (var analysisPass : analysisPasses) {
-            try {
-                var passReports = analysisPass.analyze(rootNode, table);
-                reports.addAll(passReports);
-            } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
-                        e)
-                );
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.ANALYSIS)) {
+            for (var analysisPass : analysisPasses) {
+                var passName = PipelineMetrics.ANALYSIS_PASS + analysisPass.getClass().getSimpleName();
+
+                try (var ignoredPass = PipelineMetrics.measure(passName)) {
+                    var passReports = analysisPass.analyze(rootNode, table);
+                    reports.addAll(passReports);
+                } catch (Exception e) {
+                    reports.add(Report.newError(Stage.SEMANTIC,
+                            -1,
+                            -1,
+                            "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
+                            e)
+                    );
+                }
             }
         }
 
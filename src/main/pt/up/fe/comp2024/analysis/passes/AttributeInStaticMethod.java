@@ -56,17 +56,7 @@ public class AttributeInStaticMethod extends AnalysisVisitor {
     }
 
     private void checkFieldReference(JmmNode identifier, JmmSymbolTable symbolTable, String varName) {
-        if (symbolTable.getParameters(currentMethod).stream().anyMatch(
-                symbol -> symbol.getName().equals(varName)
-        )) return;
-
-        if (symbolTable.getLocalVariables(currentMethod).stream().anyMatch(
-                symbol -> symbol.getName().equals(varName))
-        ) return;
-
-        if (symbolTable.getFields().stream().anyMatch(
-                symbol -> symbol.getName().equals(varName)
-        )){
+        if (symbolTable.isField(varName, currentMethod)) {
             addReport(Report.newError(
                     Stage.SEMANTIC,
                     NodeUtils.getLine(identifier),
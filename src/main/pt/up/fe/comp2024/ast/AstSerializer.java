@@ -0,0 +1,473 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.symboltable.ParamSymbol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes an AST, parsed or annotated, in a compact binary format, so that it can be stored and read back much faster
+ * than parsing and annotating the source again.
+ * <p>
+ * The data starts with a magic number and the {@link #FORMAT_VERSION}, followed by a table with each distinct string
+ * of the tree, and then the nodes in preorder. Each node has the index of its kind and hierarchy in the table, its
+ * start position as numbers, the declaration of an annotated identifier, its other attributes and its number of
+ * children. Kinds and attribute names are stored by name, so the data does not depend on the order of {@link Kind}.
+ * <p>
+ * Data with another magic number or version, or that is truncated, is rejected with an exception instead of being
+ * misread. The version must be increased whenever the encoding changes.
+ */
+public final class AstSerializer {
+
+    /**
+     * Version of the encoding, increased on every change so that data written by other versions is rejected.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    // "JmmA"
+    private static final int MAGIC = 0x4A6D6D41;
+
+    private static final String LINE_START = NodePosition.LINE_START.getKey();
+    private static final String COL_START = NodePosition.COL_START.getKey();
+
+    // Flags of a node
+    private static final int HAS_POSITION = 1;
+    private static final int HAS_SYMBOL = 1 << 1;
+    private static final int COMPACT = 1 << 2;
+
+    // Kinds of declarations
+    private static final int SYMBOL = 0;
+    private static final int PARAM = 1;
+    private static final int VARARG_PARAM = 2;
+
+    // Types of attribute values
+    private static final int STRING = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int STRING_LIST = 3;
+
+    private AstSerializer() {
+    }
+
+    /**
+     * Encodes the tree with the given root.
+     *
+     * @param root
+     * @return
+     */
+    public static byte[] serialize(JmmNode root) {
+        return new Writer().write(root);
+    }
+
+    /**
+     * Decodes a tree encoded by {@link #serialize(JmmNode)}. Each node is a {@link CompactJmmNode} or a
+     * {@link JmmNodeImpl}, as it was when encoded.
+     *
+     * @param data
+     * @return the root of the tree
+     * @throws RuntimeException if the data is not an AST of the current version
+     */
+    public static JmmNode deserialize(byte[] data) {
+        try {
+            return new Reader(data).read();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new RuntimeException("AST data is truncated", e);
+        }
+    }
+
+    /**
+     * Growable buffer of bytes, with numbers as variable-length integers.
+     */
+    private static class Buffer {
+
+        private byte[] bytes = new byte[1024];
+        private int size = 0;
+
+        void writeByte(int value) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            // 7 bits at a time, the highest bit tells if more follow
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            writeByte(value);
+        }
+
+        void writeBytes(byte[] values) {
+            if (size + values.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + values.length));
+            }
+
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+    }
+
+    private static class Writer {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Buffer nodes = new Buffer();
+
+        byte[] write(JmmNode root) {
+            var pending = new ArrayDeque<JmmNode>();
+            pending.push(root);
+
+            while (!pending.isEmpty()) {
+                var node = pending.pop();
+                writeNode(node);
+
+                for (int i = node.getNumChildren() - 1; i >= 0; i--) {
+                    pending.push(node.getJmmChild(i));
+                }
+            }
+
+            var data = new Buffer();
+            data.writeBytes(new byte[]{(byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC});
+            data.writeInt(FORMAT_VERSION);
+
+            data.writeInt(strings.size());
+            for (var string : strings) {
+                var bytes = string.getBytes(StandardCharsets.UTF_8);
+                data.writeInt(bytes.length);
+                data.writeBytes(bytes);
+            }
+
+            data.writeBytes(Arrays.copyOf(nodes.bytes, nodes.size));
+
+            return Arrays.copyOf(data.bytes, data.size);
+        }
+
+        private void writeNode(JmmNode node) {
+            nodes.writeInt(index(node.getKind()));
+
+            var hierarchy = node.getHierarchy();
+            nodes.writeInt(hierarchy.size());
+            for (var kind : hierarchy) {
+                nodes.writeInt(index(kind));
+            }
+
+            var compact = node instanceof CompactJmmNode c ? c : null;
+            var attributes = new ArrayList<>(node.getAttributes());
+
+            int line = -1;
+            int column = -1;
+            if (compact != null && compact.hasPosition()) {
+                line = compact.getLine();
+                column = compact.getColumn();
+            } else if (compact == null && node.getOptionalObject(LINE_START).orElse(null) instanceof String lineText
+                    && node.getOptionalObject(COL_START).orElse(null) instanceof String columnText) {
+                line = parsePosition(lineText);
+                column = parsePosition(columnText);
+            }
+
+            boolean hasPosition = line >= 0 && column >= 0;
+            if (hasPosition) {
+                attributes.remove(LINE_START);
+                attributes.remove(COL_START);
+            }
+
+            var symbol = compact != null ? compact.getSymbol() : null;
+
+            nodes.writeByte((compact != null ? COMPACT : 0) | (hasPosition ? HAS_POSITION : 0)
+                    | (symbol != null ? HAS_SYMBOL : 0));
+
+            if (hasPosition) {
+                nodes.writeInt(line);
+                nodes.writeInt(column);
+            }
+
+            if (symbol != null) {
+                nodes.writeInt(index(symbol.getName()));
+                nodes.writeInt(index(symbol.getType().getName()));
+                nodes.writeByte(symbol.getType().isArray() ? TRUE : FALSE);
+                nodes.writeByte(symbol instanceof ParamSymbol param ? (param.isVararg() ? VARARG_PARAM : PARAM) : SYMBOL);
+            }
+
+            nodes.writeInt(attributes.size());
+            for (var attribute : attributes) {
+                nodes.writeInt(index(attribute));
+                writeValue(node, attribute, node.getObject(attribute));
+            }
+
+            nodes.writeInt(node.getNumChildren());
+        }
+
+        private void writeValue(JmmNode node, String attribute, Object value) {
+            if (value instanceof String string) {
+                nodes.writeByte(STRING);
+                nodes.writeInt(index(string));
+            } else if (value instanceof Boolean bool) {
+                nodes.writeByte(bool ? TRUE : FALSE);
+            } else if (value instanceof List<?> list && list.stream().allMatch(String.class::isInstance)) {
+                nodes.writeByte(STRING_LIST);
+                nodes.writeInt(list.size());
+                for (var element : list) {
+                    nodes.writeInt(index((String) element));
+                }
+            } else {
+                throw new RuntimeException("Cannot serialize attribute '" + attribute + "' of node " + node
+                        + ", with value of type " + (value == null ? "null" : value.getClass().getSimpleName()));
+            }
+        }
+
+        private static int parsePosition(String text) {
+            try {
+                return Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                // Kept as an attribute
+                return -1;
+            }
+        }
+
+        private int index(String string) {
+            var index = indexes.get(string);
+
+            if (index == null) {
+                index = strings.size();
+                indexes.put(string, index);
+                strings.add(string);
+            }
+
+            return index;
+        }
+    }
+
+    private static class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        private String[] strings;
+
+        // Resolved lazily for the strings used as kinds
+        private Kind[] kinds;
+        private List<String>[] hierarchies;
+        private int[][] hierarchyIndexes;
+
+        Reader(byte[] data) {
+            this.data = data;
+            this.position = 0;
+        }
+
+        JmmNode read() {
+            if (data.length < 4 || readMagic() != MAGIC) {
+                throw new RuntimeException("Data is not an encoded AST");
+            }
+
+            int version = readInt();
+            if (version != FORMAT_VERSION) {
+                throw new RuntimeException("AST data has format version " + version + ", expected " + FORMAT_VERSION);
+            }
+
+            strings = new String[readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readInt();
+                if (length > data.length - position) {
+                    throw new ArrayIndexOutOfBoundsException(position + length);
+                }
+
+                strings[i] = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+
+            kinds = new Kind[strings.length];
+            hierarchies = newHierarchies(strings.length);
+            hierarchyIndexes = new int[strings.length][];
+
+            // The nodes that still have children to read, and how many
+            var parents = new ArrayDeque<JmmNode>();
+            var remaining = new int[16];
+
+            JmmNode root = null;
+            do {
+                var node = readNode();
+                int numChildren = readInt();
+
+                if (root == null) {
+                    root = node;
+                } else {
+                    parents.peek().add(node);
+                    remaining[parents.size() - 1]--;
+                }
+
+                if (numChildren > 0) {
+                    if (parents.size() == remaining.length) {
+                        remaining = Arrays.copyOf(remaining, remaining.length * 2);
+                    }
+
+                    remaining[parents.size()] = numChildren;
+                    parents.push(node);
+                }
+
+                while (!parents.isEmpty() && remaining[parents.size() - 1] == 0) {
+                    parents.pop();
+                }
+            } while (!parents.isEmpty());
+
+            if (position != data.length) {
+                throw new RuntimeException("AST data has " + (data.length - position) + " unexpected bytes at the end");
+            }
+
+            return root;
+        }
+
+        private JmmNode readNode() {
+            int kindIndex = readInt();
+            var hierarchy = readHierarchy(kindIndex);
+            int flags = readByte();
+
+            JmmNode node;
+            CompactJmmNode compact = null;
+            if ((flags & COMPACT) != 0) {
+                compact = new CompactJmmNode(getKind(kindIndex), hierarchy);
+                node = compact;
+            } else {
+                var impl = new JmmNodeImpl(strings[kindIndex]);
+                impl.setHierarchy(hierarchy);
+                node = impl;
+            }
+
+            if ((flags & HAS_POSITION) != 0) {
+                int line = readInt();
+                int column = readInt();
+
+                if (compact != null) {
+                    compact.setPosition(line, column);
+                } else {
+                    node.put(LINE_START, Integer.toString(line));
+                    node.put(COL_START, Integer.toString(column));
+                }
+            }
+
+            if ((flags & HAS_SYMBOL) != 0) {
+                var name = readString();
+                var type = TypeUtils.getType(readString(), readByte() == TRUE);
+                int declaration = readByte();
+
+                if (compact != null) {
+                    compact.setSymbol(switch (declaration) {
+                        case SYMBOL -> new Symbol(type, name);
+                        case PARAM -> new ParamSymbol(type, name);
+                        case VARARG_PARAM -> new ParamSymbol(type, name, true);
+                        default -> throw new RuntimeException("AST data has a declaration of unknown type " + declaration);
+                    });
+                }
+            }
+
+            int numAttributes = readInt();
+            for (int i = 0; i < numAttributes; i++) {
+                var attribute = readString();
+                node.putObject(attribute, readValue());
+            }
+
+            return node;
+        }
+
+        private Object readValue() {
+            int type = readByte();
+
+            return switch (type) {
+                case STRING -> readString();
+                case TRUE -> true;
+                case FALSE -> false;
+                case STRING_LIST -> {
+                    var list = new String[readInt()];
+                    for (int i = 0; i < list.length; i++) {
+                        list[i] = readString();
+                    }
+
+                    yield List.of(list);
+                }
+                default -> throw new RuntimeException("AST data has an attribute of unknown type " + type);
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<String>[] newHierarchies(int length) {
+            return (List<String>[]) new List<?>[length];
+        }
+
+        /**
+         * The hierarchy of a node, shared with the previous nodes of the same kind if it is the same.
+         */
+        private List<String> readHierarchy(int kindIndex) {
+            var indexes = new int[readInt()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = readInt();
+            }
+
+            if (!Arrays.equals(indexes, hierarchyIndexes[kindIndex])) {
+                var hierarchy = new String[indexes.length];
+                for (int i = 0; i < indexes.length; i++) {
+                    hierarchy[i] = strings[indexes[i]];
+                }
+
+                hierarchyIndexes[kindIndex] = indexes;
+                hierarchies[kindIndex] = List.of(hierarchy);
+            }
+
+            return hierarchies[kindIndex];
+        }
+
+        private Kind getKind(int index) {
+            if (kinds[index] == null) {
+                kinds[index] = Kind.fromString(strings[index]);
+            }
+
+            return kinds[index];
+        }
+
+        private String readString() {
+            int index = readInt();
+            if (index >= strings.length) {
+                throw new RuntimeException("AST data refers to string " + index + " of " + strings.length);
+            }
+
+            return strings[index];
+        }
+
+        private int readMagic() {
+            int magic = 0;
+            for (int i = 0; i < 4; i++) {
+                magic = (magic << 8) | readByte();
+            }
+
+            return magic;
+        }
+
+        private int readByte() {
+            return data[position++] & 0xFF;
+        }
+
+        private int readInt() {
+            int value = 0;
+
+            for (int shift = 0; ; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
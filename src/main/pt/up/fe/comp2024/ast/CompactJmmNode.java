@@ -0,0 +1,591 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An AST node that keeps its kind as a {@link Kind}, its children in an array, its start position packed in a single
+ * long and the attributes that the stages use in typed fields, instead of a map of strings.
+ * <p>
+ * It is still a {@link JmmNode}: the attributes can be read and written by name as with
+ * {@link pt.up.fe.comp.jmm.ast.JmmNodeImpl}, so existing visitors keep working. The positions 'lineStart' and
+ * 'colStart', the names 'name', 'value' and 'op', the modifiers 'isPublic', 'isStatic' and 'isVarArg' and the
+ * resolved 'type' and 'isArray' map to the typed fields, and any other attribute is kept in a small array. Hot passes
+ * can use the typed getters and setters instead, which neither parse nor allocate strings.
+ */
+public final class CompactJmmNode implements JmmNode {
+
+    private static final String LINE_START = NodePosition.LINE_START.getKey();
+    private static final String COL_START = NodePosition.COL_START.getKey();
+
+    private static final JmmNode[] NO_CHILDREN = new JmmNode[0];
+    private static final Object[] NO_EXTRAS = new Object[0];
+
+    // A bit for each typed attribute that is set, and the value of the boolean ones
+    private static final int HAS_POSITION = 1;
+    private static final int HAS_PUBLIC = 1 << 1;
+    private static final int IS_PUBLIC = 1 << 2;
+    private static final int HAS_STATIC = 1 << 3;
+    private static final int IS_STATIC = 1 << 4;
+    private static final int HAS_VAR_ARG = 1 << 5;
+    private static final int IS_VAR_ARG = 1 << 6;
+    private static final int HAS_TYPE = 1 << 7;
+    private static final int HAS_IS_ARRAY = 1 << 8;
+
+    private final Kind kind;
+    private final Collection<String> hierarchy;
+
+    private JmmNode parent;
+    private JmmNode[] children;
+    private int numChildren;
+
+    private int flags;
+    private long position;
+    private String name;
+    private String value;
+    private String op;
+    private Type type;
+    private Symbol symbol;
+
+    // Other attributes, as alternating names and values
+    private Object[] extras;
+
+    public CompactJmmNode(Kind kind, Collection<String> hierarchy) {
+        this.kind = kind;
+        this.hierarchy = hierarchy;
+        this.children = NO_CHILDREN;
+        this.extras = NO_EXTRAS;
+    }
+
+    /**
+     * The kind of the node, without going through its name.
+     *
+     * @return
+     */
+    public Kind getNodeKind() {
+        return kind;
+    }
+
+    public boolean hasPosition() {
+        return (flags & HAS_POSITION) != 0;
+    }
+
+    public int getLine() {
+        return (int) (position >>> 32);
+    }
+
+    public int getColumn() {
+        return (int) position;
+    }
+
+    public void setPosition(int line, int column) {
+        position = ((long) line << 32) | (column & 0xFFFFFFFFL);
+        flags |= HAS_POSITION;
+    }
+
+    /**
+     * The name of a declaration, type or call, or null if it has none.
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The text of a literal, identifier or 'this', or null if it has none.
+     *
+     * @return
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    /**
+     * The operator of a unary or binary operation, or null if it has none.
+     *
+     * @return
+     */
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public boolean isPublic() {
+        return (flags & IS_PUBLIC) != 0;
+    }
+
+    public void setPublic(boolean isPublic) {
+        setFlag(HAS_PUBLIC, IS_PUBLIC, isPublic);
+    }
+
+    public boolean isStatic() {
+        return (flags & IS_STATIC) != 0;
+    }
+
+    public void setStatic(boolean isStatic) {
+        setFlag(HAS_STATIC, IS_STATIC, isStatic);
+    }
+
+    public boolean isVarArg() {
+        return (flags & IS_VAR_ARG) != 0;
+    }
+
+    public void setVarArg(boolean isVarArg) {
+        setFlag(HAS_VAR_ARG, IS_VAR_ARG, isVarArg);
+    }
+
+    private void setFlag(int has, int is, boolean value) {
+        flags = value ? flags | has | is : (flags | has) & ~is;
+    }
+
+    /**
+     * The type resolved by the semantic analysis, as the instance shared within the compilation by
+     * {@link pt.up.fe.comp2024.symboltable.JmmSymbolTable#getType}, or null if it has not been given both its name and
+     * whether it is an array.
+     *
+     * @return
+     */
+    public Type getType() {
+        return (flags & (HAS_TYPE | HAS_IS_ARRAY)) == (HAS_TYPE | HAS_IS_ARRAY) ? type : null;
+    }
+
+    public void setType(Type type) {
+        this.type = TypeUtils.getType(type);
+        flags |= HAS_TYPE | HAS_IS_ARRAY;
+    }
+
+    /**
+     * The declaration an identifier refers to, or null if it was not resolved. It is not one of the attributes of the
+     * node, so it does not change how the AST is printed.
+     *
+     * @return
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
+
+    @Override
+    public String getKind() {
+        return kind.getNodeName();
+    }
+
+    @Override
+    public Collection<String> getHierarchy() {
+        return hierarchy;
+    }
+
+    @Override
+    public Collection<String> getAttributes() {
+        // A hash set iterates in the same order as the attribute map of JmmNodeImpl
+        Set<String> attributes = new HashSet<>();
+
+        if ((flags & HAS_POSITION) != 0) {
+            attributes.add(LINE_START);
+            attributes.add(COL_START);
+        }
+        addIf(attributes, "name", name != null);
+        addIf(attributes, "value", value != null);
+        addIf(attributes, "op", op != null);
+        addIf(attributes, "isPublic", (flags & HAS_PUBLIC) != 0);
+        addIf(attributes, "isStatic", (flags & HAS_STATIC) != 0);
+        addIf(attributes, "isVarArg", (flags & HAS_VAR_ARG) != 0);
+        addIf(attributes, "type", (flags & HAS_TYPE) != 0);
+        addIf(attributes, "isArray", (flags & HAS_IS_ARRAY) != 0);
+
+        for (int i = 0; i < extras.length; i += 2) {
+            attributes.add((String) extras[i]);
+        }
+
+        return attributes;
+    }
+
+    private static void addIf(Set<String> attributes, String attribute, boolean present) {
+        if (present) {
+            attributes.add(attribute);
+        }
+    }
+
+    @Override
+    public boolean hasAttribute(String attribute) {
+        return getTyped(attribute) != null || indexOfExtra(attribute) >= 0;
+    }
+
+    @Override
+    public Object getObject(String attribute) {
+        var typed = getTyped(attribute);
+        if (typed != null) {
+            return typed;
+        }
+
+        int index = indexOfExtra(attribute);
+        SpecsCheck.checkArgument(index >= 0, () -> "Node " + getKind() + " does not contain attribute '" + attribute + "'");
+
+        return extras[index + 1];
+    }
+
+    /**
+     * The value of an attribute kept in a typed field, or null if it is not one of them or is not set.
+     */
+    private Object getTyped(String attribute) {
+        return switch (attribute) {
+            case "lineStart" -> (flags & HAS_POSITION) != 0 ? Integer.toString(getLine()) : null;
+            case "colStart" -> (flags & HAS_POSITION) != 0 ? Integer.toString(getColumn()) : null;
+            case "name" -> name;
+            case "value" -> value;
+            case "op" -> op;
+            case "isPublic" -> (flags & HAS_PUBLIC) != 0 ? isPublic() : null;
+            case "isStatic" -> (flags & HAS_STATIC) != 0 ? isStatic() : null;
+            case "isVarArg" -> (flags & HAS_VAR_ARG) != 0 ? isVarArg() : null;
+            case "type" -> (flags & HAS_TYPE) != 0 ? type.getName() : null;
+            case "isArray" -> (flags & HAS_IS_ARRAY) != 0 ? Boolean.toString(type.isArray()) : null;
+            default -> null;
+        };
+    }
+
+    @Override
+    public Object putObject(String attribute, Object newValue) {
+        var previous = hasAttribute(attribute) ? getObject(attribute) : null;
+
+        if (!putTyped(attribute, newValue)) {
+            putExtra(attribute, newValue);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Stores the attribute in its typed field.
+     *
+     * @return false if the attribute has no typed field, or the value does not have the type of the field
+     */
+    private boolean putTyped(String attribute, Object newValue) {
+        switch (attribute) {
+            case "lineStart", "colStart" -> {
+                if (!(newValue instanceof String text)) {
+                    return false;
+                }
+
+                int number = Integer.parseInt(text);
+                boolean isLine = attribute.equals(LINE_START);
+                setPosition(isLine ? number : getLine(), isLine ? getColumn() : number);
+            }
+            case "name", "value", "op" -> {
+                if (!(newValue instanceof String text)) {
+                    return false;
+                }
+
+                switch (attribute) {
+                    case "name" -> name = text;
+                    case "value" -> value = text;
+                    default -> op = text;
+                }
+            }
+            case "isPublic", "isStatic", "isVarArg" -> {
+                if (!(newValue instanceof Boolean bool)) {
+                    return false;
+                }
+
+                switch (attribute) {
+                    case "isPublic" -> setPublic(bool);
+                    case "isStatic" -> setStatic(bool);
+                    default -> setVarArg(bool);
+                }
+            }
+            case "type" -> {
+                if (!(newValue instanceof String text)) {
+                    return false;
+                }
+
+                type = TypeUtils.getType(text, type != null && type.isArray());
+                flags |= HAS_TYPE;
+            }
+            case "isArray" -> {
+                if (!(newValue instanceof String text)) {
+                    return false;
+                }
+
+                type = TypeUtils.getType(type != null ? type.getName() : null, Boolean.parseBoolean(text));
+                flags |= HAS_IS_ARRAY;
+            }
+            default -> {
+                return false;
+            }
+        }
+
+        // A value of another type may have been kept as an extra before
+        removeExtra(attribute);
+        return true;
+    }
+
+    private int indexOfExtra(String attribute) {
+        for (int i = 0; i < extras.length; i += 2) {
+            if (extras[i].equals(attribute)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void putExtra(String attribute, Object newValue) {
+        int index = indexOfExtra(attribute);
+
+        if (index < 0) {
+            index = extras.length;
+            extras = Arrays.copyOf(extras, extras.length + 2);
+            extras[index] = attribute;
+        }
+
+        extras[index + 1] = newValue;
+        clearTyped(attribute);
+    }
+
+    /**
+     * Unsets the typed field of an attribute whose value is now kept as an extra.
+     */
+    private void clearTyped(String attribute) {
+        switch (attribute) {
+            case "lineStart", "colStart" -> flags &= ~HAS_POSITION;
+            case "name" -> name = null;
+            case "value" -> value = null;
+            case "op" -> op = null;
+            case "isPublic" -> flags &= ~(HAS_PUBLIC | IS_PUBLIC);
+            case "isStatic" -> flags &= ~(HAS_STATIC | IS_STATIC);
+            case "isVarArg" -> flags &= ~(HAS_VAR_ARG | IS_VAR_ARG);
+            case "type" -> flags &= ~HAS_TYPE;
+            case "isArray" -> flags &= ~HAS_IS_ARRAY;
+            default -> {
+            }
+        }
+    }
+
+    private void removeExtra(String attribute) {
+        int index = indexOfExtra(attribute);
+        if (index < 0) {
+            return;
+        }
+
+        var remaining = new Object[extras.length - 2];
+        System.arraycopy(extras, 0, remaining, 0, index);
+        System.arraycopy(extras, index + 2, remaining, index, extras.length - index - 2);
+        extras = remaining;
+    }
+
+    @Override
+    public JmmNode getParent() {
+        return parent;
+    }
+
+    @Override
+    @Deprecated
+    public JmmNode getJmmParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(JmmNode parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public void removeParent() {
+        this.parent = null;
+    }
+
+    @Override
+    public List<JmmNode> getChildren() {
+        var list = new ArrayList<JmmNode>(numChildren);
+        for (int i = 0; i < numChildren; i++) {
+            list.add(children[i]);
+        }
+
+        return list;
+    }
+
+    @Override
+    public int getNumChildren() {
+        return numChildren;
+    }
+
+    @Override
+    public JmmNode getJmmChild(int index) {
+        return getChild(index);
+    }
+
+    @Override
+    public JmmNode getChild(int index) {
+        if (index >= numChildren) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + numChildren + " children");
+        }
+
+        return children[index];
+    }
+
+    @Override
+    public void add(JmmNode child, int index) {
+        if (index > numChildren) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + numChildren + " children");
+        }
+
+        if (numChildren == children.length) {
+            children = Arrays.copyOf(children, Math.max(2, numChildren * 2));
+        }
+
+        System.arraycopy(children, index, children, index + 1, numChildren - index);
+        children[index] = child;
+        numChildren++;
+        child.setParent(this);
+    }
+
+    @Override
+    public void setChild(JmmNode newNode, int index) {
+        var currentChild = getChild(index);
+
+        // As in JmmNodeImpl, a node that already has a parent swaps places with the current child
+        var newNodeParent = newNode.getParent();
+        if (newNodeParent instanceof JmmNodeImpl && !(currentChild instanceof JmmNodeImpl)) {
+            throw new RuntimeException("Cannot swap a " + newNode.getKind() + " node with a " + currentChild.getKind()
+                    + " node, since its parent is a JmmNodeImpl, which only accepts children of its class");
+        }
+
+        int newNodeIndex = newNodeParent != null ? newNode.getIndexOfSelf() : -1;
+        if (newNodeParent != null) {
+            newNode.removeParent();
+        }
+
+        children[index] = newNode;
+        newNode.setParent(this);
+        currentChild.removeParent();
+
+        if (newNodeParent instanceof CompactJmmNode compactParent) {
+            compactParent.children[newNodeIndex] = currentChild;
+            currentChild.setParent(compactParent);
+        } else if (newNodeParent != null) {
+            newNodeParent.removeChild(newNodeIndex);
+            newNodeParent.add(currentChild, newNodeIndex);
+            newNode.setParent(this);
+        }
+    }
+
+    @Override
+    public JmmNode removeJmmChild(int index) {
+        if (index >= numChildren) {
+            System.out.println("[WARNING] Tried to remove child at index " + index + ", but node only has "
+                    + numChildren + " children");
+            return null;
+        }
+
+        var removed = children[index];
+        System.arraycopy(children, index + 1, children, index, numChildren - index - 1);
+        children[--numChildren] = null;
+        removed.removeParent();
+
+        return removed;
+    }
+
+    @Override
+    @Deprecated
+    public int removeJmmChild(JmmNode node) {
+        for (int i = 0; i < numChildren; i++) {
+            if (children[i] == node) {
+                removeJmmChild(i);
+                return i;
+            }
+        }
+
+        System.out.println("[WARNING] Tried to remove child from node, but could not find it.\nChild:" + node
+                + "\nParent:" + this);
+        return -1;
+    }
+
+    @Override
+    public JmmNode detach() {
+        if (parent == null) {
+            System.out.println("[WARNING] Tried to remove itself from the tree, but node has no parent");
+            return this;
+        }
+
+        parent.removeChild(this);
+
+        return this;
+    }
+
+    @Override
+    public int getIndexOfSelf() {
+        if (parent == null) {
+            return -1;
+        }
+
+        for (int i = 0; i < parent.getNumChildren(); i++) {
+            if (parent.getJmmChild(i) == this) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public JmmNode copyNode() {
+        var copy = new CompactJmmNode(kind, hierarchy);
+        copy.flags = flags;
+        copy.position = position;
+        copy.name = name;
+        copy.value = value;
+        copy.op = op;
+        copy.type = type;
+        copy.symbol = symbol;
+        copy.extras = extras.clone();
+
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        // The same format as JmmNodeImpl, without the positions
+        var string = new StringBuilder(getKind());
+        var separator = " (";
+
+        for (var attribute : getAttributes()) {
+            if (attribute.equals(LINE_START) || attribute.equals(COL_START)) {
+                continue;
+            }
+
+            string.append(separator).append(attribute).append(": ").append(get(attribute));
+            separator = ", ";
+        }
+
+        if (!separator.equals(" (")) {
+            string.append(")");
+        }
+
+        return string.toString();
+    }
+}
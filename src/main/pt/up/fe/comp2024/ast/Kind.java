@@ -4,7 +4,9 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public enum Kind {
     PROGRAM,
@@ -44,6 +46,9 @@ public enum Kind {
     private static final Set<Kind> STATEMENTS = Set.of(RETURN, EXPR_STMT, IF_STMT, WHILE_STMT, ASSIGN_STMT);
     private static final Set<Kind> EXPRESSIONS = Set.of(METHOD_CALL, UNARY_OP, IDENTIFIER, INTEGER_LITERAL, BOOLEAN_LITERAL);
 
+    private static final Map<String, Kind> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toMap(Kind::getNodeName, kind -> kind));
+
     private final String name;
 
     private Kind(String name) {
@@ -55,12 +60,22 @@ public enum Kind {
     }
 
     public static Kind fromString(String kind) {
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        var k = BY_NAME.get(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+
+        return k;
+    }
+
+    /**
+     * The kind of the given node, read directly from {@link CompactJmmNode}s.
+     *
+     * @param node
+     * @return
+     */
+    public static Kind of(JmmNode node) {
+        return node instanceof CompactJmmNode compact ? compact.getNodeKind() : fromString(node.getKind());
     }
 
     public String getNodeName() {
@@ -93,6 +108,10 @@ public enum Kind {
      * @return
      */
     public boolean check(JmmNode node) {
+        if (node instanceof CompactJmmNode compact) {
+            return compact.getNodeKind() == this;
+        }
+
         return node.getKind().equals(getNodeName());
     }
 
@@ -0,0 +1,98 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.AllNodesJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * A visitor that only visits the given node, as {@link pt.up.fe.comp.jmm.ast.AJmmVisitor}, but finds the visit of a
+ * node through its {@link Kind} instead of looking up its kind and hierarchy by name each time.
+ * <p>
+ * The visits are still added by name, so they can also be given for a rule of the hierarchy, such as 'Expr'. The
+ * visit of each kind is resolved the first time a {@link CompactJmmNode} of that kind is visited, and kept in a table
+ * indexed by the ordinal of the kind. Other nodes, whose hierarchy may not follow from their kind, are looked up by
+ * name.
+ */
+public abstract class KindVisitor<D, R> extends AllNodesJmmVisitor<D, R> {
+
+    private static final int NUM_KINDS = Kind.values().length;
+
+    // Not initialized here, since buildVisitor runs in the constructor of the superclass, before the initializers
+    private Map<String, BiFunction<JmmNode, D, R>> visits;
+    private BiFunction<JmmNode, D, R> defaultVisit;
+    private BiFunction<JmmNode, D, R>[] visitsByKind;
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        if (visits == null) {
+            visits = new HashMap<>();
+        }
+
+        visits.put(kind, method);
+        visitsByKind = null;
+    }
+
+    @Override
+    public void setDefaultVisit(BiFunction<JmmNode, D, R> defaultVisit) {
+        this.defaultVisit = defaultVisit;
+        visitsByKind = null;
+    }
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        if (!(node instanceof CompactJmmNode compact)) {
+            return findVisit(node);
+        }
+
+        if (visitsByKind == null) {
+            visitsByKind = newVisits(NUM_KINDS);
+        }
+
+        int index = compact.getNodeKind().ordinal();
+        var visit = visitsByKind[index];
+
+        if (visit == null) {
+            visit = findVisit(node);
+            visitsByKind[index] = visit;
+        }
+
+        return visit;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <D, R> BiFunction<JmmNode, D, R>[] newVisits(int length) {
+        return (BiFunction<JmmNode, D, R>[]) new BiFunction<?, ?, ?>[length];
+    }
+
+    /**
+     * The visit of the first kind of the hierarchy of the node that has one, or the default visit.
+     */
+    private BiFunction<JmmNode, D, R> findVisit(JmmNode node) {
+        if (visits != null) {
+            for (var kind : node.getHierarchy()) {
+                var visit = visits.get(kind);
+
+                if (visit != null) {
+                    return visit;
+                }
+            }
+        }
+
+        SpecsCheck.checkNotNull(defaultVisit,
+                () -> "Could not find a suitable visit method for node of kind " + node.getKind()
+                        + ", and no default visitor is set");
+
+        return defaultVisit;
+    }
+
+    @Override
+    public R visit(JmmNode node, D data) {
+        SpecsCheck.checkNotNull(node, () -> "Node should not be null");
+
+        return getVisit(node).apply(node, data);
+    }
+}
@@ -0,0 +1,116 @@
+package pt.up.fe.comp2024.ast;
+
+/**
+ * Interns the names and literals that the parsers store as node attributes, for a single compilation.
+ * <p>
+ * Each distinct text is kept as a single String, so the AST holds one copy of each identifier no matter how often it
+ * is used, and names of the same compilation can be compared by identity, which {@link String#equals(Object)} checks
+ * first. Text can be looked up directly from the source, without creating a String unless it is new.
+ * <p>
+ * The table is shared by the threads that parse the methods of a class in parallel, so all its methods are
+ * synchronized.
+ */
+public final class NameTable {
+
+    // Open addressing with linear probing, the length is always a power of two
+    private String[] names;
+    private int size;
+
+    public NameTable() {
+        this.names = new String[256];
+        this.size = 0;
+    }
+
+    /**
+     * Number of distinct names in the table.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * The single instance of the given text.
+     *
+     * @param text
+     * @return
+     */
+    public String intern(String text) {
+        return intern(text, 0, text.length());
+    }
+
+    /**
+     * The single instance of the text of the given source, from start, inclusive, to end, exclusive.
+     *
+     * @param source
+     * @param start
+     * @param end
+     * @return
+     */
+    public synchronized String intern(CharSequence source, int start, int end) {
+        int mask = names.length - 1;
+
+        // The same hash as String, so that growing the table can use the cached hash of the names
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            var name = names[slot];
+
+            if (name == null) {
+                name = source.subSequence(start, end).toString();
+                names[slot] = name;
+
+                if (++size * 2 > names.length) {
+                    grow();
+                }
+
+                return name;
+            }
+
+            if (matches(name, source, start, end)) {
+                return name;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, CharSequence source, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void grow() {
+        var grown = new String[names.length * 2];
+        int mask = grown.length - 1;
+
+        for (var name : names) {
+            if (name == null) {
+                continue;
+            }
+
+            int slot = spread(name.hashCode()) & mask;
+            while (grown[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = name;
+        }
+
+        names = grown;
+    }
+}
@@ -0,0 +1,48 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+/**
+ * A {@link KindVisitor} that visits the whole tree bottom-up (first the children, then the current node), as
+ * {@link pt.up.fe.comp.jmm.ast.PostorderJmmVisitor}.
+ * <p>
+ * The tree is traversed with an explicit stack instead of recursion, so it can be as deep as the memory allows. The
+ * children of a node are the ones it has before they are visited, as in the recursive traversal, so a node can replace
+ * itself in its parent when visited.
+ */
+public abstract class PostorderKindVisitor<D, R> extends KindVisitor<D, R> {
+
+    @Override
+    public R visit(JmmNode node, D data) {
+        SpecsCheck.checkNotNull(node, () -> "Node should not be null");
+
+        var reduce = getReduce();
+        var stack = new TraversalStack<R>(node);
+
+        while (true) {
+            var current = stack.peek();
+
+            if (!stack.isExpanded()) {
+                stack.expand();
+                continue;
+            }
+
+            int numChildren = stack.pop();
+            var result = getVisit(current).apply(current, data);
+
+            // Without a reduce function, the results of the children are not kept
+            if (reduce != null) {
+                result = reduce.apply(result, stack.popResults(numChildren));
+            }
+
+            if (stack.isEmpty()) {
+                return result;
+            }
+
+            if (reduce != null) {
+                stack.pushResult(result);
+            }
+        }
+    }
+}
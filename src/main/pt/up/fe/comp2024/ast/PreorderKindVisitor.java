@@ -0,0 +1,56 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+/**
+ * A {@link KindVisitor} that visits the whole tree top-down (first the current node, then its children), as
+ * {@link pt.up.fe.comp.jmm.ast.PreorderJmmVisitor}.
+ * <p>
+ * The tree is traversed with an explicit stack instead of recursion, so it can be as deep as the memory allows. The
+ * children of a node are the ones it has after its visit, as in the recursive traversal.
+ */
+public abstract class PreorderKindVisitor<D, R> extends KindVisitor<D, R> {
+
+    @Override
+    public R visit(JmmNode node, D data) {
+        SpecsCheck.checkNotNull(node, () -> "Node should not be null");
+
+        var reduce = getReduce();
+        var stack = new TraversalStack<R>(node);
+
+        // Without a reduce function, the results of the children are not kept, nor is a node after its visit
+        if (reduce == null) {
+            var root = stack.peek();
+            var rootResult = getVisit(root).apply(root, data);
+            stack.replaceByChildren();
+
+            while (!stack.isEmpty()) {
+                var current = stack.peek();
+                getVisit(current).apply(current, data);
+                stack.replaceByChildren();
+            }
+
+            return rootResult;
+        }
+
+        while (true) {
+            var current = stack.peek();
+
+            if (!stack.isExpanded()) {
+                stack.setNodeResult(getVisit(current).apply(current, data));
+                stack.expand();
+                continue;
+            }
+
+            int numChildren = stack.pop();
+            var result = reduce.apply(stack.getPoppedNodeResult(), stack.popResults(numChildren));
+
+            if (stack.isEmpty()) {
+                return result;
+            }
+
+            stack.pushResult(result);
+        }
+    }
+}
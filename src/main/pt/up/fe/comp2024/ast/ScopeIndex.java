@@ -0,0 +1,252 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The enclosing method, innermost loop and innermost conditional of the nodes of an AST, and the variables assigned
+ * inside each loop and conditional, indexed in a single traversal.
+ * <p>
+ * This answers the questions that would otherwise walk the tree for each node, such as
+ * {@code node.getAncestor(IF_STMT)} or {@code ifStmt.getDescendants(ASSIGN_STMT)}, in constant time.
+ * <p>
+ * The scope of each node is kept together with the parent it had when it was indexed, so the index stays valid when
+ * nodes are replaced or added, as the AST optimizers do: a node whose parent changed, or that was not indexed, has its
+ * scope found again from its closest indexed ancestor. The descendants of a node that was moved keep their previous
+ * parents, so a subtree that moves to another scope must be indexed again with {@link #index(JmmNode)}. The assigned
+ * variables are only indexed once, so they do not include assignments added afterwards.
+ */
+public final class ScopeIndex {
+
+    /**
+     * The scope of a node: the method, 'WhileStmt' and 'IfStmt' closest to it, and whether it is part of the condition
+     * of that 'IfStmt'. Nodes with the same scope share the same instance.
+     */
+    private record Scope(JmmNode method, JmmNode loop, JmmNode conditional, boolean inCondition) {
+    }
+
+    private record Entry(JmmNode parent, Scope scope) {
+    }
+
+    private static final Scope NO_SCOPE = new Scope(null, null, null, false);
+
+    private final Map<JmmNode, Entry> entries;
+    private final Map<JmmNode, Set<String>> assigned;
+
+    /**
+     * Creates an empty index, which finds the scope of each node the first time it is asked for.
+     */
+    public ScopeIndex() {
+        this.entries = new IdentityHashMap<>();
+        this.assigned = new IdentityHashMap<>();
+    }
+
+    /**
+     * Creates an index of all the nodes of the given tree.
+     *
+     * @param root
+     */
+    public ScopeIndex(JmmNode root) {
+        this();
+        index(root);
+    }
+
+    /**
+     * Indexes all the nodes of the given tree, replacing what was known about them.
+     *
+     * @param root
+     */
+    public void index(JmmNode root) {
+        var nodes = new ArrayDeque<JmmNode>();
+        var scopes = new ArrayDeque<Scope>();
+
+        nodes.push(root);
+        scopes.push(findScope(root));
+
+        while (!nodes.isEmpty()) {
+            var node = nodes.pop();
+            var scope = scopes.pop();
+
+            entries.put(node, new Entry(node.getParent(), scope));
+
+            if (Kind.check(node, Kind.WHILE_STMT, Kind.IF_STMT)) {
+                assigned.put(node, new HashSet<>());
+            } else if (Kind.ASSIGN_STMT.check(node)) {
+                addAssignment(node);
+            }
+
+            int numChildren = node.getNumChildren();
+            if (numChildren == 0) {
+                continue;
+            }
+
+            // All the children share the scope of the node, except the condition of an 'IfStmt'
+            var childScope = enter(scope, node, false);
+            var conditionScope = Kind.IF_STMT.check(node) ? enter(scope, node, true) : childScope;
+
+            for (int i = numChildren - 1; i >= 0; i--) {
+                nodes.push(node.getJmmChild(i));
+                scopes.push(i == 0 ? conditionScope : childScope);
+            }
+        }
+    }
+
+    /**
+     * The method declaration that contains the node, or null if it is not inside one.
+     *
+     * @param node
+     * @return
+     */
+    public JmmNode getMethod(JmmNode node) {
+        return getScope(node).method();
+    }
+
+    /**
+     * The name of the method that contains the node.
+     *
+     * @param node
+     * @return
+     */
+    public String getMethodName(JmmNode node) {
+        var method = getMethod(node);
+        if (method == null) {
+            throw new RuntimeException("Node '" + node + "' is not inside a method");
+        }
+
+        return method.get("name");
+    }
+
+    /**
+     * The innermost 'WhileStmt' that contains the node, or null if it is not inside one.
+     *
+     * @param node
+     * @return
+     */
+    public JmmNode getLoop(JmmNode node) {
+        return getScope(node).loop();
+    }
+
+    /**
+     * The innermost 'IfStmt' that contains the node, or null if it is not inside one.
+     *
+     * @param node
+     * @return
+     */
+    public JmmNode getConditional(JmmNode node) {
+        return getScope(node).conditional();
+    }
+
+    /**
+     * @param node
+     * @return true if the node is part of the condition of its innermost 'IfStmt'
+     */
+    public boolean isInCondition(JmmNode node) {
+        return getScope(node).inCondition();
+    }
+
+    /**
+     * The names of the variables assigned by the 'AssignStmt's inside the given loop or conditional.
+     *
+     * @param node
+     * @return
+     */
+    public Set<String> getAssignedVariables(JmmNode node) {
+        var names = assigned.get(node);
+        if (names != null) {
+            return names;
+        }
+
+        // Not indexed, found from the assignments inside it
+        names = node.getDescendants(Kind.ASSIGN_STMT).stream()
+                .map(assignment -> assignment.get("name"))
+                .collect(Collectors.toSet());
+        assigned.put(node, names);
+
+        return names;
+    }
+
+    private Scope getScope(JmmNode node) {
+        var entry = entries.get(node);
+        if (entry != null && entry.parent() == node.getParent()) {
+            return entry.scope();
+        }
+
+        var scope = findScope(node);
+        entries.put(node, new Entry(node.getParent(), scope));
+
+        return scope;
+    }
+
+    /**
+     * Finds the scope of a node that was not indexed, or was moved, from its closest indexed ancestor.
+     */
+    private Scope findScope(JmmNode node) {
+        // Iterative, since the ancestors may not be indexed either, as in a tree that was never indexed
+        var path = new ArrayList<JmmNode>();
+        var current = node;
+        var scope = NO_SCOPE;
+
+        while (current.getParent() != null) {
+            var parentEntry = entries.get(current.getParent());
+            path.add(current);
+            current = current.getParent();
+
+            if (parentEntry != null && parentEntry.parent() == current.getParent()) {
+                scope = parentEntry.scope();
+                break;
+            }
+        }
+
+        // From the outermost ancestor down to the node
+        for (int i = path.size() - 1; i >= 0; i--) {
+            var child = path.get(i);
+            var parent = child.getParent();
+
+            scope = enter(scope, parent, Kind.IF_STMT.check(parent) && parent.getJmmChild(0) == child);
+
+            if (i > 0) {
+                entries.put(child, new Entry(parent, scope));
+            }
+        }
+
+        return scope;
+    }
+
+    /**
+     * The scope of the children of the given node, which is in the given scope.
+     */
+    private static Scope enter(Scope scope, JmmNode node, boolean isCondition) {
+        if (Kind.check(node, Kind.METHOD_DECLARATION, Kind.MAIN_METHOD_DECLARATION)) {
+            return new Scope(node, null, null, false);
+        }
+
+        if (Kind.WHILE_STMT.check(node)) {
+            return new Scope(scope.method(), node, scope.conditional(), scope.inCondition());
+        }
+
+        if (Kind.IF_STMT.check(node)) {
+            return new Scope(scope.method(), scope.loop(), node, isCondition);
+        }
+
+        return scope;
+    }
+
+    private void addAssignment(JmmNode assignment) {
+        var name = assignment.get("name");
+
+        // The loops and conditionals are indexed before the nodes inside them
+        for (var ancestor = assignment.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            var names = assigned.get(ancestor);
+            if (names != null) {
+                names.add(name);
+            }
+        }
+    }
+}
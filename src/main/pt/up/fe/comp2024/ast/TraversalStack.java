@@ -0,0 +1,141 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The explicit stack of a traversal of the tree, used instead of recursion so that the depth of the tree is not
+ * limited by the size of the call stack.
+ * <p>
+ * A node is pushed before its children are known. Expanding it pushes its children in reverse order, so the first is
+ * on the top, and remembers how many they were. The children are the ones the node has when it is expanded, as the
+ * list returned by {@link JmmNode#getChildren()} when visiting recursively, even if the visits change them afterwards.
+ * The results of the visits of the children can be kept in a second stack until the visit of their parent ends.
+ */
+final class TraversalStack<R> {
+
+    private static final int NOT_EXPANDED = -1;
+
+    private JmmNode[] nodes = new JmmNode[64];
+    private int[] numChildren = new int[64];
+    private Object[] nodeResults;
+    private int size = 0;
+
+    private final List<R> results = new ArrayList<>();
+
+    TraversalStack(JmmNode root) {
+        push(root);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    JmmNode peek() {
+        return nodes[size - 1];
+    }
+
+    /**
+     * @return true if the children of the node on the top were already pushed
+     */
+    boolean isExpanded() {
+        return numChildren[size - 1] != NOT_EXPANDED;
+    }
+
+    /**
+     * Pushes the children of the node on the top, which stays below them.
+     */
+    void expand() {
+        var node = nodes[size - 1];
+        int count = node.getNumChildren();
+        numChildren[size - 1] = count;
+
+        for (int i = count - 1; i >= 0; i--) {
+            push(node.getJmmChild(i));
+        }
+    }
+
+    /**
+     * Removes the node on the top, without expanding it, and pushes its children instead.
+     *
+     * @return the node removed
+     */
+    JmmNode replaceByChildren() {
+        var node = nodes[--size];
+        nodes[size] = null;
+
+        for (int i = node.getNumChildren() - 1; i >= 0; i--) {
+            push(node.getJmmChild(i));
+        }
+
+        return node;
+    }
+
+    /**
+     * Removes the node on the top.
+     *
+     * @return the number of children it had when expanded
+     */
+    int pop() {
+        nodes[--size] = null;
+        return numChildren[size];
+    }
+
+    /**
+     * Keeps the result of the visit of the node on the top until it is popped.
+     *
+     * @param result
+     */
+    void setNodeResult(R result) {
+        if (nodeResults == null || nodeResults.length < nodes.length) {
+            nodeResults = nodeResults == null ? new Object[nodes.length] : Arrays.copyOf(nodeResults, nodes.length);
+        }
+
+        nodeResults[size - 1] = result;
+    }
+
+    /**
+     * The result kept for the node that was on the top before the last {@link #pop()}.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    R getPoppedNodeResult() {
+        var result = (R) nodeResults[size];
+        nodeResults[size] = null;
+
+        return result;
+    }
+
+    void pushResult(R result) {
+        results.add(result);
+    }
+
+    /**
+     * Removes the last results pushed, in the order they were pushed.
+     *
+     * @param count
+     * @return
+     */
+    List<R> popResults(int count) {
+        var last = results.subList(results.size() - count, results.size());
+        var popped = new ArrayList<>(last);
+        last.clear();
+
+        return popped;
+    }
+
+    private void push(JmmNode node) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            numChildren = Arrays.copyOf(numChildren, size * 2);
+        }
+
+        nodes[size] = node;
+        numChildren[size] = NOT_EXPANDED;
+        size++;
+    }
+}
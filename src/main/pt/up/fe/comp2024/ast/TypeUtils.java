@@ -3,6 +3,7 @@ package pt.up.fe.comp2024.ast;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -11,6 +12,12 @@ public class TypeUtils {
     private static final String BOOLEAN_TYPE_NAME = "boolean";
     private static final String VOID_TYPE_NAME = "void";
 
+    // Built-in types are shared by all compilations, types of classes are shared within one by its symbol table
+    private static final Type INT_TYPE = new Type(INT_TYPE_NAME, false);
+    private static final Type INT_ARRAY_TYPE = new Type(INT_TYPE_NAME, true);
+    private static final Type BOOLEAN_TYPE = new Type(BOOLEAN_TYPE_NAME, false);
+    private static final Type VOID_TYPE = new Type(VOID_TYPE_NAME, false);
+
     public static String getIntTypeName() {
         return INT_TYPE_NAME;
     }
@@ -23,25 +30,76 @@ public class TypeUtils {
         return VOID_TYPE_NAME;
     }
 
+    /**
+     * The shared instance of a built-in type (int, int[], boolean or void), or null if the type is not one of them.
+     *
+     * @param name
+     * @param isArray
+     * @return
+     */
+    public static Type getBuiltInType(String name, boolean isArray) {
+        if (name == null) {
+            return null;
+        }
+
+        return switch (name) {
+            case INT_TYPE_NAME -> isArray ? INT_ARRAY_TYPE : INT_TYPE;
+            case BOOLEAN_TYPE_NAME -> isArray ? null : BOOLEAN_TYPE;
+            case VOID_TYPE_NAME -> isArray ? null : VOID_TYPE;
+            default -> null;
+        };
+    }
+
+    /**
+     * The type with the given name, and whether it is an array: the shared instance of a built-in type, or a new
+     * {@link Type} otherwise.
+     * <p>
+     * To share the types of classes within a compilation, use {@link JmmSymbolTable#getType} instead.
+     *
+     * @param name
+     * @param isArray
+     * @return
+     */
+    public static Type getType(String name, boolean isArray) {
+        var type = getBuiltInType(name, isArray);
+
+        // A type being annotated may not have a name yet
+        return type != null ? type : new Type(name, isArray);
+    }
+
+    /**
+     * The shared instance of the given type, if it is a built-in one, or the type itself otherwise.
+     *
+     * @param type
+     * @return
+     */
+    public static Type getType(Type type) {
+        var builtIn = getBuiltInType(type.getName(), type.isArray());
+        return builtIn != null ? builtIn : type;
+    }
+
     /**
      * Gets the {@link Type} of an arbitrary expression.
+     * <p>
+     * On the nodes annotated by {@link pt.up.fe.comp2024.analysis.ASTAnnotator}, this only reads the type kept in the
+     * node.
      *
      * @param expr
      * @param table
      * @return
      */
     public static Type getExprType(JmmNode expr, SymbolTable table) {
-        var kind = Kind.fromString(expr.getKind());
+        var kind = Kind.of(expr);
 
         Type type = switch (kind) {
             case METHOD_CALL -> getMethodCallType(expr);
             case BINARY_OP -> getBinExprType(expr);
             case IDENTIFIER, ASSIGN_STMT, ARRAY_ASSIGN_STMT -> getVarExprType(expr, table);
-            case INTEGER_LITERAL -> new Type(INT_TYPE_NAME, false);
-            case BOOLEAN_LITERAL -> new Type(BOOLEAN_TYPE_NAME, false);
+            case INTEGER_LITERAL -> INT_TYPE;
+            case BOOLEAN_LITERAL -> BOOLEAN_TYPE;
             case PAREN_EXPR -> getExprType(expr.getChildren().get(0), table);
             case OBJECT_DECLARATION, ARRAY_ACCESS_OP, ARRAY_EXPRESSION, ATTRIBUTE, UNARY_OP, ARRAY_DECLARATION ->
-                    new Type(expr.get("type"), expr.get("isArray").equals("true"));
+                    getAnnotatedType(expr);
             default -> throw new UnsupportedOperationException("Can't compute type for expression kind '" + kind + "'");
         };
 
@@ -50,18 +108,29 @@ public class TypeUtils {
 
     private static Type getMethodCallType(JmmNode methodCall) {
         if (methodCall.get("type").equals("void")) {
-            return new Type(VOID_TYPE_NAME, false);
+            return VOID_TYPE;
         }
 
-        return new Type(methodCall.get("type"), methodCall.get("isArray").equals("true"));
+        return getAnnotatedType(methodCall);
+    }
+
+    /**
+     * The type given to an expression by the semantic analysis, in its 'type' and 'isArray' attributes.
+     */
+    private static Type getAnnotatedType(JmmNode expr) {
+        if (expr instanceof CompactJmmNode compact && compact.getType() != null) {
+            return compact.getType();
+        }
+
+        return getType(expr.get("type"), expr.get("isArray").equals("true"));
     }
 
     private static Type getBinExprType(JmmNode binaryExpr) {
         String operator = binaryExpr.get("op");
 
         return switch (operator) {
-            case "*", "/", "+", "-" -> new Type(INT_TYPE_NAME, false);
-            case "<", "&&" -> new Type(BOOLEAN_TYPE_NAME, false);
+            case "*", "/", "+", "-" -> INT_TYPE;
+            case "<", "&&" -> BOOLEAN_TYPE;
 
             default ->
                     throw new RuntimeException("Unknown operator '" + operator + "' of expression '" + binaryExpr + "'");
@@ -69,6 +138,11 @@ public class TypeUtils {
     }
 
     private static Type getVarExprType(JmmNode varRefExpr, SymbolTable table) {
+        // The declaration found by the annotation
+        if (varRefExpr instanceof CompactJmmNode compact && compact.getSymbol() != null) {
+            return getType(compact.getSymbol().getType());
+        }
+
         String methodName;
 
         if (varRefExpr.getAncestor(METHOD_DECLARATION).isPresent()) {
@@ -84,30 +158,14 @@ public class TypeUtils {
             id = varRefExpr.get("name");
         } else id = varRefExpr.get("value");
 
-        var locals = table.getLocalVariables(methodName);
-        for (var local : locals) {
-            if (id.equals(local.getName())) {
-                return local.getType();
-            }
-        }
-
-        var params = table.getParameters(methodName);
-        for (var param : params) {
-            if (id.equals(param.getName())) {
-                return param.getType();
-            }
-        }
-
-        var fields = table.getFields();
-        for (var field : fields) {
-            if (id.equals(field.getName())) {
-                return field.getType();
-            }
+        var declaration = ((JmmSymbolTable) table).resolve(id, methodName);
+        if (declaration != null) {
+            return declaration.getType();
         }
 
         var isArray = varRefExpr.get("isArray").equals("true");
 
-        return new Type(VOID_TYPE_NAME, isArray);
+        return getType(VOID_TYPE_NAME, isArray);
     }
 
     /**
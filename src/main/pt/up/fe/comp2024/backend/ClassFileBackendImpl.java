@@ -0,0 +1,23 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
+
+/**
+ * Backend that writes class files directly from the OLLIR, as an alternative to generating and assembling Jasmin.
+ */
+public class ClassFileBackendImpl {
+
+    /**
+     * Generates the contents of the class file of the given OLLIR class.
+     *
+     * @param ollirResult
+     * @return
+     */
+    public byte[] toClassFile(OllirResult ollirResult) {
+
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.CLASS_FILE)) {
+            return new ClassFileGenerator(ollirResult).build();
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package pt.up.fe.comp2024.backend;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.tree.TreeNode;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.backend.CodeBuilder.Label;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the bytes of a class file directly from an OllirResult, without going through Jasmin.
+ * <p>
+ * Selects the same instructions as {@link JasminGenerator}, so both backends produce equivalent classes. The class
+ * file uses version 49 (Java 5), which does not require stack map frames.
+ * <p>
+ * One ClassFileGenerator instance per OllirResult.
+ */
+public class ClassFileGenerator {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_PROTECTED = 0x0004;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final OllirResult ollirResult;
+    List<Report> reports;
+    byte[] classBytes;
+    Method currentMethod;
+    Map<String, Label> currentLabels;
+
+    private final ConstantPool pool;
+    private final BiConsumerClassMap<TreeNode, CodeBuilder> generators;
+
+    public ClassFileGenerator(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+
+        reports = new ArrayList<>();
+        classBytes = null;
+        currentMethod = null;
+        pool = new ConstantPool();
+
+        this.generators = new BiConsumerClassMap<>();
+        generators.put(AssignInstruction.class, this::generateAssign);
+        generators.put(UnaryOpInstruction.class, this::generateUnaryOp);
+        generators.put(BinaryOpInstruction.class, this::generateBinaryOp);
+        generators.put(CallInstruction.class, this::generateCall);
+        generators.put(ReturnInstruction.class, this::generateReturn);
+        generators.put(GotoInstruction.class, this::generateGoto);
+        generators.put(GetFieldInstruction.class, this::generateGetField);
+        generators.put(PutFieldInstruction.class, this::generatePutField);
+        generators.put(SingleOpInstruction.class, this::generateSingleOp);
+        generators.put(OpCondInstruction.class, this::generateOpCond);
+        generators.put(SingleOpCondInstruction.class, this::generateSingleOpCond);
+
+        generators.put(LiteralElement.class, this::generateLiteral);
+        generators.put(Operand.class, this::generateOperand);
+        generators.put(ArrayOperand.class, this::generateArrayOperand);
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public byte[] build() {
+
+        // This way, build is idempotent
+        if (classBytes == null) {
+            try {
+                classBytes = generateClassUnit(ollirResult.getOllirClass());
+            } catch (IOException e) {
+                throw new RuntimeException("Could not write class " + ollirResult.getOllirClass().getClassName(), e);
+            }
+        }
+
+        return classBytes;
+    }
+
+    private byte[] generateClassUnit(ClassUnit classUnit) throws IOException {
+
+        // Members are written first, since they add the constants the header needs
+        var members = new ByteArrayOutputStream();
+        var out = new DataOutputStream(members);
+
+        int thisClass = pool.classRef(classUnit.getClassName());
+        int superClass = pool.classRef(getSuperClassName());
+
+        out.writeShort(0); // interfaces
+
+        out.writeShort(classUnit.getFields().size());
+        for (var field : classUnit.getFields()) {
+            out.writeShort(getAccessFlags(field.getFieldAccessModifier()));
+            out.writeShort(pool.utf8(field.getFieldName()));
+            out.writeShort(pool.utf8(getTypeDescriptor(field.getFieldType())));
+            out.writeShort(0); // attributes
+        }
+
+        // Ignore constructor, since there is always one constructor that receives no arguments
+        var methods = classUnit.getMethods().stream()
+                .filter(method -> !method.isConstructMethod() && !method.getMethodName().equals("<init>"))
+                .toList();
+
+        out.writeShort(methods.size() + 1);
+        generateDefaultConstructor(out);
+        for (var method : methods) {
+            generateMethod(method, out);
+        }
+
+        out.writeShort(0); // class attributes
+
+        var bytes = new ByteArrayOutputStream();
+        var classFile = new DataOutputStream(bytes);
+        classFile.writeInt(MAGIC);
+        classFile.writeShort(0);
+        classFile.writeShort(MAJOR_VERSION);
+        pool.writeTo(classFile);
+        // As assembled from the Jasmin backend, which declares the class without an access spec
+        classFile.writeShort(ACC_SUPER);
+        classFile.writeShort(thisClass);
+        classFile.writeShort(superClass);
+        members.writeTo(classFile);
+        classFile.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private void generateDefaultConstructor(DataOutputStream out) throws IOException {
+        var code = new CodeBuilder(pool);
+        code.aload(0);
+        code.invoke(CodeBuilder.INVOKESPECIAL, getSuperClassName(), "<init>", "()V");
+        code.op(CodeBuilder.RETURN, 0);
+
+        writeMethod(out, ACC_PUBLIC, "<init>", "()V", code, 1);
+    }
+
+    private void generateMethod(Method method, DataOutputStream out) throws IOException {
+
+        // set method
+        currentMethod = method;
+        currentLabels = new HashMap<>();
+
+        var code = new CodeBuilder(pool);
+        for (var inst : method.getInstructions()) {
+
+            var labels = method.getLabels(inst);
+            if (labels != null) {
+                for (var label : labels) {
+                    code.mark(getLabel(label));
+                }
+            }
+
+            generators.accept(inst, code);
+
+            if (inst instanceof CallInstruction call) {
+                if (call.getReturnType().getTypeOfElement() != ElementType.VOID) {
+                    code.op(CodeBuilder.POP, -1);
+                }
+            }
+        }
+
+        var access = getAccessFlags(method.getMethodAccessModifier()) | (method.isStaticMethod() ? ACC_STATIC : 0);
+
+        var descriptor = new StringBuilder("(");
+        for (Element param : method.getParams()) {
+            descriptor.append(getTypeDescriptor(param.getType()));
+        }
+        descriptor.append(")").append(getTypeDescriptor(method.getReturnType()));
+
+        writeMethod(out, access, method.getMethodName(), descriptor.toString(), code, getMaxLocals(method));
+
+        // unset method
+        currentMethod = null;
+        currentLabels = null;
+    }
+
+    private void writeMethod(DataOutputStream out, int access, String name, String descriptor, CodeBuilder code,
+                             int maxLocals) throws IOException {
+        var bytecode = code.toBytes();
+
+        out.writeShort(access);
+        out.writeShort(pool.utf8(name));
+        out.writeShort(pool.utf8(descriptor));
+        out.writeShort(1); // attributes
+
+        // Code attribute: max stack, max locals, code, no exception table and no attributes
+        out.writeShort(pool.utf8("Code"));
+        out.writeInt(2 + 2 + 4 + bytecode.length + 2 + 2);
+        out.writeShort(code.getMaxStack());
+        out.writeShort(maxLocals);
+        out.writeInt(bytecode.length);
+        out.write(bytecode);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private int getMaxLocals(Method method) {
+        // 'this' always takes the first register of instance methods
+        int locals = method.isStaticMethod() ? 0 : 1;
+
+        for (var variable : method.getVarTable().values()) {
+            locals = Math.max(locals, variable.getVirtualReg() + 1);
+        }
+
+        return locals;
+    }
+
+    private Label getLabel(String name) {
+        return currentLabels.computeIfAbsent(name, Label::new);
+    }
+
+    private void generateAssign(AssignInstruction assign, CodeBuilder code) {
+
+        // store value in the stack in destination
+        var lhs = (Operand) assign.getDest();
+        var rhs = assign.getRhs();
+
+        if (lhs instanceof ArrayOperand array) {
+            code.aload(getReg(array));
+            generators.accept(array.getIndexOperands().get(0), code);
+        }
+        if (rhs.getInstType() == InstructionType.BINARYOPER && isIincAssignment(assign)) {
+            generateIinc((BinaryOpInstruction) rhs, code);
+            return;
+        }
+
+        // generate code for loading what's on the right
+        generators.accept(rhs, code);
+
+        // get register
+        var reg = currentMethod.getVarTable().get(lhs.getName()).getVirtualReg();
+        if (lhs.getName().equals("this")) {
+            reg = 0;
+        }
+        switch (lhs.getType().getTypeOfElement()) {
+            case INT32, BOOLEAN -> {
+                if (currentMethod.getVarTable().get(lhs.getName()).getVarType().getTypeOfElement() == ElementType.ARRAYREF) {
+                    code.op(CodeBuilder.IASTORE, -3);
+                } else {
+                    code.istore(reg);
+                }
+            }
+            case ARRAYREF, OBJECTREF, THIS, STRING -> code.astore(reg);
+            default -> throw new NotImplementedException(lhs.getType().getTypeOfElement());
+        }
+    }
+
+    private void generateUnaryOp(UnaryOpInstruction unaryOp, CodeBuilder code) {
+
+        // load value
+        generators.accept(unaryOp.getOperand(), code);
+
+        // apply operation
+        if (unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            code.pushInt(1);
+        }
+        code.op(getOperation(unaryOp.getOperation()), unaryOp.getOperation().getOpType() == OperationType.NOTB ? -1 : 0);
+    }
+
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, CodeBuilder code) {
+
+        // load values on the left and on the right
+        generators.accept(binaryOp.getLeftOperand(), code);
+        generators.accept(binaryOp.getRightOperand(), code);
+
+        switch (binaryOp.getOperation().getOpType()) {
+            case LTH, LTE, GTH, GTE -> {
+                code.op(CodeBuilder.ISUB, -1);
+                buildJump(getConditionOperation(binaryOp), code);
+            }
+            default -> code.op(getOperation(binaryOp.getOperation()), -1);
+        }
+    }
+
+    private void generateCall(CallInstruction call, CodeBuilder code) {
+        switch (call.getInvocationType()) {
+            case invokespecial -> generateSpecialCall(call, code);
+            case invokestatic -> generateStaticCall(call, code);
+            case invokevirtual -> generateVirtualCall(call, code);
+            case NEW -> generateNewCall(call, code);
+            case arraylength -> {
+                generators.accept(call.getCaller(), code);
+                code.op(CodeBuilder.ARRAYLENGTH, 0);
+            }
+            case ldc -> generators.accept(call.getCaller(), code);
+            default -> throw new NotImplementedException(call.getInvocationType());
+        }
+    }
+
+    private void generateReturn(ReturnInstruction returnInst, CodeBuilder code) {
+
+        if (!returnInst.hasReturnValue()) {
+            code.op(CodeBuilder.RETURN, 0);
+            return;
+        }
+
+        generators.accept(returnInst.getOperand(), code);
+
+        var type = returnInst.getOperand().getType().getTypeOfElement();
+        code.op(type == ElementType.INT32 || type == ElementType.BOOLEAN ? CodeBuilder.IRETURN : CodeBuilder.ARETURN, -1);
+    }
+
+    private void generateGoto(GotoInstruction gotoInst, CodeBuilder code) {
+        code.jump(CodeBuilder.GOTO, getLabel(gotoInst.getLabel()));
+    }
+
+    private void generateGetField(GetFieldInstruction getField, CodeBuilder code) {
+
+        // get object
+        var object = getField.getObject();
+        generators.accept(object, code);
+
+        // get field
+        var field = getField.getField();
+        code.getField(getFullClassName(object.getName()), field.getName(), getTypeDescriptor(field.getType()));
+    }
+
+    private void generatePutField(PutFieldInstruction putField, CodeBuilder code) {
+
+        // get object and value
+        var object = putField.getObject();
+        generators.accept(object, code);
+        generators.accept(putField.getValue(), code);
+
+        // set field
+        var field = putField.getField();
+        code.putField(getFullClassName(object.getName()), field.getName(), getTypeDescriptor(field.getType()));
+    }
+
+    private void generateSingleOp(SingleOpInstruction singleOp, CodeBuilder code) {
+        generators.accept(singleOp.getSingleOperand(), code);
+    }
+
+    private void generateOpCond(OpCondInstruction opCond, CodeBuilder code) {
+
+        Instruction inst = opCond.getCondition();
+        int operation = getConditionOperation(inst);
+
+        if (inst instanceof BinaryOpInstruction binaryOp) {
+            if (operation == CodeBuilder.IFNE) {
+                generators.accept(binaryOp, code);
+            } else {
+                generators.accept(binaryOp.getLeftOperand(), code);
+                generators.accept(binaryOp.getRightOperand(), code);
+                code.op(CodeBuilder.ISUB, -1);
+            }
+        } else if (inst instanceof UnaryOpInstruction unaryOp) {
+            generators.accept(unaryOp.getOperand(), code);
+        } else {
+            throw new NotImplementedException(inst.getInstType());
+        }
+
+        code.jump(operation, getLabel(opCond.getLabel()));
+    }
+
+    private void generateSingleOpCond(SingleOpCondInstruction singleOpCond, CodeBuilder code) {
+
+        // UnaryOpInstruction or BinaryOpInstruction
+        generators.accept(singleOpCond.getCondition(), code);
+
+        code.jump(CodeBuilder.IFNE, getLabel(singleOpCond.getLabel()));
+    }
+
+    private void generateLiteral(LiteralElement literal, CodeBuilder code) {
+        ElementType type = literal.getType().getTypeOfElement();
+
+        if (type == ElementType.INT32 || type == ElementType.BOOLEAN) {
+            code.pushInt(Integer.parseInt(literal.getLiteral()));
+        } else {
+            code.pushString(literal.getLiteral().replace("\"", ""));
+        }
+    }
+
+    private void generateArrayOperand(ArrayOperand operand, CodeBuilder code) {
+        code.aload(getReg(operand));
+        generators.accept(operand.getIndexOperands().get(0), code);
+        code.op(CodeBuilder.IALOAD, -1);
+    }
+
+    private void generateOperand(Operand operand, CodeBuilder code) {
+        switch (operand.getType().getTypeOfElement()) {
+            case INT32, BOOLEAN -> code.iload(getReg(operand));
+            case STRING, ARRAYREF, OBJECTREF -> code.aload(getReg(operand));
+            case THIS -> code.aload(0);
+            default -> throw new NotImplementedException(operand.getType().getTypeOfElement());
+        }
+    }
+
+    private void generateSpecialCall(CallInstruction call, CodeBuilder code) {
+
+        var caller = (Operand) call.getCaller();
+        var className = caller.getType().getTypeOfElement() == ElementType.THIS
+                ? getSuperClassName()
+                : getFullClassName(((ClassType) caller.getType()).getName());
+
+        // load caller and arguments
+        generators.accept(caller, code);
+        for (var arg : call.getArguments()) {
+            generators.accept(arg, code);
+        }
+
+        code.invoke(CodeBuilder.INVOKESPECIAL, className, getMethodName(call), getCallDescriptor(call));
+    }
+
+    private void generateStaticCall(CallInstruction call, CodeBuilder code) {
+
+        var caller = (Operand) call.getCaller();
+        var className = getFullClassName(caller.getName());
+
+        // arguments
+        for (var arg : call.getArguments()) {
+            generators.accept(arg, code);
+        }
+
+        code.invoke(CodeBuilder.INVOKESTATIC, className, getMethodName(call), getCallDescriptor(call));
+    }
+
+    private void generateVirtualCall(CallInstruction call, CodeBuilder code) {
+
+        var caller = (Operand) call.getCaller();
+        var className = getFullClassName(((ClassType) caller.getType()).getName());
+
+        // load caller and arguments
+        generators.accept(caller, code);
+        for (var arg : call.getArguments()) {
+            generators.accept(arg, code);
+        }
+
+        code.invoke(CodeBuilder.INVOKEVIRTUAL, className, getMethodName(call), getCallDescriptor(call));
+    }
+
+    private void generateNewCall(CallInstruction call, CodeBuilder code) {
+
+        var caller = (Operand) call.getCaller();
+
+        for (var arg : call.getArguments()) {
+            generators.accept(arg, code);
+        }
+
+        if (call.getReturnType() instanceof ArrayType arrayType) {
+            code.newArray(arrayType.getElementType().getTypeOfElement() == ElementType.INT32
+                    ? CodeBuilder.T_INT : CodeBuilder.T_BOOLEAN);
+        } else {
+            code.newObject(getFullClassName(caller.getName()));
+        }
+    }
+
+    private String getMethodName(CallInstruction call) {
+        return ((LiteralElement) call.getMethodName()).getLiteral().replace("\"", "");
+    }
+
+    private String getCallDescriptor(CallInstruction call) {
+        var descriptor = new StringBuilder("(");
+
+        for (var arg : call.getArguments()) {
+            descriptor.append(getTypeDescriptor(arg.getType()));
+        }
+
+        return descriptor.append(")").append(getTypeDescriptor(call.getReturnType())).toString();
+    }
+
+    private boolean isIincAssignment(AssignInstruction inst) {
+        var rhs = (BinaryOpInstruction) inst.getRhs();
+        var left = rhs.getLeftOperand();
+        var right = rhs.getRightOperand();
+        var operation = rhs.getOperation().getOpType();
+        // Must be something like i = i + 1 or i = i - 1 (this checks for left and right types)
+        if (operation != OperationType.ADD && operation != OperationType.SUB) {
+            return false;
+        }
+        // Must be a literal op variable or variable op literal
+        if (left.isLiteral() == right.isLiteral()) {
+            return false;
+        }
+        var variable = left.isLiteral() ? (Operand) right : (Operand) left;
+        if (!variable.getName().equals(((Operand) inst.getDest()).getName())) {
+            return false;
+        }
+        var value = getIncrement(rhs);
+        return value >= -128 && value <= 127;
+    }
+
+    private void generateIinc(BinaryOpInstruction inst, CodeBuilder code) {
+        var variable = inst.getLeftOperand().isLiteral() ? (Operand) inst.getRightOperand() : (Operand) inst.getLeftOperand();
+        var reg = currentMethod.getVarTable().get(variable.getName()).getVirtualReg();
+
+        code.iinc(reg, getIncrement(inst));
+    }
+
+    private int getIncrement(BinaryOpInstruction inst) {
+        var left = inst.getLeftOperand();
+        var literal = left.isLiteral() ? (LiteralElement) left : (LiteralElement) inst.getRightOperand();
+        var value = Integer.parseInt(literal.getLiteral());
+
+        return inst.getOperation().getOpType() == OperationType.ADD ? value : -value;
+    }
+
+    /**
+     * Pushes 1 if the condition jump is taken, or 0 otherwise.
+     */
+    private void buildJump(int operation, CodeBuilder code) {
+        var jump = new Label("jump");
+        var end = new Label("end");
+
+        code.jump(operation, jump);
+        code.pushInt(0);
+        code.jump(CodeBuilder.GOTO, end);
+        code.mark(jump);
+        code.pushInt(1);
+        code.mark(end);
+    }
+
+    private int getReg(Operand operand) {
+        var reg = -1;
+        if (currentMethod.getVarTable().get(operand.getName()) != null) {
+            reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
+        } else if (operand.getName().equals("this")) {
+            reg = 0;
+        }
+        return reg;
+    }
+
+    private int getAccessFlags(AccessModifier accessModifier) {
+        return switch (accessModifier) {
+            case PUBLIC -> ACC_PUBLIC;
+            case PRIVATE -> ACC_PRIVATE;
+            case PROTECTED -> ACC_PROTECTED;
+            case DEFAULT -> 0;
+            default -> throw new NotImplementedException(accessModifier);
+        };
+    }
+
+    private int getOperation(Operation operation) {
+        return switch (operation.getOpType()) {
+            case ADD -> CodeBuilder.IADD;
+            case SUB, LTH -> CodeBuilder.ISUB;
+            case MUL -> CodeBuilder.IMUL;
+            case DIV -> CodeBuilder.IDIV;
+            case NOTB -> CodeBuilder.IXOR;
+            case ANDB -> CodeBuilder.IAND;
+            default -> throw new NotImplementedException(operation.getOpType());
+        };
+    }
+
+    private int getConditionOperation(Instruction inst) {
+        if (inst instanceof BinaryOpInstruction binaryOp) {
+            return switch (binaryOp.getOperation().getOpType()) {
+                case LTH -> CodeBuilder.IFLT;
+                case LTE -> CodeBuilder.IFLE;
+                case GTH -> CodeBuilder.IFGT;
+                case GTE -> CodeBuilder.IFGE;
+                case ANDB -> CodeBuilder.IFNE;
+                default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
+            };
+        }
+
+        if (inst instanceof UnaryOpInstruction unaryOp && unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            return CodeBuilder.IFEQ;
+        }
+
+        throw new NotImplementedException(inst.getInstType());
+    }
+
+    private String getTypeDescriptor(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case ARRAYREF -> "[" + getTypeDescriptor(((ArrayType) type).getElementType());
+            case OBJECTREF -> "L" + getFullClassName(((ClassType) type).getName()) + ";";
+            default -> switch (type.toString()) {
+                case "INT32" -> "I";
+                case "BOOLEAN" -> "Z";
+                case "STRING" -> "Ljava/lang/String;";
+                case "VOID" -> "V";
+                default -> throw new NotImplementedException(type);
+            };
+        };
+    }
+
+    private String getSuperClassName() {
+        var superClass = ollirResult.getOllirClass().getSuperClass();
+        return superClass == null ? "java/lang/Object" : getFullClassName(superClass);
+    }
+
+    private String getFullClassName(String className) {
+        if (className.equals("this")) {
+            return ollirResult.getOllirClass().getClassName();
+        }
+
+        for (var importClass : ollirResult.getOllirClass().getImports()) {
+            var tokens = importClass.split("\\.");
+            if (tokens[tokens.length - 1].equals(className)) {
+                return importClass.replaceAll("\\.", "/");
+            }
+        }
+
+        return className;
+    }
+}
@@ -0,0 +1,364 @@
+package pt.up.fe.comp2024.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bytecode of a single method being written by {@link ClassFileGenerator}.
+ * <p>
+ * Instructions are recorded with their effect on the operand stack, and only encoded once the method is complete,
+ * when the offsets of all labels are known. The maximum stack size is computed by following every path through the
+ * code, so it is exact even when the branches of a condition leave the stack at different depths.
+ */
+class CodeBuilder {
+
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int ILOAD = 0x15;
+    static final int ALOAD = 0x19;
+    static final int ILOAD_0 = 0x1a;
+    static final int ALOAD_0 = 0x2a;
+    static final int IALOAD = 0x2e;
+    static final int ISTORE = 0x36;
+    static final int ASTORE = 0x3a;
+    static final int ISTORE_0 = 0x3b;
+    static final int ASTORE_0 = 0x4b;
+    static final int IASTORE = 0x4f;
+    static final int POP = 0x57;
+    static final int IADD = 0x60;
+    static final int ISUB = 0x64;
+    static final int IMUL = 0x68;
+    static final int IDIV = 0x6c;
+    static final int IAND = 0x7e;
+    static final int IXOR = 0x82;
+    static final int IINC = 0x84;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int GOTO = 0xa7;
+    static final int IRETURN = 0xac;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int NEW = 0xbb;
+    static final int NEWARRAY = 0xbc;
+    static final int ARRAYLENGTH = 0xbe;
+    static final int WIDE = 0xc4;
+
+    static final int T_BOOLEAN = 4;
+    static final int T_INT = 10;
+
+    private static final int MAX_CODE_LENGTH = 0xFFFF;
+
+    private final ConstantPool pool;
+    private final List<Instruction> instructions = new ArrayList<>();
+
+    CodeBuilder(ConstantPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * A position in the code, which can be used as a jump target before it is placed.
+     */
+    static class Label {
+
+        private final String name;
+        private int index = -1;
+
+        Label(String name) {
+            this.name = name;
+        }
+    }
+
+    private record Instruction(int opcode, byte[] operands, int stackChange, Label target) {
+
+        int size() {
+            return 1 + operands.length;
+        }
+
+        boolean isBranch() {
+            return target != null;
+        }
+
+        boolean fallsThrough() {
+            return switch (opcode) {
+                case GOTO, IRETURN, ARETURN, RETURN -> false;
+                default -> true;
+            };
+        }
+    }
+
+    /**
+     * Places the label at the next instruction.
+     *
+     * @param label
+     */
+    public void mark(Label label) {
+        if (label.index != -1) {
+            throw new RuntimeException("Label '" + label.name + "' was placed twice");
+        }
+
+        label.index = instructions.size();
+    }
+
+    /**
+     * Adds an instruction without operands.
+     *
+     * @param opcode
+     * @param stackChange how many values the instruction pushes minus how many it pops
+     */
+    public void op(int opcode, int stackChange) {
+        add(opcode, stackChange);
+    }
+
+    public void jump(int opcode, Label target) {
+        instructions.add(new Instruction(opcode, new byte[2], opcode == GOTO ? 0 : -1, target));
+    }
+
+    public void iload(int reg) {
+        local(ILOAD, ILOAD_0, reg, 1);
+    }
+
+    public void aload(int reg) {
+        local(ALOAD, ALOAD_0, reg, 1);
+    }
+
+    public void istore(int reg) {
+        local(ISTORE, ISTORE_0, reg, -1);
+    }
+
+    public void astore(int reg) {
+        local(ASTORE, ASTORE_0, reg, -1);
+    }
+
+    private void local(int opcode, int shortOpcode, int reg, int stackChange) {
+        if (reg < 4) {
+            add(shortOpcode + reg, stackChange);
+        } else if (reg <= 0xFF) {
+            add(opcode, stackChange, reg);
+        } else {
+            add(WIDE, stackChange, opcode, reg >> 8, reg);
+        }
+    }
+
+    public void iinc(int reg, int value) {
+        if (reg <= 0xFF && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            add(IINC, 0, reg, value);
+        } else {
+            add(WIDE, 0, IINC, reg >> 8, reg, value >> 8, value);
+        }
+    }
+
+    /**
+     * Pushes an int constant, using the shortest instruction that can hold it.
+     *
+     * @param value
+     */
+    public void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            add(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            add(BIPUSH, 1, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            add(SIPUSH, 1, value >> 8, value);
+        } else {
+            ldc(pool.integer(value));
+        }
+    }
+
+    public void pushString(String value) {
+        ldc(pool.string(value));
+    }
+
+    private void ldc(int index) {
+        if (index <= 0xFF) {
+            add(LDC, 1, index);
+        } else {
+            add(LDC_W, 1, index >> 8, index);
+        }
+    }
+
+    public void newObject(String className) {
+        addIndexed(NEW, 1, pool.classRef(className));
+    }
+
+    public void newArray(int elementType) {
+        add(NEWARRAY, 0, elementType);
+    }
+
+    public void getField(String owner, String name, String descriptor) {
+        addIndexed(GETFIELD, 0, pool.fieldRef(owner, name, descriptor));
+    }
+
+    public void putField(String owner, String name, String descriptor) {
+        addIndexed(PUTFIELD, -2, pool.fieldRef(owner, name, descriptor));
+    }
+
+    /**
+     * Adds a method invocation, working out its stack effect from the descriptor.
+     *
+     * @param opcode
+     * @param owner
+     * @param name
+     * @param descriptor
+     */
+    public void invoke(int opcode, String owner, String name, String descriptor) {
+        int stackChange = -countArguments(descriptor);
+        if (opcode != INVOKESTATIC) {
+            stackChange--;
+        }
+        if (!descriptor.endsWith(")V")) {
+            stackChange++;
+        }
+
+        addIndexed(opcode, stackChange, pool.methodRef(owner, name, descriptor));
+    }
+
+    private static int countArguments(String descriptor) {
+        int count = 0;
+        int i = 1;
+
+        while (descriptor.charAt(i) != ')') {
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            i++;
+            count++;
+        }
+
+        return count;
+    }
+
+    private void addIndexed(int opcode, int stackChange, int index) {
+        add(opcode, stackChange, index >> 8, index);
+    }
+
+    private void add(int opcode, int stackChange, int... operands) {
+        var bytes = new byte[operands.length];
+        for (int i = 0; i < operands.length; i++) {
+            bytes[i] = (byte) operands[i];
+        }
+
+        instructions.add(new Instruction(opcode, bytes, stackChange, null));
+    }
+
+    /**
+     * Encodes the instructions, resolving the offsets of the jumps.
+     *
+     * @return
+     */
+    public byte[] toBytes() {
+        var offsets = getOffsets();
+        int length = offsets[instructions.size()];
+        if (length > MAX_CODE_LENGTH) {
+            throw new RuntimeException("Method code is too long: " + length + " bytes, the limit is " + MAX_CODE_LENGTH);
+        }
+
+        var bytes = new ByteArrayOutputStream(length);
+        try (var out = new DataOutputStream(bytes)) {
+            for (int i = 0; i < instructions.size(); i++) {
+                var instruction = instructions.get(i);
+                out.writeByte(instruction.opcode());
+
+                if (instruction.isBranch()) {
+                    int jump = offsets[getIndex(instruction.target())] - offsets[i];
+                    if (jump < Short.MIN_VALUE || jump > Short.MAX_VALUE) {
+                        throw new RuntimeException("Jump to label '" + instruction.target().name + "' is too far");
+                    }
+                    out.writeShort(jump);
+                } else {
+                    out.write(instruction.operands());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not encode method code", e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private int[] getOffsets() {
+        var offsets = new int[instructions.size() + 1];
+        for (int i = 0; i < instructions.size(); i++) {
+            offsets[i + 1] = offsets[i] + instructions.get(i).size();
+        }
+
+        return offsets;
+    }
+
+    /**
+     * The maximum depth of the operand stack over every path through the code.
+     *
+     * @return
+     */
+    public int getMaxStack() {
+        var depths = new int[instructions.size() + 1];
+        Arrays.fill(depths, -1);
+
+        var pending = new ArrayDeque<Integer>();
+        depths[0] = 0;
+        pending.push(0);
+
+        int maxStack = 0;
+        while (!pending.isEmpty()) {
+            int index = pending.pop();
+            if (index == instructions.size()) {
+                continue;
+            }
+
+            var instruction = instructions.get(index);
+            int after = depths[index] + instruction.stackChange();
+            if (after < 0) {
+                throw new RuntimeException("Operand stack underflow at instruction " + index);
+            }
+            maxStack = Math.max(maxStack, Math.max(depths[index], after));
+
+            if (instruction.isBranch()) {
+                visit(depths, pending, getIndex(instruction.target()), after);
+            }
+            if (instruction.fallsThrough()) {
+                visit(depths, pending, index + 1, after);
+            }
+        }
+
+        return maxStack;
+    }
+
+    private static void visit(int[] depths, ArrayDeque<Integer> pending, int index, int depth) {
+        if (depth > MAX_CODE_LENGTH) {
+            throw new RuntimeException("Operand stack grows without bound at instruction " + index);
+        }
+
+        // Paths that reach an instruction with different depths are rejected by the verifier, keep the deepest
+        if (depths[index] < depth) {
+            depths[index] = depth;
+            pending.push(index);
+        }
+    }
+
+    private static int getIndex(Label label) {
+        if (label.index == -1) {
+            throw new RuntimeException("Label '" + label.name + "' was never placed");
+        }
+
+        return label.index;
+    }
+}
@@ -0,0 +1,130 @@
+package pt.up.fe.comp2024.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Constant pool of a class file being written by {@link ClassFileGenerator}.
+ * <p>
+ * Constants are added on demand and deduplicated, so asking twice for the same constant returns the same index.
+ */
+class ConstantPool {
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream entries = new DataOutputStream(bytes);
+    private int count = 1;
+
+    public int utf8(String value) {
+        var key = UTF8 + ":" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            entries.writeByte(UTF8);
+            entries.writeUTF(value);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not add constant '" + value + "'", e);
+        }
+
+        return register(key);
+    }
+
+    public int integer(int value) {
+        var key = INTEGER + ":" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        write(INTEGER, value >>> 16, value & 0xFFFF);
+
+        return register(key);
+    }
+
+    public int classRef(String internalName) {
+        return reference(CLASS, utf8(internalName));
+    }
+
+    public int string(String value) {
+        return reference(STRING, utf8(value));
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return reference(FIELD_REF, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return reference(METHOD_REF, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return reference(NAME_AND_TYPE, utf8(name), utf8(descriptor));
+    }
+
+    /**
+     * Adds a constant made of references to other constants.
+     */
+    private int reference(int tag, int... operands) {
+        var key = new StringBuilder().append(tag);
+        for (int operand : operands) {
+            key.append(':').append(operand);
+        }
+
+        var index = indexes.get(key.toString());
+        if (index != null) {
+            return index;
+        }
+
+        write(tag, operands);
+
+        return register(key.toString());
+    }
+
+    private void write(int tag, int... operands) {
+        try {
+            entries.writeByte(tag);
+            for (int operand : operands) {
+                entries.writeShort(operand);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not add constant with tag " + tag, e);
+        }
+    }
+
+    private int register(String key) {
+        if (count >= MAX_ENTRIES) {
+            throw new RuntimeException("Too many constants in class, the limit is " + (MAX_ENTRIES - 1));
+        }
+
+        indexes.put(key, count);
+        return count++;
+    }
+
+    /**
+     * Writes the constant pool count followed by all the constants, in the order they were added.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeShort(count);
+        entries.flush();
+        bytes.writeTo(out);
+    }
+}
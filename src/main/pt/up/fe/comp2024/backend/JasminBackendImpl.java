@@ -2,17 +2,54 @@ package pt.up.fe.comp2024.backend;
 
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.jasmin.JasminUtils;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 
 public class JasminBackendImpl implements JasminBackend {
 
     @Override
     public JasminResult toJasmin(OllirResult ollirResult) {
 
-        var jasminGenerator = new JasminGenerator(ollirResult);
-        var jasminCode = jasminGenerator.build();
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.JASMIN)) {
+            var jasminGenerator = new JasminGenerator(ollirResult);
+            var jasminCode = jasminGenerator.build();
 
-        return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
+            return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
+        }
     }
 
+    /**
+     * Assembles the Jasmin code into the bytes of a class file.
+     * <p>
+     * Unlike {@link JasminResult#compile()}, each call works in its own temporary folder, so it can be used by
+     * several compilations at the same time.
+     *
+     * @param jasminResult
+     * @return
+     */
+    public static byte[] assemble(JasminResult jasminResult) {
+        File workDir = null;
+
+        try {
+            workDir = Files.createTempDirectory("jmm-jasmin").toFile();
+            var jasminFile = new File(workDir, jasminResult.getClassName() + ".j");
+            SpecsIo.write(jasminFile, jasminResult.getJasminCode());
+
+            var classFile = JasminUtils.assemble(jasminFile, workDir);
+            return Files.readAllBytes(classFile.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not assemble class " + jasminResult.getClassName(), e);
+        } finally {
+            if (workDir != null) {
+                SpecsIo.deleteFolder(workDir);
+            }
+        }
+    }
 }
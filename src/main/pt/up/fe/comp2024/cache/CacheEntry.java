@@ -0,0 +1,12 @@
+package pt.up.fe.comp2024.cache;
+
+/**
+ * Outputs of a compilation stored in the {@link CompilationCache}.
+ *
+ * @param className  name of the generated class
+ * @param ollirCode  OLLIR code, after register allocation
+ * @param jasminCode Jasmin code, or null if the class file was written directly from the OLLIR
+ * @param classBytes contents of the assembled class file
+ */
+public record CacheEntry(String className, String ollirCode, String jasminCode, byte[] classBytes) {
+}
@@ -0,0 +1,296 @@
+package pt.up.fe.comp2024.cache;
+
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed on-disk cache of compilation outputs.
+ * <p>
+ * Entries are keyed by a hash of the source, the options that change the generated code and a fingerprint of the
+ * compiler itself, so a cached result is only reused when recompiling would produce exactly the same output.
+ * <p>
+ * Each entry is a directory that is written under a temporary name and then atomically renamed into place, and is
+ * removed by renaming it away before deleting it. Readers therefore see either a complete entry or none, which lets
+ * several processes share the same cache directory. When the cache grows past its size limit, the least recently
+ * used entries are evicted.
+ * <p>
+ * The total size of the entries is kept in a counter file, updated under a file lock by every put, so the cache is
+ * only listed when the counter goes past the limit. The counter is recomputed from the entries whenever they are
+ * listed, which corrects it if entries were removed by other means.
+ */
+public class CompilationCache {
+
+    private static final String OLLIR_FILE = "code.ollir";
+    private static final String JASMIN_FILE = "code.j";
+    private static final String CLASS_FILE = "code.class";
+    private static final String CLASS_NAME_FILE = "class.name";
+    private static final String TEMP_PREFIX = ".tmp-";
+    private static final String SIZE_FILE = ".size";
+
+    // File locks are held by the whole JVM, so threads sharing a cache directory must also exclude each other
+    private static final Map<Path, Object> SIZE_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public CompilationCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create cache directory '" + directory + "'", e);
+        }
+    }
+
+    /**
+     * The cache configured with '-c', if any.
+     *
+     * @param config
+     * @return
+     */
+    public static Optional<CompilationCache> fromConfig(Map<String, String> config) {
+        return CompilerConfig.getCacheDir(config)
+                .map(dir -> new CompilationCache(dir.toPath(), CompilerConfig.getCacheLimit(config)));
+    }
+
+    /**
+     * Computes the key of the compilation of the given source with the given config.
+     *
+     * @param code
+     * @param config
+     * @return
+     */
+    public static String key(String code, Map<String, String> config) {
+        return key(ByteBuffer.wrap(code.getBytes(StandardCharsets.UTF_8)), config);
+    }
+
+    /**
+     * The key of a source given as its UTF-8 bytes, e.g. a mapped file, which is the same as the key of its text.
+     *
+     * @param code
+     * @param config
+     * @return
+     */
+    public static String key(ByteBuffer code, Map<String, String> config) {
+        var digest = sha256();
+
+        update(digest, CompilerFingerprint.get());
+        update(digest, String.valueOf(CompilerConfig.getOptimize(config)));
+        update(digest, String.valueOf(CompilerConfig.getRegisterAllocation(config)));
+        update(digest, CompilerConfig.getBackend(config));
+
+        // Length prefix, as in the other values
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(code.remaining()).array());
+        digest.update(code.duplicate());
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up an entry, marking it as recently used.
+     *
+     * @param key
+     * @return
+     */
+    public Optional<CacheEntry> get(String key) {
+        var entryDir = directory.resolve(key);
+
+        try {
+            // Classes written directly from the OLLIR have no Jasmin code
+            var jasminFile = entryDir.resolve(JASMIN_FILE);
+            var entry = new CacheEntry(
+                    Files.readString(entryDir.resolve(CLASS_NAME_FILE), StandardCharsets.UTF_8),
+                    Files.readString(entryDir.resolve(OLLIR_FILE), StandardCharsets.UTF_8),
+                    Files.exists(jasminFile) ? Files.readString(jasminFile, StandardCharsets.UTF_8) : null,
+                    Files.readAllBytes(entryDir.resolve(CLASS_FILE)));
+
+            Files.setLastModifiedTime(entryDir, FileTime.fromMillis(System.currentTimeMillis()));
+
+            return Optional.of(entry);
+        } catch (IOException e) {
+            // Not cached, or evicted while reading
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores an entry, evicting old entries if the cache gets too big.
+     *
+     * @param key
+     * @param entry
+     */
+    public void put(String key, CacheEntry entry) {
+        var entryDir = directory.resolve(key);
+        var tempDir = directory.resolve(TEMP_PREFIX + UUID.randomUUID());
+
+        try {
+            Files.createDirectory(tempDir);
+            Files.writeString(tempDir.resolve(CLASS_NAME_FILE), entry.className(), StandardCharsets.UTF_8);
+            Files.writeString(tempDir.resolve(OLLIR_FILE), entry.ollirCode(), StandardCharsets.UTF_8);
+            if (entry.jasminCode() != null) {
+                Files.writeString(tempDir.resolve(JASMIN_FILE), entry.jasminCode(), StandardCharsets.UTF_8);
+            }
+            Files.write(tempDir.resolve(CLASS_FILE), entry.classBytes());
+
+            long size = size(tempDir);
+            try {
+                Files.move(tempDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | AtomicMoveNotSupportedException e) {
+                // Another process stored the same entry first, its contents are identical
+                deleteRecursively(tempDir);
+                return;
+            } catch (IOException e) {
+                // Some file systems report a non-empty target as a generic failure
+                if (!Files.isDirectory(entryDir)) throw e;
+                deleteRecursively(tempDir);
+                return;
+            }
+
+            addToSize(size);
+        } catch (IOException e) {
+            deleteRecursively(tempDir);
+            throw new UncheckedIOException("Could not write cache entry " + key, e);
+        }
+    }
+
+    /**
+     * Adds the size of a new entry to the counter, evicting entries if the total goes past the limit.
+     */
+    private void addToSize(long entrySize) {
+        var lock = SIZE_LOCKS.computeIfAbsent(directory.toAbsolutePath().normalize(), dir -> new Object());
+
+        synchronized (lock) {
+            try (var channel = FileChannel.open(directory.resolve(SIZE_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 var ignored = channel.lock()) {
+
+                // A missing counter, e.g. in a cache written by an older version, is computed by the eviction
+                var counter = ByteBuffer.allocate(Long.BYTES);
+                boolean known = channel.read(counter, 0) == Long.BYTES;
+                long total = known ? counter.getLong(0) + entrySize : Long.MAX_VALUE;
+
+                if (total > maxBytes) {
+                    total = evict();
+                }
+
+                channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, total), 0);
+            } catch (IOException e) {
+                // The entry is stored, eviction will be retried on the next put
+            }
+        }
+    }
+
+    /**
+     * Removes least recently used entries until the cache fits its size limit.
+     *
+     * @return the total size of the remaining entries
+     */
+    private long evict() throws IOException {
+        var entries = new ArrayList<EntryInfo>();
+        long total = 0;
+
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (path.getFileName().toString().startsWith(TEMP_PREFIX) || !Files.isDirectory(path)) continue;
+
+                try {
+                    var info = new EntryInfo(path, Files.getLastModifiedTime(path).toMillis(), size(path));
+                    entries.add(info);
+                    total += info.size();
+                } catch (IOException e) {
+                    // Removed concurrently
+                }
+            }
+        }
+
+        if (total <= maxBytes) return total;
+
+        entries.sort(Comparator.comparingLong(EntryInfo::lastUsed));
+        for (EntryInfo entry : entries) {
+            if (total <= maxBytes) break;
+
+            remove(entry.path());
+            total -= entry.size();
+        }
+
+        return total;
+    }
+
+    private void remove(Path entryDir) {
+        var trash = directory.resolve(TEMP_PREFIX + UUID.randomUUID());
+
+        try {
+            Files.move(entryDir, trash, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Already evicted by someone else
+            return;
+        }
+
+        deleteRecursively(trash);
+    }
+
+    private static long size(Path entryDir) throws IOException {
+        try (Stream<Path> files = Files.list(entryDir)) {
+            long size = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        try (Stream<Path> paths = Files.walk(path)) {
+            List<Path> all = paths.sorted(Comparator.reverseOrder()).toList();
+            for (Path p : all) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            // Leftovers are harmless, they are skipped by lookups and eviction
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    static void update(MessageDigest digest, String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        // Length prefix, so that different splits of the same text do not collide
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private record EntryInfo(Path path, long lastUsed, long size) {
+    }
+}
@@ -0,0 +1,66 @@
+package pt.up.fe.comp2024.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Identifies the build of the compiler that is running, so that cache entries produced by a different build are
+ * never reused.
+ * <p>
+ * Hashes the contents of every class file and jar in the classpath, which covers both our own classes and the
+ * libraries that take part in code generation. Contents are used instead of timestamps so that fresh checkouts of
+ * the same build, as in CI, still share entries. The hash is computed once per JVM.
+ */
+class CompilerFingerprint {
+
+    private static final String FINGERPRINT = compute();
+
+    static String get() {
+        return FINGERPRINT;
+    }
+
+    private static String compute() {
+        var digest = CompilationCache.sha256();
+
+        var classpath = System.getProperty("java.class.path", "").split(File.pathSeparator);
+        for (String element : classpath) {
+            if (element.isEmpty()) continue;
+
+            var path = Path.of(element);
+            if (Files.isDirectory(path)) {
+                addDirectory(digest, path);
+            } else if (Files.isRegularFile(path)) {
+                addFile(digest, path);
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void addDirectory(MessageDigest digest, Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            List<Path> classFiles = paths.filter(path -> path.toString().endsWith(".class")).sorted().toList();
+            for (Path classFile : classFiles) {
+                addFile(digest, classFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not fingerprint '" + directory + "'", e);
+        }
+    }
+
+    private static void addFile(MessageDigest digest, Path file) {
+        try {
+            CompilationCache.update(digest, file.getFileName().toString());
+            digest.update(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not fingerprint '" + file + "'", e);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package pt.up.fe.comp2024.daemon;
+
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.Launcher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-lived compile server, so that consecutive compilations reuse the same JVM with the parser, the OLLIR
+ * parser and Jasmin already loaded and compiled by the JIT.
+ * <p>
+ * Listens on a loopback TCP port and compiles each request on a pool of workers, replying with everything the
+ * pipeline printed, exactly as {@link Launcher} would print it.
+ * <p>
+ * Any local process can connect to the port, so the daemon writes a random token to a file only its user can read,
+ * and ignores requests that do not carry it. Compile requests must also give the working directory of the client or
+ * an output directory, as absolute paths, since the daemon does not run in the directory of the client.
+ */
+public class CompileDaemon {
+
+    private static final int WARM_UP_ROUNDS = 20;
+
+    private static final String WARM_UP_CODE = """
+            import io;
+            class WarmUp {
+                int[] values;
+                public int sum(int[] a, int n) {
+                    int i;
+                    int total;
+                    i = 0;
+                    total = 0;
+                    while (i < n) {
+                        total = total + a[i] * 2 - 1;
+                        i = i + 1;
+                    }
+                    return total;
+                }
+                public static void main(String[] args) {
+                    WarmUp w;
+                    w = new WarmUp();
+                    if (!(w.sum(new int[3], 3) < 0) && true) {
+                        io.println(w.sum([1, 2, 3], 3));
+                    } else {
+                        io.println(0);
+                    }
+                }
+            }
+            """;
+
+    private static final int TOKEN_BYTES = 32;
+
+    // How long a rejected client has to finish sending its request
+    private static final int REJECT_TIMEOUT_MS = 1000;
+
+    private final int port;
+    private final Path tokenFile;
+    private final ExecutorService workers;
+    private volatile ServerSocket server;
+    private volatile boolean running = true;
+    private byte[] token;
+
+    public CompileDaemon(int port, int threads) {
+        this(port, threads, null);
+    }
+
+    /**
+     * @param port
+     * @param threads
+     * @param tokenFile where to write the token clients must send, or null for {@link #getTokenFile(int)}
+     */
+    public CompileDaemon(int port, int threads, Path tokenFile) {
+        this.port = port;
+        this.tokenFile = tokenFile;
+        this.workers = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * The file where the daemon listening on the given port writes its token, in the home directory of the user.
+     *
+     * @param port
+     * @return
+     */
+    public static Path getTokenFile(int port) {
+        return Path.of(System.getProperty("user.home"), ".jmm", "daemon-" + port + ".token");
+    }
+
+    /**
+     * Starts listening and writes the token file, so that clients can connect before {@link #serve()} is called.
+     * Does nothing if the daemon is already listening.
+     *
+     * @return the port the daemon listens on, which is chosen by the system if the daemon was given port 0
+     * @throws IOException
+     */
+    public synchronized int bind() throws IOException {
+
+        if (server == null) {
+            var server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+            try {
+                token = writeToken(getResolvedTokenFile(server.getLocalPort()));
+            } catch (IOException e) {
+                server.close();
+                throw e;
+            }
+
+            this.server = server;
+        }
+
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts requests until a stop request arrives.
+     *
+     * @throws IOException
+     */
+    public void serve() throws IOException {
+        int boundPort = bind();
+
+        try (ServerSocket server = this.server) {
+            warmUp();
+            System.out.println("Compile daemon listening on " + server.getLocalSocketAddress());
+
+            while (running) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketException e) {
+                    // Closed by a stop request
+                    if (!running) break;
+                    throw e;
+                }
+
+                workers.execute(() -> handle(socket));
+            }
+        } finally {
+            workers.shutdown();
+            Files.deleteIfExists(getResolvedTokenFile(boundPort));
+        }
+    }
+
+    private Path getResolvedTokenFile(int boundPort) {
+        return tokenFile != null ? tokenFile : getTokenFile(boundPort);
+    }
+
+    /**
+     * Writes a new random token to the given file, readable only by the current user where the file system allows
+     * it.
+     */
+    private static byte[] writeToken(Path file) throws IOException {
+        var bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        var token = HexFormat.of().formatHex(bytes);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        // Created anew, so that the permissions are not the ones of a file left by someone else
+        Files.deleteIfExists(file);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+
+        Files.writeString(file, token, StandardCharsets.UTF_8);
+
+        return token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compiles a representative program a few times, so that the first real request is already fast.
+     */
+    private void warmUp() {
+        var config = CompilerConfig.getDefault();
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            compile(WARM_UP_CODE, config);
+        }
+    }
+
+    private void handle(Socket socket) {
+
+        try (socket;
+             var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+            var header = DaemonProtocol.readHeader(in);
+            if (!isAuthorized(header.token())) {
+                reject(socket, in, out, "Invalid compile daemon token");
+                return;
+            }
+
+            switch (header.command()) {
+                case DaemonProtocol.COMPILE -> {
+                    var config = DaemonProtocol.readMap(in);
+                    var code = DaemonProtocol.readString(in);
+
+                    var error = checkPaths(config);
+                    if (error.isPresent()) {
+                        reply(out, false, error.get());
+                        return;
+                    }
+
+                    var response = compile(code, config);
+                    reply(out, response.success(), response.output());
+                }
+                case DaemonProtocol.STOP -> {
+                    reply(out, true, "Compile daemon on port " + server.getLocalPort() + " stopped");
+                    stop();
+                }
+                default -> reject(socket, in, out, "Unknown compile daemon command " + header.command());
+            }
+        } catch (IOException e) {
+            System.err.println("Compile daemon request failed: " + e.getMessage());
+        }
+    }
+
+    private boolean isAuthorized(String clientToken) {
+        return MessageDigest.isEqual(token, clientToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compile requests are not run in the directory of the client, so the paths they give must be absolute, and
+     * there must be one telling where to write class files.
+     *
+     * @return the reason the request is rejected, if it is
+     */
+    private static Optional<String> checkPaths(Map<String, String> config) {
+        var classDir = CompilerConfig.getClassDir(config);
+
+        if (classDir.isEmpty()) {
+            return Optional.of("Compile requests must give the working directory of the client or an output directory");
+        }
+
+        for (var path : List.of(classDir, CompilerConfig.getOutputDir(config), CompilerConfig.getCacheDir(config),
+                CompilerConfig.getInputFile(config), CompilerConfig.getMetricsFile(config))) {
+            if (path.isPresent() && !path.get().isAbsolute()) {
+                return Optional.of("Compile requests must give absolute paths, got '" + path.get() + "'");
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private static void reply(DataOutputStream out, boolean success, String output) throws IOException {
+        out.writeBoolean(success);
+        DaemonProtocol.writeString(out, output);
+        out.flush();
+    }
+
+    /**
+     * Replies with an error without reading the rest of the request, which is then discarded. Closing the socket
+     * while part of the request is unread could reset the connection before the client reads the reply.
+     */
+    private static void reject(Socket socket, DataInputStream in, DataOutputStream out, String message)
+            throws IOException {
+        reply(out, false, message);
+        socket.shutdownOutput();
+
+        socket.setSoTimeout(REJECT_TIMEOUT_MS);
+        in.transferTo(OutputStream.nullOutputStream());
+    }
+
+    private void stop() throws IOException {
+        running = false;
+        server.close();
+    }
+
+    private static DaemonResponse compile(String code, Map<String, String> config) {
+
+        var buffer = new ByteArrayOutputStream();
+        var out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+
+        boolean success = true;
+        try {
+            Launcher.compile(code, config, out);
+        } catch (RuntimeException e) {
+            out.println(e.getMessage());
+            success = false;
+        }
+
+        return new DaemonResponse(success, buffer.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,164 @@
+package pt.up.fe.comp2024.daemon;
+
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.Launcher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Thin front-end that forwards a compilation to a running {@link CompileDaemon}.
+ * <p>
+ * Only uses the JDK and {@link CompilerConfig}, so starting it is cheap. When no daemon is listening, or the
+ * arguments ask for something other than compiling a single file, it falls back to {@link Launcher}. Requests
+ * carry the token the daemon wrote to its token file, so a daemon started by another user is treated as absent.
+ */
+public class DaemonClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 200;
+
+    public static void main(String[] args) {
+        Map<String, String> config = CompilerConfig.parseArgs(args);
+
+        if (CompilerConfig.getBatch(config).isPresent() || CompilerConfig.getDaemon(config).isPresent()) {
+            Launcher.main(args);
+            return;
+        }
+
+        var response = tryCompile(config);
+        if (response == null) {
+            Launcher.main(args);
+            return;
+        }
+
+        System.out.print(response.output());
+        if (!response.success()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Sends the input file of the given config to the daemon.
+     *
+     * @param config
+     * @return the daemon response, or null if there is no daemon listening
+     */
+    static DaemonResponse tryCompile(Map<String, String> config) {
+        int port = CompilerConfig.getPort(config);
+        return tryCompile(config, CompileDaemon.getTokenFile(port));
+    }
+
+    /**
+     * Sends the input file of the given config to the daemon, authenticating with the token in the given file.
+     *
+     * @param config    the config returned by {@link CompilerConfig#parseArgs(String[])}, with absolute paths
+     * @param tokenFile
+     * @return the success flag and the output of the compilation, or null if there is no daemon listening
+     */
+    public static DaemonResponse tryCompile(Map<String, String> config, Path tokenFile) {
+
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        String code;
+        try {
+            code = Files.readString(inputFile.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read input file '" + inputFile + "'", e);
+        }
+
+        var token = readToken(tokenFile);
+        if (token == null) return null;
+
+        try (var socket = connect(CompilerConfig.getPort(config))) {
+            if (socket == null) return null;
+
+            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DaemonProtocol.writeHeader(out, DaemonProtocol.COMPILE, token);
+            DaemonProtocol.writeMap(out, config);
+            DaemonProtocol.writeString(out, code);
+            out.flush();
+
+            return readResponse(socket);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lost connection to the compile daemon", e);
+        }
+    }
+
+    /**
+     * Asks the daemon listening on the given port to shut down.
+     *
+     * @param port
+     * @return a message describing the outcome
+     */
+    public static String stop(int port) {
+        return stop(port, CompileDaemon.getTokenFile(port));
+    }
+
+    /**
+     * Asks the daemon listening on the given port to shut down, authenticating with the token in the given file.
+     *
+     * @param port
+     * @param tokenFile
+     * @return a message describing the outcome
+     */
+    public static String stop(int port, Path tokenFile) {
+
+        var token = readToken(tokenFile);
+        if (token == null) return "No compile daemon token in '" + tokenFile + "'";
+
+        try (var socket = connect(port)) {
+            if (socket == null) return "No compile daemon listening on port " + port;
+
+            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DaemonProtocol.writeHeader(out, DaemonProtocol.STOP, token);
+            out.flush();
+
+            return readResponse(socket).output();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lost connection to the compile daemon", e);
+        }
+    }
+
+    /**
+     * @return the token in the given file, or null if there is none, in which case no daemon of this user is running
+     */
+    private static String readToken(Path tokenFile) {
+        try {
+            return Files.readString(tokenFile).strip();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read compile daemon token file '" + tokenFile + "'", e);
+        }
+    }
+
+    private static Socket connect(int port) throws IOException {
+
+        var socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MS);
+            return socket;
+        } catch (ConnectException | SocketTimeoutException e) {
+            socket.close();
+            return null;
+        }
+    }
+
+    private static DaemonResponse readResponse(Socket socket) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        boolean success = in.readBoolean();
+        return new DaemonResponse(success, DaemonProtocol.readString(in));
+    }
+}
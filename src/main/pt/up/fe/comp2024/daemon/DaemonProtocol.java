@@ -0,0 +1,83 @@
+package pt.up.fe.comp2024.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wire format shared by {@link CompileDaemon} and {@link DaemonClient}.
+ * <p>
+ * A request is the protocol version, a command, the token of the daemon and, for compile requests, the config map
+ * followed by the source.
+ * A response is a success flag followed by the text the compilation printed. Strings are sent as their length
+ * followed by their UTF-8 bytes, so sources are not limited to the 64KB of {@link DataOutputStream#writeUTF}.
+ */
+class DaemonProtocol {
+
+    static final int VERSION = 2;
+
+    static final int COMPILE = 0;
+    static final int STOP = 1;
+
+    // Read before the client is authenticated, so it must not be able to make the daemon allocate much
+    private static final int MAX_TOKEN_LENGTH = 256;
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return readString(in, Integer.MAX_VALUE);
+    }
+
+    static String readString(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid string length " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (var entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    static Map<String, String> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        var map = new HashMap<String, String>();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+
+    static void writeHeader(DataOutputStream out, int command, String token) throws IOException {
+        out.writeInt(VERSION);
+        out.writeInt(command);
+        writeString(out, token);
+    }
+
+    static Header readHeader(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported daemon protocol version " + version + ", expected " + VERSION);
+        }
+        int command = in.readInt();
+        return new Header(command, readString(in, MAX_TOKEN_LENGTH));
+    }
+
+    record Header(int command, String token) {
+    }
+}
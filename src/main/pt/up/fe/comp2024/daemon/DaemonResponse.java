@@ -0,0 +1,10 @@
+package pt.up.fe.comp2024.daemon;
+
+/**
+ * Reply of a {@link CompileDaemon} to a request.
+ *
+ * @param success false if the compilation failed or the request was rejected
+ * @param output  the text the compilation printed, or why the request failed
+ */
+public record DaemonResponse(boolean success, String output) {
+}
@@ -0,0 +1,342 @@
+package pt.up.fe.comp2024.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random, well-typed Java-- programs of a chosen size, to measure how the compiler scales.
+ * <p>
+ * The same seed and options always produce the same program. Generated programs also run to completion without
+ * errors: loops have their own counters with a small bound, array indexes are literals within the array size,
+ * divisions are by non-zero literals and each method only calls the method declared before it, once and outside of
+ * loops. The main method prints the result of the last method.
+ */
+public class ProgramGenerator {
+
+    private static final int ARRAY_SIZE = 8;
+    private static final int LOOP_ITERATIONS = 3;
+    private static final int MAX_LITERAL = 100;
+    private static final String INDENT = "    ";
+
+    private enum VarType {
+        INT("int"), BOOLEAN("boolean"), ARRAY("int[]");
+
+        private final String code;
+
+        VarType(String code) {
+            this.code = code;
+        }
+    }
+
+    private record Variable(String name, VarType type) {
+    }
+
+    /**
+     * Size knobs of the generated programs.
+     *
+     * @param methods               number of methods, besides main
+     * @param statementsPerMethod   statements at the top level of each method, besides the initialization of locals
+     * @param expressionDepth       maximum depth of the expression trees
+     * @param localsPerMethod       local variables of each method
+     * @param loopNesting           maximum nesting of while loops
+     * @param andChainLength        number of operands of the '&&' chains used as conditions
+     * @param fields                number of fields of the class
+     */
+    public record Options(int methods, int statementsPerMethod, int expressionDepth, int localsPerMethod,
+                          int loopNesting, int andChainLength, int fields) {
+
+        public static Options defaults() {
+            return new Options(10, 10, 3, 4, 2, 2, 2);
+        }
+
+        public Options withMethods(int methods) {
+            return new Options(methods, statementsPerMethod, expressionDepth, localsPerMethod, loopNesting,
+                    andChainLength, fields);
+        }
+
+        public Options withStatementsPerMethod(int statementsPerMethod) {
+            return new Options(methods, statementsPerMethod, expressionDepth, localsPerMethod, loopNesting,
+                    andChainLength, fields);
+        }
+
+        public Options withExpressionDepth(int expressionDepth) {
+            return new Options(methods, statementsPerMethod, expressionDepth, localsPerMethod, loopNesting,
+                    andChainLength, fields);
+        }
+
+        public Options withLocalsPerMethod(int localsPerMethod) {
+            return new Options(methods, statementsPerMethod, expressionDepth, localsPerMethod, loopNesting,
+                    andChainLength, fields);
+        }
+
+        public Options withLoopNesting(int loopNesting) {
+            return new Options(methods, statementsPerMethod, expressionDepth, localsPerMethod, loopNesting,
+                    andChainLength, fields);
+        }
+
+        public Options withAndChainLength(int andChainLength) {
+            return new Options(methods, statementsPerMethod, expressionDepth, localsPerMethod, loopNesting,
+                    andChainLength, fields);
+        }
+
+        public Options withFields(int fields) {
+            return new Options(methods, statementsPerMethod, expressionDepth, localsPerMethod, loopNesting,
+                    andChainLength, fields);
+        }
+    }
+
+    private final Random random;
+    private final Options options;
+
+    private StringBuilder code;
+    private List<Variable> fields;
+    private List<Variable> variables;
+    private List<String> loopCounters;
+    private boolean callPending;
+
+    public ProgramGenerator(long seed, Options options) {
+        if (options.methods() < 1) {
+            throw new RuntimeException("Generated programs need at least one method, got " + options.methods());
+        }
+
+        this.random = new Random(seed);
+        this.options = options;
+    }
+
+    /**
+     * Generates a program whose class has the given name.
+     *
+     * @param className
+     * @return
+     */
+    public String generate(String className) {
+        code = new StringBuilder();
+        fields = new ArrayList<>();
+
+        code.append("import io;\n\n");
+        code.append("class ").append(className).append(" {\n");
+
+        for (int i = 0; i < options.fields(); i++) {
+            // Array fields would have to be created before use, which depends on the order methods are called
+            var field = new Variable("field" + i, random.nextBoolean() ? VarType.INT : VarType.BOOLEAN);
+            fields.add(field);
+            line(1, field.type().code + " " + field.name() + ";");
+        }
+
+        for (int i = 0; i < options.methods(); i++) {
+            code.append("\n");
+            generateMethod(i);
+        }
+
+        code.append("\n");
+        line(1, "public static void main(String[] args) {");
+        line(2, className + " instance;");
+        line(2, "instance = new " + className + "();");
+        line(2, "io.println(instance." + getMethodName(options.methods() - 1) + "(" + arguments() + "));");
+        line(1, "}");
+        code.append("}\n");
+
+        return code.toString();
+    }
+
+    private void generateMethod(int index) {
+        // Every method takes the same parameters, so calls can be generated without looking the method up
+        variables = new ArrayList<>(fields);
+        variables.add(new Variable("a", VarType.INT));
+        variables.add(new Variable("b", VarType.BOOLEAN));
+        variables.add(new Variable("c", VarType.ARRAY));
+
+        line(1, "public int " + getMethodName(index) + "(int a, boolean b, int[] c) {");
+
+        var locals = new ArrayList<Variable>();
+        for (int i = 0; i < options.localsPerMethod(); i++) {
+            var local = new Variable("local" + i, randomType());
+            locals.add(local);
+            line(2, local.type().code + " " + local.name() + ";");
+        }
+
+        loopCounters = new ArrayList<>();
+        for (int i = 0; i < options.loopNesting(); i++) {
+            loopCounters.add("loop" + i);
+            line(2, "int loop" + i + ";");
+        }
+
+        // Locals are initialized before any statement can read them
+        for (var local : locals) {
+            line(2, local.name() + " = " + initializer(local.type()) + ";");
+        }
+        variables.addAll(locals);
+
+        callPending = index > 0;
+        int callAt = random.nextInt(Math.max(options.statementsPerMethod(), 1));
+
+        for (int i = 0; i < options.statementsPerMethod(); i++) {
+            if (callPending && i == callAt) {
+                generateCall(index - 1);
+            } else {
+                generateStatement(2, 0);
+            }
+        }
+
+        if (callPending) {
+            generateCall(index - 1);
+        }
+
+        // The result goes through a variable, the OLLIR generator only handles simple returns
+        line(2, "a = " + intExpression(options.expressionDepth()) + ";");
+        line(2, "return a;");
+        line(1, "}");
+    }
+
+    private void generateCall(int callee) {
+        line(2, randomVariable(VarType.INT).name() + " = this." + getMethodName(callee) + "(" + arguments() + ");");
+        callPending = false;
+    }
+
+    private void generateStatement(int indent, int loopDepth) {
+        int kind = random.nextInt(10);
+
+        if (kind < 2 && loopDepth < options.loopNesting()) {
+            generateWhile(indent, loopDepth);
+        } else if (kind < 4) {
+            generateIf(indent, loopDepth);
+        } else if (kind < 6) {
+            var array = randomVariable(VarType.ARRAY);
+            line(indent, array.name() + "[" + random.nextInt(ARRAY_SIZE) + "] = " + intExpression(options.expressionDepth()) + ";");
+        } else {
+            var target = randomVariable(random.nextInt(3) == 0 ? VarType.BOOLEAN : VarType.INT);
+            line(indent, target.name() + " = " + expression(target.type(), options.expressionDepth()) + ";");
+        }
+    }
+
+    private void generateWhile(int indent, int loopDepth) {
+        var counter = loopCounters.get(loopDepth);
+
+        line(indent, counter + " = 0;");
+        line(indent, "while (" + counter + " < " + LOOP_ITERATIONS + ") {");
+        generateStatement(indent + 1, loopDepth + 1);
+        generateStatement(indent + 1, loopDepth + 1);
+        line(indent + 1, counter + " = " + counter + " + 1;");
+        line(indent, "}");
+    }
+
+    private void generateIf(int indent, int loopDepth) {
+        line(indent, "if (" + condition() + ") {");
+        generateStatement(indent + 1, loopDepth);
+        line(indent, "} else {");
+        generateStatement(indent + 1, loopDepth);
+        line(indent, "}");
+    }
+
+    /**
+     * A chain of '&&' with the configured number of operands.
+     */
+    private String condition() {
+        var operands = new ArrayList<String>();
+        for (int i = 0; i < Math.max(options.andChainLength(), 1); i++) {
+            operands.add(booleanOperand(options.expressionDepth() - 1));
+        }
+
+        return String.join(" && ", operands);
+    }
+
+    private String expression(VarType type, int depth) {
+        return switch (type) {
+            case INT -> intExpression(depth);
+            case BOOLEAN -> booleanExpression(depth);
+            case ARRAY -> randomVariable(VarType.ARRAY).name();
+        };
+    }
+
+    private String intExpression(int depth) {
+        if (depth <= 1 || random.nextInt(4) == 0) {
+            return intLeaf();
+        }
+
+        return switch (random.nextInt(4)) {
+            case 0 -> intExpression(depth - 1) + " + " + intExpression(depth - 1);
+            case 1 -> intExpression(depth - 1) + " - " + intExpression(depth - 1);
+            case 2 -> parenthesize(intExpression(depth - 1)) + " * " + intLeaf();
+            default -> parenthesize(intExpression(depth - 1)) + " / " + (random.nextInt(MAX_LITERAL) + 1);
+        };
+    }
+
+    /**
+     * Wraps compound expressions in parentheses, leaving single operands as they are.
+     */
+    private static String parenthesize(String expression) {
+        return expression.contains(" ") ? "(" + expression + ")" : expression;
+    }
+
+    private String intLeaf() {
+        return switch (random.nextInt(5)) {
+            case 0 -> String.valueOf(random.nextInt(MAX_LITERAL));
+            case 1 -> randomVariable(VarType.ARRAY).name() + "[" + random.nextInt(ARRAY_SIZE) + "]";
+            case 2 -> randomVariable(VarType.ARRAY).name() + ".length";
+            default -> randomVariable(VarType.INT).name();
+        };
+    }
+
+    private String booleanExpression(int depth) {
+        if (depth <= 1 || random.nextInt(4) == 0) {
+            return booleanLeaf();
+        }
+
+        return switch (random.nextInt(3)) {
+            case 0 -> booleanOperand(depth - 1) + " && " + booleanOperand(depth - 1);
+            case 1 -> "!" + parenthesize(booleanExpression(depth - 1));
+            default -> intExpression(depth - 1) + " < " + intExpression(depth - 1);
+        };
+    }
+
+    /**
+     * A boolean expression that can be an operand of '&&' without parentheses.
+     */
+    private String booleanOperand(int depth) {
+        var expression = booleanExpression(depth);
+
+        return expression.contains("&&") ? parenthesize(expression) : expression;
+    }
+
+    private String booleanLeaf() {
+        return switch (random.nextInt(4)) {
+            case 0 -> random.nextBoolean() ? "true" : "false";
+            case 1 -> intLeaf() + " < " + intLeaf();
+            default -> randomVariable(VarType.BOOLEAN).name();
+        };
+    }
+
+    private String initializer(VarType type) {
+        return switch (type) {
+            case INT -> String.valueOf(random.nextInt(MAX_LITERAL));
+            case BOOLEAN -> random.nextBoolean() ? "true" : "false";
+            case ARRAY -> "new int[" + ARRAY_SIZE + "]";
+        };
+    }
+
+    private String arguments() {
+        return random.nextInt(MAX_LITERAL) + ", " + random.nextBoolean() + ", new int[" + ARRAY_SIZE + "]";
+    }
+
+    /**
+     * A variable of the given type in the current method; parameters ensure there is always at least one.
+     */
+    private Variable randomVariable(VarType type) {
+        var candidates = variables.stream().filter(variable -> variable.type() == type).toList();
+
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    private VarType randomType() {
+        return VarType.values()[random.nextInt(VarType.values().length)];
+    }
+
+    private static String getMethodName(int index) {
+        return "method" + index;
+    }
+
+    private void line(int indent, String text) {
+        code.append(INDENT.repeat(indent)).append(text).append("\n");
+    }
+}
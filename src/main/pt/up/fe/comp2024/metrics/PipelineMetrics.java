@@ -0,0 +1,179 @@
+package pt.up.fe.comp2024.metrics;
+
+import com.google.gson.GsonBuilder;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records wall time, CPU time and allocated bytes of each stage of a compilation.
+ * <p>
+ * A collector is attached to the thread running the compilation with {@link #start()}, and the stages report to it
+ * through {@link #measure(String)}, so the compiler interfaces do not need to change. When no collector is attached,
+ * measuring costs a single thread-local lookup. Since every compilation runs on a single thread, batch and daemon
+ * workers each get their own collector, which can then be combined with {@link #merge(PipelineMetrics)}.
+ * <p>
+ * Stages can be nested, e.g. each analysis pass is also measured inside the analysis stage, so the rows of a report
+ * should not be added together.
+ */
+public class PipelineMetrics {
+
+    public static final String TOTAL = "total";
+    public static final String PARSE = "parse";
+    public static final String PARSE_LL_FALLBACK = "parse: ll fallback";
+    public static final String SYMBOL_TABLE = "symbol table";
+    public static final String ANNOTATION = "annotation";
+    public static final String ANALYSIS = "analysis";
+    public static final String ANALYSIS_PASS = "analysis: ";
+    public static final String AST_OPTIMIZATION = "ast optimization";
+    public static final String OLLIR_GENERATION = "ollir generation";
+    public static final String OLLIR_PARSING = "ollir parsing";
+    public static final String REGISTER_ALLOCATION = "register allocation";
+    public static final String JASMIN = "jasmin";
+    public static final String CLASS_FILE = "class file";
+
+    private static final ThreadLocal<PipelineMetrics> CURRENT = new ThreadLocal<>();
+
+    private static final com.sun.management.ThreadMXBean THREADS = getThreadBean();
+
+    private static final Measurement NO_MEASUREMENT = () -> {
+    };
+
+    private final Map<String, StageMetrics> stages = new LinkedHashMap<>();
+
+    /**
+     * Attaches a new collector to the current thread.
+     *
+     * @return
+     */
+    public static PipelineMetrics start() {
+        var metrics = new PipelineMetrics();
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    /**
+     * Detaches this collector from the current thread.
+     */
+    public void stop() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Starts measuring a stage on the current thread, until the returned measurement is closed.
+     *
+     * @param stage
+     * @return
+     */
+    public static Measurement measure(String stage) {
+        var metrics = CURRENT.get();
+
+        if (metrics == null) {
+            return NO_MEASUREMENT;
+        }
+
+        long wallStart = System.nanoTime();
+        long cpuStart = cpuTime();
+        long allocatedStart = allocatedBytes();
+
+        return () -> metrics.getStage(stage).add(
+                System.nanoTime() - wallStart,
+                cpuStart < 0 ? -1 : cpuTime() - cpuStart,
+                allocatedStart < 0 ? -1 : allocatedBytes() - allocatedStart);
+    }
+
+    /**
+     * Adds the stages of another collector to this one.
+     *
+     * @param other
+     */
+    public void merge(PipelineMetrics other) {
+        for (var stage : other.stages.values()) {
+            getStage(stage.getName()).add(stage);
+        }
+    }
+
+    public List<StageMetrics> getStages() {
+        return new ArrayList<>(stages.values());
+    }
+
+    private StageMetrics getStage(String name) {
+        return stages.computeIfAbsent(name, StageMetrics::new);
+    }
+
+    public String toTable() {
+        var table = new StringBuilder();
+
+        table.append(String.format("%-36s %6s %12s %12s %14s%n", "Stage", "Calls", "Wall (ms)", "CPU (ms)", "Alloc (KB)"));
+        for (var stage : stages.values()) {
+            table.append(String.format("%-36s %6d %12.3f %12s %14s%n",
+                    stage.getName(),
+                    stage.getCalls(),
+                    stage.getWallNanos() / 1e6,
+                    stage.getCpuNanos() < 0 ? "n/a" : String.format("%.3f", stage.getCpuNanos() / 1e6),
+                    stage.getAllocatedBytes() < 0 ? "n/a" : String.format("%,d", stage.getAllocatedBytes() / 1024)));
+        }
+
+        return table.toString();
+    }
+
+    public String toJson() {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(Map.of("stages", getStages()));
+    }
+
+    /**
+     * Outputs the metrics as requested with '-m': a table for 'true' or 'table', JSON for 'json', and otherwise
+     * JSON written to the file with the given path.
+     *
+     * @param target
+     * @param out
+     */
+    public void write(String target, PrintStream out) {
+        switch (target) {
+            case "true", "table" -> out.print(toTable());
+            case "json" -> out.println(toJson());
+            default -> SpecsIo.write(new File(target), toJson());
+        }
+    }
+
+    private static long cpuTime() {
+        return THREADS != null && THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null && THREADS.isThreadAllocatedMemorySupported()
+                ? THREADS.getCurrentThreadAllocatedBytes()
+                : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        var bean = ManagementFactory.getThreadMXBean();
+
+        if (!(bean instanceof com.sun.management.ThreadMXBean threadBean)) {
+            return null;
+        }
+
+        if (threadBean.isThreadAllocatedMemorySupported() && !threadBean.isThreadAllocatedMemoryEnabled()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        return threadBean;
+    }
+
+    /**
+     * A stage being measured, closing it records the stage.
+     */
+    public interface Measurement extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
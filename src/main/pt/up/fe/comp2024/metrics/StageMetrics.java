@@ -0,0 +1,57 @@
+package pt.up.fe.comp2024.metrics;
+
+/**
+ * Accumulated cost of one stage of the pipeline.
+ */
+public class StageMetrics {
+
+    private final String name;
+    private int calls;
+    private long wallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    void add(long wallNanos, long cpuNanos, long allocatedBytes) {
+        this.calls++;
+        this.wallNanos += wallNanos;
+        this.cpuNanos += cpuNanos;
+        this.allocatedBytes += allocatedBytes;
+    }
+
+    void add(StageMetrics other) {
+        this.calls += other.calls;
+        this.wallNanos += other.wallNanos;
+        this.cpuNanos += other.cpuNanos;
+        this.allocatedBytes += other.allocatedBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCalls() {
+        return calls;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * CPU time of the thread that ran the stage, or -1 if the JVM does not measure it.
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Bytes allocated by the thread that ran the stage, or -1 if the JVM does not measure it.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -5,6 +5,7 @@ import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
 import pt.up.fe.comp2024.optimization.optimizers.ast.ASTOptimizer;
 import pt.up.fe.comp2024.optimization.optimizers.ollir.RegisterOptimizer;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
@@ -15,10 +16,18 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
+        OptUtils.resetTempNumber();
 
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        String ollirCode;
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.OLLIR_GENERATION)) {
+            var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+            ollirCode = visitor.visit(semanticsResult.getRootNode());
+        }
+
+        // The result parses the generated code back into the OLLIR model used by the backend
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.OLLIR_PARSING)) {
+            return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        }
     }
 
     @Override
@@ -29,7 +38,12 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
         if (numRegisters == null || numRegisters.equals("-1")) return ollirResult;
 
-        if (!new RegisterOptimizer(ollirResult, Integer.parseInt(numRegisters)).optimize()) {
+        boolean allocated;
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.REGISTER_ALLOCATION)) {
+            allocated = new RegisterOptimizer(ollirResult, Integer.parseInt(numRegisters)).optimize();
+        }
+
+        if (!allocated) {
             ollirResult.getReports().add(Report.newError(
                     Stage.OPTIMIZATION,
                     -1,
@@ -48,10 +62,12 @@ public class JmmOptimizationImpl implements JmmOptimization {
         String optFlag = semanticsResult.getConfig().get("optimize");
 
         if (optFlag != null && optFlag.equals("true")) {
-            new ASTOptimizer().visit(
-                    semanticsResult.getRootNode(),
-                    (JmmSymbolTable) semanticsResult.getSymbolTable()
-            );
+            try (var ignored = PipelineMetrics.measure(PipelineMetrics.AST_OPTIMIZATION)) {
+                new ASTOptimizer().visit(
+                        semanticsResult.getRootNode(),
+                        (JmmSymbolTable) semanticsResult.getSymbolTable()
+                );
+            }
         }
 
         return semanticsResult;
@@ -2,8 +2,9 @@ package pt.up.fe.comp2024.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.KindVisitor;
+import pt.up.fe.comp2024.ast.ScopeIndex;
 import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
@@ -14,7 +15,7 @@ import static pt.up.fe.comp2024.ast.Kind.*;
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
  */
-public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends KindVisitor<Void, OllirExprResult> {
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
     private final String END_STMT = ";\n";
@@ -23,8 +24,15 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
     private final JmmSymbolTable table;
 
+    private final ScopeIndex scopes;
+
     public OllirExprGeneratorVisitor(SymbolTable table) {
+        this(table, new ScopeIndex());
+    }
+
+    public OllirExprGeneratorVisitor(SymbolTable table, ScopeIndex scopes) {
         this.table = (JmmSymbolTable) table;
+        this.scopes = scopes;
     }
 
     @Override
@@ -82,19 +90,10 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         var hasName = secondChild.hasAttribute("name");
         var isArrayAccessOp = isNodeType(ARRAY_ACCESS_OP.toString(), secondChild);
 
-        var fields = table.getFields();
-        var methodName = (arrayAccessNode.getAncestor(METHOD_DECLARATION).isPresent()) ?
-                arrayAccessNode.getAncestor(METHOD_DECLARATION).get().get("name") :
-                arrayAccessNode.getAncestor(MAIN_METHOD_DECLARATION).get().get("name");
-        var locals = table.getLocalVariables(methodName);
-        var params = table.getParameters(methodName);
+        var methodName = scopes.getMethodName(arrayAccessNode);
+        var isField = table.isField(firstChildValue, methodName);
 
-        var firstChildName = firstChildValue;
-        var isNotLocal = locals.stream().noneMatch(l -> l.getName().equals(firstChildName));
-        var isNotParam = params.stream().noneMatch(p -> p.getName().equals(firstChildName));
-        var isField = fields.stream().anyMatch(f -> f.getName().equals(firstChildName));
-
-        if ((isNotLocal && isNotParam && isField) || firstChildValue.isEmpty()) {
+        if (isField || firstChildValue.isEmpty()) {
             var result = visit(firstChild);
 
             var temp = OptUtils.getTemp();
@@ -159,10 +158,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             if (isMethodCall || isArrayAccess || isIdentifier) {
                 if (isIdentifier) {
                     var secondChildValue = (hasValue) ? secondChild.get("value") : secondChild.get("name");
-                    var indexIsNotLocal = locals.stream().noneMatch(l -> l.getName().equals(secondChildValue));
-                    var indexIsNotParam = params.stream().noneMatch(p -> p.getName().equals(secondChildValue));
-                    var indexIsField = fields.stream().anyMatch(f -> f.getName().equals(secondChildValue));
-                    if (indexIsNotLocal && indexIsNotParam && indexIsField) {
+                    if (table.isField(secondChildValue, methodName)) {
                         var result = visit(secondChild);
                         var temp = OptUtils.getTemp();
                         var tempType = OptUtils.toOllirType(TypeUtils.getExprType(secondChild, table));
@@ -406,25 +402,11 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         } else {
             var exprHasValue = methodCallNode.getJmmChild(0).hasAttribute("value");
 
-            var methodName = (methodCallNode.getAncestor(METHOD_DECLARATION).isPresent()) ?
-                    methodCallNode.getAncestor(METHOD_DECLARATION).get().get("name") :
-                    methodCallNode.getAncestor(MAIN_METHOD_DECLARATION).get().get("name");
-
-            var params = table.getParameters(methodName);
-            var locals = table.getLocalVariables(methodName);
-            var fields = table.getFields();
+            var methodName = scopes.getMethodName(methodCallNode);
 
-            var isNotLocal = false;
-            var isNotParam = false;
-            var isField = false;
+            var isField = exprHasValue && table.isField(methodCallNode.getJmmChild(0).get("value"), methodName);
 
-            if (exprHasValue) {
-                isNotLocal = locals.stream().noneMatch(l -> l.getName().equals(methodCallNode.getJmmChild(0).get("value")));
-                isNotParam = params.stream().noneMatch(p -> p.getName().equals(methodCallNode.getJmmChild(0).get("value")));
-                isField = fields.stream().anyMatch(f -> f.getName().equals(methodCallNode.getJmmChild(0).get("value")));
-            }
-
-            if (isNotLocal && isNotParam && isField) {
+            if (isField) {
                 var result = visit(methodCallNode.getJmmChild(0));
 
                 var temp = OptUtils.getTemp();
@@ -474,12 +456,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         code.append("\"" + name + "\"");
 
         if (methodCallNode.getNumChildren() > 1) {
-            var ancestor = methodCallNode.getAncestor(METHOD_DECLARATION).isPresent() ?
-                    methodCallNode.getAncestor(METHOD_DECLARATION).get() :
-                    methodCallNode.getAncestor(MAIN_METHOD_DECLARATION).get();
-
-            var locals = table.getLocalVariables(ancestor.get("name"));
-            var params = table.getParameters(ancestor.get("name"));
+            var ancestorName = scopes.getMethodName(methodCallNode);
             int index = 1;
             boolean isVararg = false;
             for (index = 1; index < methodCallNode.getNumChildren(); index++) {
@@ -513,8 +490,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
                     }
                 }
 
-                var isNotLocal = locals == null || locals.stream().noneMatch(l -> l.getName().equals(childValue));
-                var isNotParam = params == null || params.stream().noneMatch(p -> p.getName().equals(childValue));
+                var isVariable = isVariable(childValue, ancestorName);
                 var isBinExpr = isNodeType(BINARY_OP.toString(), methodCallNode.getJmmChild(index));
                 var isObjectDecl = isNodeType(OBJECT_DECLARATION.toString(), methodCallNode.getJmmChild(index));
                 var isArrayExpr = isNodeType(ARRAY_EXPRESSION.toString(), methodCallNode.getJmmChild(index));
@@ -528,7 +504,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
                     computation.append(result.getCode());
 
                     code.append(temp).append(tempType);
-                } else if (!(isLiteral || !isNotLocal || !isNotParam || isObjectDecl || isBinExpr)) {
+                } else if (!(isLiteral || isVariable || isObjectDecl || isBinExpr)) {
                     var temp = OptUtils.getTemp();
                     var tempType = OptUtils.toOllirType(TypeUtils.getExprType(methodCallNode.getJmmChild(index), table));
 
@@ -567,11 +543,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
                     if (isIdentifier) {
                         computation.append(result.getComputation());
                         var childValue = child.get("value");
-                        var fields = table.getFields();
-                        var isNotLocal = locals.stream().noneMatch(l -> l.getName().equals(childValue));
-                        var isNotParam = params.stream().noneMatch(p -> p.getName().equals(childValue));
-                        var isField = fields.stream().anyMatch(f -> f.getName().equals(childValue));
-                        if (isNotLocal && isNotParam && isField) {
+                        if (table.isField(childValue, ancestorName)) {
                             var temp = OptUtils.getTemp();
                             var tempType = OptUtils.toOllirType(TypeUtils.getExprType(child, table));
                             computation.append(temp).append(tempType).append(SPACE)
@@ -661,24 +633,14 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         var isChildMethodCall = isNodeType(METHOD_CALL.toString(), child);
         var isChildUnaryOp = isNodeType(UNARY_OP.toString(), child);
 
-        var methodName = (unaryExprNode.getAncestor(METHOD_DECLARATION).isPresent()) ?
-                unaryExprNode.getAncestor(METHOD_DECLARATION).get().get("name") :
-                unaryExprNode.getAncestor(MAIN_METHOD_DECLARATION).get().get("name");
-
-        var locals = table.getLocalVariables(methodName);
-        var params = table.getParameters(methodName);
+        var methodName = scopes.getMethodName(unaryExprNode);
 
         var childIsField = false;
 
         var hasValue = child.hasAttribute("value");
 
         if (!child.getKind().equals(PAREN_EXPR.toString()) && hasValue) {
-            var childIsNotLocal = locals.stream().noneMatch(l -> l.getName().equals(child.get("value")));
-            var childIsNotParam = params.stream().noneMatch(p -> p.getName().equals(child.get("value")));
-
-            var childCouldBeField = table.getFields().stream().anyMatch(f -> f.getName().equals(child.get("value")));
-
-            childIsField = childIsNotLocal && childIsNotParam && childCouldBeField;
+            childIsField = table.isField(child.get("value"), methodName);
         }
 
         var result = visit(unaryExprNode.getJmmChild(0));
@@ -722,12 +684,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         String endLabel = "endLabel" + (OptUtils.getCurrentTempNum() + 1);
         String conditionLabel = "condition" + (OptUtils.getCurrentTempNum() + 1) + "Label";
         String result = OptUtils.getTemp() + ".bool";
-        var methodName = (binExprNode.getAncestor(METHOD_DECLARATION).isPresent()) ?
-                binExprNode.getAncestor(METHOD_DECLARATION).get().get("name") :
-                binExprNode.getAncestor(MAIN_METHOD_DECLARATION).get().get("name");
-        var locals = table.getLocalVariables(methodName);
-        var params = table.getParameters(methodName);
-        var fields = table.getFields();
+        var methodName = scopes.getMethodName(binExprNode);
 
         for (var i = 0; i < children.size() - 1; i++) {
             var child = children.get(i);
@@ -747,11 +704,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
                     }
                 }
                 if (childToAnalyze != null && childToAnalyze.getKind().equals(IDENTIFIER.toString())) {
-                    var childIdentifier = childToAnalyze;
-                    var isNotLocal = locals.stream().noneMatch(l -> l.getName().equals(childIdentifier.get("value")));
-                    var isNotParam = params.stream().noneMatch(p -> p.getName().equals(childIdentifier.get("value")));
-                    var isField = fields.stream().anyMatch(f -> f.getName().equals(childIdentifier.get("value")));
-                    getFieldCond = isNotLocal && isNotParam && isField;
+                    getFieldCond = table.isField(childToAnalyze.get("value"), methodName);
                 }
             }
             var childResultToAppend = childResult.getCode();
@@ -809,13 +762,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
         StringBuilder computation = new StringBuilder();
 
-        var methodName = (binExprNode.getAncestor(METHOD_DECLARATION).isPresent()) ?
-                binExprNode.getAncestor(METHOD_DECLARATION).get().get("name") :
-                binExprNode.getAncestor(MAIN_METHOD_DECLARATION).get().get("name");
-
-        var locals = table.getLocalVariables(methodName);
-        var params = table.getParameters(methodName);
-        var fields = table.getFields();
+        var methodName = scopes.getMethodName(binExprNode);
 
         String firstChildValue;
         var firstChild = binExprNode.getJmmChild(0);
@@ -847,12 +794,11 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             }
         }
 
-        var isNotLocal = locals.stream().noneMatch(l -> l.getName().equals(firstChildValue));
-        var isNotParam = params.stream().noneMatch(p -> p.getName().equals(firstChildValue));
+        var isVariable = isVariable(firstChildValue, methodName);
         var isIntLiteral = isNodeType(INTEGER_LITERAL.toString(), binExprNode.getJmmChild(0));
         var isBoolLiteral = isNodeType(BOOLEAN_LITERAL.toString(), binExprNode.getJmmChild(0));
 
-        if (!(!isNotLocal || !isNotParam || isIntLiteral || isBoolLiteral)) {
+        if (!(isVariable || isIntLiteral || isBoolLiteral)) {
             if (lhsIsBinExpr) {
                 computation.append(lhs.getComputation());
                 lhsToAppend = lhs.getCode();
@@ -888,12 +834,11 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
         var rhs = visit(binExprNode.getJmmChild(1));
 
-        isNotLocal = locals.stream().noneMatch(l -> l.getName().equals(secondChildValue));
-        isNotParam = params.stream().noneMatch(p -> p.getName().equals(secondChildValue));
+        isVariable = isVariable(secondChildValue, methodName);
         isIntLiteral = isNodeType(INTEGER_LITERAL.toString(), binExprNode.getJmmChild(1));
         isBoolLiteral = isNodeType(BOOLEAN_LITERAL.toString(), binExprNode.getJmmChild(1));
 // isNotLocal && naofor param && nao for literal == field || methodcall
-        if (!(!isNotLocal || !isNotParam || isIntLiteral || isBoolLiteral)) {
+        if (!(isVariable || isIntLiteral || isBoolLiteral)) {
             if (rhsIsBinExpr) {
                 computation.append(rhs.getComputation());
                 rhsToAppend = rhs.getCode();
@@ -944,14 +889,13 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         computation.append(code).append(SPACE)
                 .append(ASSIGN).append(resOllirType).append(SPACE);
 
-        isNotLocal = locals.stream().noneMatch(l -> l.getName().equals(firstChildValue));
-        isNotParam = params.stream().noneMatch(p -> p.getName().equals(firstChildValue));
+        isVariable = isVariable(firstChildValue, methodName);
 
         var isLiteral = isNodeType(INTEGER_LITERAL.toString(), binExprNode.getJmmChild(0)) || isNodeType(BOOLEAN_LITERAL.toString(), binExprNode.getJmmChild(0));
         var hasValue = binExprNode.getJmmChild(0).hasAttribute("value");
-        var isField = hasValue && fields.stream().anyMatch(f -> f.getName().equals(binExprNode.getJmmChild(0).get("value")));
+        var isField = hasValue && table.resolve(binExprNode.getJmmChild(0).get("value"), methodName) != null;
 
-        if (!binExprNode.getJmmChild(0).hasAttribute("value") || isLiteral || !isNotLocal || !isNotParam || isField) {
+        if (!binExprNode.getJmmChild(0).hasAttribute("value") || isLiteral || isVariable || isField) {
             computation.append(lhsToAppend).append(SPACE);
         }
 
@@ -970,25 +914,11 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         Type type = TypeUtils.getExprType(varRefNode, table);
         String ollirType = OptUtils.toOllirType(type);
 
-        var methodName = (varRefNode.getAncestor(METHOD_DECLARATION).isPresent()) ?
-                varRefNode.getAncestor(METHOD_DECLARATION).get().get("name") :
-                varRefNode.getAncestor(MAIN_METHOD_DECLARATION).get().get("name");
-
-        var locals = table.getLocalVariables(methodName);
-        var params = table.getParameters(methodName);
-
-        if (locals.stream().anyMatch(l -> l.getName().equals(id))) {
-            String code = id + ollirType;
-            return new OllirExprResult(code);
-        }
+        var methodName = scopes.getMethodName(varRefNode);
 
-        if (params.stream().anyMatch(p -> p.getName().equals(id))) {
-            String code = id + ollirType;
-            return new OllirExprResult(code);
-        }
+        var declaration = table.resolve(id, methodName);
 
-        var fields = table.getFields();
-        if (fields.stream().anyMatch(f -> f.getName().equals(id))) {
+        if (declaration != null && declaration.isField()) {
             String code = "getfield(this, " + id + ollirType + ")" + ollirType;
             return new OllirExprResult(code);
         }
@@ -999,7 +929,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
     }
 
     private OllirExprResult visitInteger(JmmNode integerNode, Void unused) {
-        var intType = new Type(TypeUtils.getIntTypeName(), false);
+        var intType = TypeUtils.getType(TypeUtils.getIntTypeName(), false);
         String ollirIntType = OptUtils.toOllirType(intType);
         String code = integerNode.get("value") + ollirIntType;
 
@@ -1007,7 +937,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
     }
 
     private OllirExprResult visitBoolean(JmmNode booleanNode, Void unused) {
-        var booleanType = new Type(TypeUtils.getBooleanTypeName(), false);
+        var booleanType = TypeUtils.getType(TypeUtils.getBooleanTypeName(), false);
         String ollirBooleanType = OptUtils.toOllirType(booleanType);
         String value = booleanNode.get("value").equals("true") ? "1" : "0";
         String code = value + ollirBooleanType;
@@ -1043,4 +973,13 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         }
         return value;
     }
+
+    /**
+     * @return true if the name refers to a parameter or local variable of the method
+     */
+    private boolean isVariable(String name, String methodName) {
+        var declaration = table.resolve(name, methodName);
+
+        return declaration != null && !declaration.isField();
+    }
 }
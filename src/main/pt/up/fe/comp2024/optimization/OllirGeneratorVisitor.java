@@ -3,10 +3,13 @@ package pt.up.fe.comp2024.optimization;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.KindVisitor;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.ScopeIndex;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,7 +19,7 @@ import static pt.up.fe.comp2024.ast.Kind.*;
 /**
  * Generates OLLIR code from JmmNodes that are not expressions.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class OllirGeneratorVisitor extends KindVisitor<Void, String> {
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
     private final String END_STMT = ";\n";
@@ -34,13 +37,16 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private final String WHILE_END = "whileEnd";
     private final String WHILE_LOOP = "whileLoop";
 
-    private final SymbolTable table;
+    private final JmmSymbolTable table;
+
+    private final ScopeIndex scopes;
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
     public OllirGeneratorVisitor(SymbolTable table) {
-        this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.table = (JmmSymbolTable) table;
+        this.scopes = new ScopeIndex();
+        exprVisitor = new OllirExprGeneratorVisitor(table, scopes);
     }
 
     @Override
@@ -63,6 +69,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitProgram(JmmNode programNode, Void unused) {
         StringBuilder code = new StringBuilder();
 
+        scopes.index(programNode);
+
         programNode.getChildren().stream()
                 .map(this::visit)
                 .forEach(code::append);
@@ -220,7 +228,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitReturn(JmmNode returnNode, Void unused) {
-        String methodName = returnNode.getAncestor(METHOD_DECLARATION).get().get("name");
+        String methodName = scopes.getMethodName(returnNode);
         Type retType = table.getReturnType(methodName);
 
         StringBuilder code = new StringBuilder(RETURN_STMT);
@@ -239,17 +247,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             var isAttr = isNodeType(ATTRIBUTE.toString(), returnNode.getJmmChild(0));
             var isUnaryOp = isNodeType(UNARY_OP.toString(), returnNode.getJmmChild(0));
 
-            var isNotLocal = true;
-            var isNotParam = true;
-
-            if (isIdentifier) {
-                isNotLocal = table.getLocalVariables(methodName).stream().noneMatch(f -> f.getName().equals(returnNode.getJmmChild(0).get("value")));
-                isNotParam = table.getParameters(methodName).stream().noneMatch(p -> p.getName().equals(returnNode.getJmmChild(0).get("value")));
-            }
+            var isField = isIdentifier && table.isField(returnNode.getJmmChild(0).get("value"), methodName);
 
-            var value = returnNode.getJmmChild(0).hasAttribute("value") ? returnNode.getJmmChild(0).get("value") : "";
-
-            if (table.getFields().stream().anyMatch(f -> f.getName().equals(value)) && isNotLocal && isNotParam) {
+            if (isField) {
                 code.append(expr.getComputation());
 
                 var temp = OptUtils.getTemp();
@@ -436,19 +436,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         code.append(expr.getComputation());
 
-        var fields = table.getFields();
-        var methodName = (arrayAssignStmtNode.getAncestor(METHOD_DECLARATION).isPresent()) ?
-                arrayAssignStmtNode.getAncestor(METHOD_DECLARATION).get().get("name") :
-                arrayAssignStmtNode.getAncestor(MAIN_METHOD_DECLARATION).get().get("name");
-
-        var locals = table.getLocalVariables(methodName);
-        var params = table.getParameters(methodName);
+        var methodName = scopes.getMethodName(arrayAssignStmtNode);
+        var isField = table.isField(lhs, methodName);
 
-        var isNotLocal = locals.stream().noneMatch(f -> f.getName().equals(lhs));
-        var isNotParam = params.stream().noneMatch(p -> p.getName().equals(lhs));
-        var isField = fields.stream().anyMatch(f -> f.getName().equals(lhs));
-
-        if ((isField && isNotLocal && isNotParam) || indexIsMethodCall || indexIsIdentifier) {
+        if (isField || indexIsMethodCall || indexIsIdentifier) {
             var temp = OptUtils.getTemp();
             var tempType = OptUtils.toOllirType(thisType);
 
@@ -471,11 +462,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
             if (indexIsArrayAccess || indexIsMethodCall || indexIsIdentifier) {
                 if (indexIsIdentifier) {
-                    var indexIsNotLocal = locals.stream().noneMatch(f -> f.getName().equals(arrayAssignStmtNode.getJmmChild(0).get("value")));
-                    var indexIsNotParam = params.stream().noneMatch(p -> p.getName().equals(arrayAssignStmtNode.getJmmChild(0).get("value")));
-                    var indexIsField = fields.stream().anyMatch(f -> f.getName().equals(arrayAssignStmtNode.getJmmChild(0).get("value")));
+                    var indexIsField = table.isField(arrayAssignStmtNode.getJmmChild(0).get("value"), methodName);
 
-                    if (indexIsField && indexIsNotLocal && indexIsNotParam) {
+                    if (indexIsField) {
                         var tempIndex = OptUtils.getTemp();
                         var tempIndexType = OptUtils.toOllirType(TypeUtils.getExprType(arrayAssignStmtNode.getJmmChild(0), table));
 
@@ -574,23 +563,74 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             return code.toString();
         }
 
+        var elementType = OptUtils.toOllirType(new Type(thisType.getName(), false));
+        var valueNode = arrayAssignStmtNode.getJmmChild(1);
+        var value = toOperand(valueNode, exprVisitor.visit(valueNode), elementType, code);
+
         code.append(lhs);
         code.append('[');
         code.append(expr.getCode());
         code.append(']');
-        code.append(OptUtils.toOllirType(new Type(thisType.getName(), false)));
-        expr = exprVisitor.visit(arrayAssignStmtNode.getJmmChild(1));
-
+        code.append(elementType);
         code.append(SPACE);
         code.append(ASSIGN);
-        code.append(OptUtils.toOllirType(new Type(thisType.getName(), false)));
+        code.append(elementType);
         code.append(SPACE);
-        code.append(expr.getCode());
+        code.append(value);
         code.append(END_STMT);
 
         return code.toString();
     }
 
+    /**
+     * Appends the computation of a value that is stored to a field or an array element, which must be a single
+     * operand, and returns that operand. Values the expression visitor does not return as an operand are first stored
+     * in a temporary.
+     *
+     * @param valueNode
+     * @param value     the result of the expression visitor for the node
+     * @param ollirType
+     * @param code
+     * @return
+     */
+    private String toOperand(JmmNode valueNode, OllirExprResult value, String ollirType, StringBuilder code) {
+        code.append(value.getComputation());
+
+        if (isOperand(valueNode)) {
+            return value.getCode();
+        }
+
+        var temp = OptUtils.getTemp() + ollirType;
+        code.append(temp).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE).append(value.getCode());
+        if (!code.toString().endsWith(END_STMT))
+            code.append(END_STMT);
+
+        return temp;
+    }
+
+    /**
+     * True if the expression visitor returns the node as a single operand: a literal, a parameter or local variable,
+     * or an expression it computes into a temporary, which are object creations and operations that are not directly
+     * assigned to a variable.
+     *
+     * @param node
+     * @return
+     */
+    private boolean isOperand(JmmNode node) {
+        var kind = Kind.of(node);
+
+        return switch (kind) {
+            case INTEGER_LITERAL, BOOLEAN_LITERAL, OBJECT_DECLARATION -> true;
+            case IDENTIFIER -> {
+                var declaration = table.resolve(node.get("value"), scopes.getMethodName(node));
+                yield declaration != null && !declaration.isField();
+            }
+            case BINARY_OP -> !ASSIGN_STMT.check(node.getParent()) || node.get("op").equals("&&");
+            case PAREN_EXPR -> isOperand(node.getJmmChild(0));
+            default -> false;
+        };
+    }
+
     private String visitAssignStmt(JmmNode assignStmtNode, Void unused) {
         var lhs = assignStmtNode.get("name");
 
@@ -601,32 +641,23 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         Type thisType = TypeUtils.getExprType(assignStmtNode, table);
         String typeString = OptUtils.toOllirType(thisType);
 
-        var fields = table.getFields();
-        var methodName = (assignStmtNode.getAncestor(METHOD_DECLARATION).isPresent()) ?
-                assignStmtNode.getAncestor(METHOD_DECLARATION).get().get("name") :
-                assignStmtNode.getAncestor(MAIN_METHOD_DECLARATION).get().get("name");
+        var methodName = scopes.getMethodName(assignStmtNode);
 
-        var locals = table.getLocalVariables(methodName);
-        var params = table.getParameters(methodName);
-
-        var isNotLocal = locals.stream().noneMatch(f -> f.getName().equals(lhs));
-        var isNotParam = params.stream().noneMatch(p -> p.getName().equals(lhs));
-
-        if (fields.stream().anyMatch(f -> f.getName().equals(lhs)) && isNotLocal && isNotParam) {
+        if (table.isField(lhs, methodName)) {
 
             var isMethodCall = isNodeType(METHOD_CALL.toString(), child);
             var isArrayDecl = isNodeType(ARRAY_DECLARATION.toString(), child);
             var isIdentifier = isNodeType(IDENTIFIER.toString(), child);
-            var isNotLocalId = true;
-            var isNotParamId = true;
             var isArrayAccess = isNodeType(ARRAY_ACCESS_OP.toString(), child);
 
+            // An identifier that is not a parameter or local variable of the method
+            var isNotVariableId = false;
             if (isIdentifier) {
-                isNotLocalId = locals.stream().noneMatch(f -> f.getName().equals(child.get("value")));
-                isNotParamId = params.stream().noneMatch(p -> p.getName().equals(child.get("value")));
+                var declaration = table.resolve(child.get("value"), methodName);
+                isNotVariableId = declaration == null || declaration.isField();
             }
 
-            if (isMethodCall || isArrayDecl || (isNotLocalId && isNotParamId && isIdentifier) || isArrayAccess) {
+            if (isMethodCall || isArrayDecl || isNotVariableId || isArrayAccess) {
                 var temp = OptUtils.getTemp();
                 var tempType = OptUtils.toOllirType(thisType);
                 code.append(rhs.getComputation());
@@ -685,13 +716,15 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
                 return code.toString();
             }
 
+            var value = toOperand(child, rhs, typeString, code);
+
             code.append("putfield(this,");
             code.append(SPACE);
             code.append(lhs);
             code.append(typeString);
             code.append(",");
             code.append(SPACE);
-            code.append(rhs.getCode());
+            code.append(value);
             code.append(").V");
             code.append(END_STMT);
 
@@ -701,10 +734,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         var isIdentifier = isNodeType(IDENTIFIER.toString(), child);
 
         if (isIdentifier) {
-            var isLocal = locals.stream().anyMatch(f -> f.getName().equals(child.get("value")));
-            var isParam = params.stream().anyMatch(p -> p.getName().equals(child.get("value")));
+            var declaration = table.resolve(child.get("value"), methodName);
 
-            if (isLocal || isParam) {
+            if (declaration != null && !declaration.isField()) {
                 code.append(lhs);
                 code.append(typeString);
                 code.append(SPACE);
@@ -717,7 +749,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
                 return code.toString();
             }
 
-            if (fields.stream().anyMatch(f -> f.getName().equals(child.get("value")))) {
+            if (declaration != null) {
                 var temp = OptUtils.getTemp();
                 var tempType = OptUtils.toOllirType(thisType);
 
@@ -839,7 +871,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         StringBuilder code = new StringBuilder();
 
         for (var child : node.getChildren()) {
-            if (fromString(child.getKind()).isExpr() && node.getParent().getKind().equals(SCOPE_STMT.toString())) {
+            if (Kind.of(child).isExpr() && SCOPE_STMT.check(node.getParent())) {
                 code.append(exprVisitor.visit(child).getCode());
             } else code.append(visit(child));
         }
@@ -6,7 +6,15 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import static pt.up.fe.comp2024.ast.Kind.PRIMITIVE_TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
+    // Each compilation gets its own counter so that files compiled in parallel do not interleave temporaries
+    private static final ThreadLocal<int[]> tempNumber = ThreadLocal.withInitial(() -> new int[]{-1});
+
+    /**
+     * Restarts temporary numbering for the compilation running on the current thread.
+     */
+    public static void resetTempNumber() {
+        tempNumber.get()[0] = -1;
+    }
 
     public static String getTemp() {
         return getTemp("tmp");
@@ -17,12 +25,11 @@ public class OptUtils {
     }
 
     public static int getNextTempNum() {
-        tempNumber += 1;
-        return tempNumber;
+        return ++tempNumber.get()[0];
     }
 
     public static int getCurrentTempNum() {
-        return tempNumber;
+        return tempNumber.get()[0];
     }
 
     public static String toOllirType(JmmNode typeNode) {
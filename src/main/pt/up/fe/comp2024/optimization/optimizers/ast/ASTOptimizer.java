@@ -1,10 +1,10 @@
 package pt.up.fe.comp2024.optimization.optimizers.ast;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
-public class ASTOptimizer extends PreorderJmmVisitor<JmmSymbolTable, Void> {
+public class ASTOptimizer extends PreorderKindVisitor<JmmSymbolTable, Void> {
 
     String currentMethod;
 
@@ -1,6 +1,7 @@
 package pt.up.fe.comp2024.optimization.optimizers.ast;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.ScopeIndex;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import java.util.HashMap;
@@ -14,10 +15,20 @@ public class ConstantPropagator extends ConstantOptimizer {
 
     private final HashMap<String, Stack<Boolean>> assignmentsConditioned = new HashMap<>();
 
+    private ScopeIndex scopes;
+
     public ConstantPropagator() {
         setDefaultValue(() -> null);
     }
 
+    @Override
+    public boolean optimize(JmmNode method, JmmSymbolTable table) {
+        // The identifiers replaced while visiting are leaves, so the index stays valid
+        scopes = new ScopeIndex(method);
+
+        return super.optimize(method, table);
+    }
+
     protected void cleanUp() {
         for (String id : assignments.keySet()) {
             cleanLiteralAssignments(id);
@@ -103,33 +114,21 @@ public class ConstantPropagator extends ConstantOptimizer {
 
     private boolean isPartOfIfCondition(JmmNode node) {
 
-        if (node.getAncestor("IfStmt").isPresent()) {
-            JmmNode ifStmt = node.getAncestor("IfStmt").get();
-            return ifStmt.getChild(0).getDescendantsAndSelfStream().anyMatch(n -> n == node);
-        }
-        return false;
+        return scopes.getConditional(node) != null && scopes.isInCondition(node);
     }
 
     private boolean refersConditionedAssignment(JmmNode node) {
-        if (node.getAncestor("IfStmt").isPresent()) {
-            JmmNode ifStmt = node.getAncestor("IfStmt").get();
-            if (ifStmt.getDescendants("AssignStmt").stream().anyMatch(
-                    n -> n.get("name").equals(node.get("value"))
-            )) {
-                return true;
-            }
+        JmmNode ifStmt = scopes.getConditional(node);
+        if (ifStmt != null && scopes.getAssignedVariables(ifStmt).contains(node.get("value"))) {
+            return true;
         }
-        if (node.getAncestor("WhileStmt").isPresent()) {
-            JmmNode whileStmt = node.getAncestor("WhileStmt").get();
-            return whileStmt.getDescendants("AssignStmt").stream().anyMatch(
-                    n -> n.get("name").equals(node.get("value"))
-            );
-        }
-        return false;
+
+        JmmNode whileStmt = scopes.getLoop(node);
+        return whileStmt != null && scopes.getAssignedVariables(whileStmt).contains(node.get("value"));
     }
 
     private boolean isAssignmentConditioned(JmmNode node) {
 
-        return node.getAncestor("IfStmt").isPresent() || node.getAncestor("WhileStmt").isPresent();
+        return scopes.getConditional(node) != null || scopes.getLoop(node) != null;
     }
 }
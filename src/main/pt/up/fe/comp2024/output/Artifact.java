@@ -0,0 +1,51 @@
+package pt.up.fe.comp2024.output;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Outputs of a compilation that can be requested with '-a'.
+ */
+public enum Artifact {
+    AST(".ast"),
+    OLLIR(".ollir"),
+    JASMIN(".j"),
+    CLASS(".class");
+
+    private final String extension;
+
+    Artifact(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public boolean isBinary() {
+        return this == CLASS;
+    }
+
+    /**
+     * Parses a comma-separated list of artifact names, e.g. 'ollir,jasmin'.
+     *
+     * @param list
+     * @return
+     */
+    public static Set<Artifact> parseList(String list) {
+        var artifacts = EnumSet.noneOf(Artifact.class);
+
+        for (String name : list.split(",")) {
+            name = name.strip();
+            if (name.isEmpty()) continue;
+
+            try {
+                artifacts.add(Artifact.valueOf(name.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unknown artifact '" + name + "', expected one of ast, ollir, jasmin, class");
+            }
+        }
+
+        return artifacts;
+    }
+}
@@ -0,0 +1,98 @@
+package pt.up.fe.comp2024.output;
+
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outputs the artifacts selected in the config for a compilation.
+ */
+public class ArtifactEmitter {
+
+    private static final String EXTENSION = ".jmm";
+
+    private final Set<Artifact> artifacts;
+    private final ArtifactSink sink;
+
+    public ArtifactEmitter(Set<Artifact> artifacts, ArtifactSink sink) {
+        this.artifacts = artifacts;
+        this.sink = sink;
+    }
+
+    /**
+     * Artifacts go to the directory given with '-d' if there is one. Otherwise, text artifacts are printed to the
+     * given stream and class files are written to the class directory of the config, or to the working directory if the
+     * config does not come from {@link CompilerConfig#parseArgs(String[])}.
+     *
+     * @param config
+     * @param out
+     * @return
+     */
+    public static ArtifactEmitter fromConfig(Map<String, String> config, PrintStream out) {
+        var artifacts = CompilerConfig.getArtifacts(config);
+        var outputDir = CompilerConfig.getOutputDir(config);
+        var classDir = CompilerConfig.getClassDir(config).map(File::toPath).orElse(Path.of("").toAbsolutePath());
+
+        ArtifactSink sink = outputDir.isPresent()
+                ? new DirectorySink(outputDir.get().toPath())
+                : new StreamSink(out, new DirectorySink(classDir));
+
+        return new ArtifactEmitter(artifacts, sink);
+    }
+
+    public boolean isEmpty() {
+        return artifacts.isEmpty();
+    }
+
+    /**
+     * Outputs the selected artifacts of a successful compilation.
+     *
+     * @param session
+     */
+    public void emit(CompilationSession session) {
+        if (artifacts.isEmpty()) return;
+
+        var name = getName(session);
+
+        try {
+            for (var artifact : artifacts) {
+                switch (artifact) {
+                    // Generating the OLLIR applies the AST optimizations, so the tree is output in its final form
+                    case AST -> {
+                        session.getOllirResult();
+                        sink.writeText(artifact, name,
+                                writer -> AstWriter.write(session.getSemanticsResult().getRootNode(), writer));
+                    }
+                    case OLLIR -> sink.writeText(artifact, name, writer -> writer.write(session.getOllirCode()));
+                    case JASMIN -> sink.writeText(artifact, name, writer -> writer.write(session.getJasminCode()));
+                    case CLASS -> sink.writeBinary(artifact, session.getClassName(),
+                            stream -> stream.write(session.getClassBytes()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the artifacts of " + name, e);
+        }
+    }
+
+    /**
+     * Text artifacts are named after the input file, so that inputs declaring classes with the same name do not
+     * overwrite each other. Class files must be named after their class.
+     */
+    private static String getName(CompilationSession session) {
+        var inputFile = CompilerConfig.getInputFile(session.getConfig());
+
+        if (inputFile.isEmpty()) {
+            return session.getClassName();
+        }
+
+        var name = new File(inputFile.get().getName()).getName();
+        return name.endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : name;
+    }
+}
@@ -0,0 +1,42 @@
+package pt.up.fe.comp2024.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Destination of the artifacts of a compilation.
+ * <p>
+ * Artifacts are produced by callbacks that write directly to the sink, so no artifact has to be built as a
+ * single String before being output.
+ */
+public interface ArtifactSink {
+
+    /**
+     * Writes a text artifact.
+     *
+     * @param artifact the kind of artifact
+     * @param name     name of the artifact, without extension
+     * @param content  writes the contents of the artifact to the given writer
+     * @throws IOException
+     */
+    void writeText(Artifact artifact, String name, TextContent content) throws IOException;
+
+    /**
+     * Writes a binary artifact.
+     *
+     * @param artifact the kind of artifact
+     * @param name     name of the artifact, without extension
+     * @param content  writes the contents of the artifact to the given stream
+     * @throws IOException
+     */
+    void writeBinary(Artifact artifact, String name, BinaryContent content) throws IOException;
+
+    interface TextContent {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    interface BinaryContent {
+        void writeTo(OutputStream stream) throws IOException;
+    }
+}
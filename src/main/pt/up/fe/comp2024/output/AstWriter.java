@@ -0,0 +1,42 @@
+package pt.up.fe.comp2024.output;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Writes an AST in the same format as {@link JmmNode#toTree()}, node by node, without building the whole tree
+ * as a String.
+ */
+public class AstWriter {
+
+    private static final String INDENT = "   ";
+
+    public static void write(JmmNode root, Writer writer) throws IOException {
+
+        // Explicit stack, so that deep trees do not overflow the call stack
+        var stack = new ArrayDeque<Entry>();
+        stack.push(new Entry(root, 0));
+
+        while (!stack.isEmpty()) {
+            var entry = stack.pop();
+
+            for (int i = 0; i < entry.depth(); i++) {
+                writer.write(INDENT);
+            }
+            writer.write(entry.node().toString());
+            writer.write('\n');
+
+            List<JmmNode> children = entry.node().getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(new Entry(children.get(i), entry.depth() + 1));
+            }
+        }
+    }
+
+    private record Entry(JmmNode node, int depth) {
+    }
+}
@@ -0,0 +1,41 @@
+package pt.up.fe.comp2024.output;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes each artifact to its own file in a directory, named after the artifact and its extension.
+ */
+public class DirectorySink implements ArtifactSink {
+
+    private final Path directory;
+
+    public DirectorySink(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void writeText(Artifact artifact, String name, TextContent content) throws IOException {
+        Files.createDirectories(directory);
+
+        try (var writer = Files.newBufferedWriter(getPath(artifact, name), StandardCharsets.UTF_8)) {
+            content.writeTo(writer);
+        }
+    }
+
+    @Override
+    public void writeBinary(Artifact artifact, String name, BinaryContent content) throws IOException {
+        Files.createDirectories(directory);
+
+        try (var stream = new BufferedOutputStream(Files.newOutputStream(getPath(artifact, name)))) {
+            content.writeTo(stream);
+        }
+    }
+
+    private Path getPath(Artifact artifact, String name) {
+        return directory.resolve(name + artifact.getExtension());
+    }
+}
@@ -0,0 +1,37 @@
+package pt.up.fe.comp2024.output;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes text artifacts one after the other to a stream, usually the standard output.
+ * <p>
+ * Binary artifacts cannot be mixed with text, so they go to the given fallback sink.
+ */
+public class StreamSink implements ArtifactSink {
+
+    private final PrintStream stream;
+    private final ArtifactSink binarySink;
+
+    public StreamSink(PrintStream stream, ArtifactSink binarySink) {
+        this.stream = stream;
+        this.binarySink = binarySink;
+    }
+
+    @Override
+    public void writeText(Artifact artifact, String name, TextContent content) throws IOException {
+        // The stream is shared, so it is flushed but not closed
+        var writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        content.writeTo(writer);
+        writer.newLine();
+        writer.flush();
+    }
+
+    @Override
+    public void writeBinary(Artifact artifact, String name, BinaryContent content) throws IOException {
+        binarySink.writeBinary(artifact, name, content);
+    }
+}
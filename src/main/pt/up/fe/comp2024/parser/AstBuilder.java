@@ -0,0 +1,306 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.JavammBaseVisitor;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NameTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static pt.up.fe.comp2024.JavammParser.*;
+
+/**
+ * Builds the AST from the parse tree of {@link pt.up.fe.comp2024.JavammParser} in a single pass.
+ * <p>
+ * The nodes have the same kinds, hierarchy and children as the ones created by the generic
+ * {@link pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter}, but only the attributes that the later stages read:
+ * the labels of the grammar ('name', 'op', 'value', 'parent', 'ID'), the locals 'isPublic', 'isStatic' and
+ * 'isVarArg', and the start position of the node. Since the attributes are read directly from the contexts, no
+ * reflection and no cleanup pass are needed.
+ * <p>
+ * The nodes are {@link CompactJmmNode}s, with these attributes in their typed fields. Names, operators and literals are
+ * interned in a {@link NameTable}, shared by all the parts of a parse.
+ */
+public class AstBuilder extends JavammBaseVisitor<JmmNode> {
+
+    private static final Map<String, List<String>> HIERARCHIES = new ConcurrentHashMap<>();
+
+    private final NameTable names;
+
+    private AstBuilder(NameTable names) {
+        this.names = names;
+    }
+
+    /**
+     * Builds the AST of the given parse tree, which must have no syntax errors.
+     *
+     * @param tree
+     * @return
+     */
+    public static JmmNode build(ParseTree tree) {
+        return build(tree, new NameTable());
+    }
+
+    /**
+     * Builds the AST of the given parse tree, interning its names in the given table.
+     *
+     * @param tree
+     * @param names
+     * @return
+     */
+    public static JmmNode build(ParseTree tree, NameTable names) {
+        return tree.accept(new AstBuilder(names));
+    }
+
+    @Override
+    public JmmNode visitProgram(ProgramContext ctx) {
+        return node(ctx, Kind.PROGRAM, "Program");
+    }
+
+    @Override
+    public JmmNode visitImportDeclaration(ImportDeclarationContext ctx) {
+        var node = node(ctx, Kind.IMPORT_DECLARATION, "ImportDecl");
+
+        var name = new ArrayList<String>(ctx.name.size());
+        for (Token part : ctx.name) {
+            name.add(intern(part));
+        }
+
+        node.put("ID", intern(ctx.ID));
+        node.putObject("name", name);
+
+        return node;
+    }
+
+    @Override
+    public JmmNode visitClassDeclaration(ClassDeclarationContext ctx) {
+        var node = named(ctx, Kind.CLASS_DECLARATION, "ClassDecl", ctx.name);
+
+        if (ctx.parent != null) {
+            node.put("parent", intern(ctx.parent));
+        }
+
+        return node;
+    }
+
+    @Override
+    public JmmNode visitVarDeclaration(VarDeclarationContext ctx) {
+        return named(ctx, Kind.VAR_DECLARATION, "VarDecl", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitMethodDeclaration(MethodDeclarationContext ctx) {
+        return modifiers(named(ctx, Kind.METHOD_DECLARATION, "MethodDecl", ctx.name), ctx);
+    }
+
+    @Override
+    public JmmNode visitMainMethodDeclaration(MainMethodDeclarationContext ctx) {
+        return modifiers(named(ctx, Kind.MAIN_METHOD_DECLARATION, "MethodDecl", ctx.name), ctx);
+    }
+
+    @Override
+    public JmmNode visitReturn(ReturnContext ctx) {
+        return node(ctx, Kind.RETURN, "ReturnStmt");
+    }
+
+    @Override
+    public JmmNode visitArrayType(ArrayTypeContext ctx) {
+        return node(ctx, Kind.ARRAY_TYPE, "Type");
+    }
+
+    @Override
+    public JmmNode visitPrimitiveType(PrimitiveTypeContext ctx) {
+        return node(ctx, Kind.PRIMITIVE_TYPE, "Type");
+    }
+
+    @Override
+    public JmmNode visitIntType(IntTypeContext ctx) {
+        return named(ctx, Kind.INT_TYPE, "Literal", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitStringType(StringTypeContext ctx) {
+        return named(ctx, Kind.STRING_TYPE, "Literal", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitBooleanType(BooleanTypeContext ctx) {
+        return named(ctx, Kind.BOOLEAN_TYPE, "Literal", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitNamedType(NamedTypeContext ctx) {
+        return named(ctx, Kind.NAMED_TYPE, "Literal", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitParams(ParamsContext ctx) {
+        var node = named(ctx, Kind.PARAMS, null, ctx.name);
+        node.putObject("isVarArg", ctx.isVarArg);
+
+        return node;
+    }
+
+    @Override
+    public JmmNode visitScopeStmt(ScopeStmtContext ctx) {
+        return node(ctx, Kind.SCOPE_STMT, "Stmt");
+    }
+
+    @Override
+    public JmmNode visitIfStmt(IfStmtContext ctx) {
+        return node(ctx, Kind.IF_STMT, "Stmt");
+    }
+
+    @Override
+    public JmmNode visitWhileStmt(WhileStmtContext ctx) {
+        return node(ctx, Kind.WHILE_STMT, "Stmt");
+    }
+
+    @Override
+    public JmmNode visitExprStmt(ExprStmtContext ctx) {
+        return node(ctx, Kind.EXPR_STMT, "Stmt");
+    }
+
+    @Override
+    public JmmNode visitAssignStmt(AssignStmtContext ctx) {
+        return named(ctx, Kind.ASSIGN_STMT, "Stmt", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitArrayAssignStmt(ArrayAssignStmtContext ctx) {
+        return named(ctx, Kind.ARRAY_ASSIGN_STMT, "Stmt", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitParenExpr(ParenExprContext ctx) {
+        return node(ctx, Kind.PAREN_EXPR, "Expr");
+    }
+
+    @Override
+    public JmmNode visitArrayAccessOp(ArrayAccessOpContext ctx) {
+        return node(ctx, Kind.ARRAY_ACCESS_OP, "Expr");
+    }
+
+    @Override
+    public JmmNode visitArrayDeclaration(ArrayDeclarationContext ctx) {
+        return node(ctx, Kind.ARRAY_DECLARATION, "Expr");
+    }
+
+    @Override
+    public JmmNode visitObjectDeclaration(ObjectDeclarationContext ctx) {
+        return named(ctx, Kind.OBJECT_DECLARATION, "Expr", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitAttribute(AttributeContext ctx) {
+        return named(ctx, Kind.ATTRIBUTE, "Expr", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitMethodCall(MethodCallContext ctx) {
+        return named(ctx, Kind.METHOD_CALL, "Expr", ctx.name);
+    }
+
+    @Override
+    public JmmNode visitArrayExpression(ArrayExpressionContext ctx) {
+        return node(ctx, Kind.ARRAY_EXPRESSION, "Expr");
+    }
+
+    @Override
+    public JmmNode visitUnaryOp(UnaryOpContext ctx) {
+        return withOp(node(ctx, Kind.UNARY_OP, "Expr"), ctx.op);
+    }
+
+    @Override
+    public JmmNode visitBinaryOp(BinaryOpContext ctx) {
+        return withOp(node(ctx, Kind.BINARY_OP, "Expr"), ctx.op);
+    }
+
+    @Override
+    public JmmNode visitIdentifier(IdentifierContext ctx) {
+        return withValue(node(ctx, Kind.IDENTIFIER, "Expr"), ctx.value);
+    }
+
+    @Override
+    public JmmNode visitIntegerLiteral(IntegerLiteralContext ctx) {
+        return withValue(node(ctx, Kind.INTEGER_LITERAL, "Expr"), ctx.value);
+    }
+
+    @Override
+    public JmmNode visitBooleanLiteral(BooleanLiteralContext ctx) {
+        return withValue(node(ctx, Kind.BOOLEAN_LITERAL, "Expr"), ctx.value);
+    }
+
+    @Override
+    public JmmNode visitThis(ThisContext ctx) {
+        return withValue(node(ctx, Kind.THIS, "Expr"), ctx.value);
+    }
+
+    /**
+     * Creates the node of a context, with its position and the nodes of its child contexts.
+     *
+     * @param ctx
+     * @param kind
+     * @param rule the rule of the context, if it is an alternative with a label, for the hierarchy of the node
+     * @return
+     */
+    private CompactJmmNode node(ParserRuleContext ctx, Kind kind, String rule) {
+        var node = new CompactJmmNode(kind, getHierarchy(kind, rule));
+
+        var start = ctx.getStart();
+        node.setPosition(start.getLine(), start.getCharPositionInLine());
+
+        if (ctx.children != null) {
+            for (var child : ctx.children) {
+                // Tokens are not part of the AST
+                if (child instanceof ParserRuleContext) {
+                    node.add(child.accept(this));
+                }
+            }
+        }
+
+        return node;
+    }
+
+    private CompactJmmNode named(ParserRuleContext ctx, Kind kind, String rule, Token name) {
+        var node = node(ctx, kind, rule);
+        node.setName(intern(name));
+
+        return node;
+    }
+
+    private static CompactJmmNode modifiers(CompactJmmNode node, MethodDeclContext ctx) {
+        node.setPublic(ctx.isPublic);
+        node.setStatic(ctx.isStatic);
+
+        return node;
+    }
+
+    private CompactJmmNode withOp(CompactJmmNode node, Token op) {
+        node.setOp(intern(op));
+
+        return node;
+    }
+
+    private CompactJmmNode withValue(CompactJmmNode node, Token value) {
+        node.setValue(intern(value));
+
+        return node;
+    }
+
+    private String intern(Token token) {
+        return names.intern(token.getText());
+    }
+
+    static List<String> getHierarchy(Kind kind, String rule) {
+        return HIERARCHIES.computeIfAbsent(kind.getNodeName(),
+                name -> rule == null ? List.of(name) : List.of(name, rule));
+    }
+}
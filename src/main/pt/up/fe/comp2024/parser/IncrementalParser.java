@@ -0,0 +1,327 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.WritableToken;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NameTable;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the tokens and the AST of a source that is edited over time, such as a file open in an editor, and parses
+ * it again after each edit.
+ * <p>
+ * When an edit stays inside a single method, only the text of that method is lexed and parsed again, and its node
+ * replaces the old one in the ClassDeclaration. Every other subtree is reused, only the positions of the tokens and
+ * nodes after the method are moved. Any other edit, or one that leaves the method with errors, is handled with a full
+ * parse by {@link JmmParserImpl}, which also gives the usual error reports. Either way, the AST is the same as the one
+ * of a full parse of the edited code.
+ * <p>
+ * The AST is updated in place by the next edit, so stages that change it, such as the AST optimizations, must work
+ * on a copy.
+ */
+public class IncrementalParser {
+
+    private final Map<String, String> config;
+
+    // Shared by all parses, so that reparsed methods use the same names as the rest of the AST
+    private final NameTable names = new NameTable();
+
+    private String code;
+    private JmmParserResult result;
+
+    // Tokens of the whole code, without EOF, and the ranges of the methods in them, or null if edits cannot be
+    // parsed incrementally until the next full parse
+    private List<Token> tokens;
+    private List<MethodParallelParser.Range> methods;
+
+    private int fullParses;
+    private int incrementalParses;
+
+    public IncrementalParser(String code, Map<String, String> config) {
+        this.config = config;
+        this.code = code;
+
+        parseFully();
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Result of parsing the current code.
+     *
+     * @return
+     */
+    public JmmParserResult getResult() {
+        return result;
+    }
+
+    /**
+     * Number of times the whole code was parsed, including the first one.
+     *
+     * @return
+     */
+    public int getFullParses() {
+        return fullParses;
+    }
+
+    /**
+     * Number of edits that were handled by parsing only the edited method.
+     *
+     * @return
+     */
+    public int getIncrementalParses() {
+        return incrementalParses;
+    }
+
+    /**
+     * Replaces the given range of the code with the given text and parses the result.
+     *
+     * @param offset position of the first character to replace
+     * @param length number of characters to replace, 0 to insert
+     * @param text   the new text, empty to delete
+     * @return the result of parsing the edited code
+     */
+    public JmmParserResult edit(int offset, int length, String text) {
+        if (offset < 0 || length < 0 || offset + length > code.length()) {
+            throw new RuntimeException("Edit of " + length + " characters at " + offset
+                    + " is outside of the code, which has " + code.length() + " characters");
+        }
+
+        var previous = code;
+        code = previous.substring(0, offset) + text + previous.substring(offset + length);
+
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.PARSE)) {
+            if (reparseMethod(previous, offset, length, text)) {
+                incrementalParses++;
+                return result;
+            }
+        }
+
+        parseFully();
+        return result;
+    }
+
+    private void parseFully() {
+        fullParses++;
+        result = new JmmParserImpl().parse(new ANTLRInputStream(code), "program", config, names);
+        tokens = null;
+        methods = null;
+
+        var root = result.getRootNode();
+        if (root == null) {
+            return;
+        }
+
+        var allTokens = lex(code, 1, 0);
+        var ranges = allTokens == null ? null : MethodParallelParser.splitMethods(allTokens);
+
+        // Only keep the tokens if every method of the AST has its range, in the same order
+        if (ranges != null && getMethodNodes(root).size() == ranges.size()) {
+            tokens = allTokens;
+            methods = ranges;
+        }
+    }
+
+    /**
+     * Lexes and parses again the method that contains the edit, if there is one.
+     *
+     * @return true if the AST was updated, false if the code must be parsed fully
+     */
+    private boolean reparseMethod(String previous, int offset, int length, String text) {
+        if (methods == null) {
+            return false;
+        }
+
+        int index = findMethod(offset, length);
+        if (index < 0) {
+            return false;
+        }
+
+        var method = methods.get(index);
+        var first = tokens.get(method.start());
+        var last = tokens.get(method.end() - 1);
+
+        // The method text goes from its first token to its closing brace, which the edit does not touch
+        int start = first.getStartIndex();
+        var methodCode = previous.substring(start, offset) + text + previous.substring(offset + length, last.getStopIndex() + 1);
+
+        var methodTokens = lex(methodCode, first.getLine(), first.getCharPositionInLine());
+        if (methodTokens == null || methodTokens.isEmpty()
+                || methodTokens.get(methodTokens.size() - 1).getType() != JavammLexer.RCURLY) {
+            return false;
+        }
+
+        var methodNode = MethodParallelParser.parseMethod(methodTokens, names);
+        if (methodNode == null) {
+            return false;
+        }
+
+        for (var token : methodTokens) {
+            var writable = (CommonToken) token;
+            writable.setStartIndex(token.getStartIndex() + start);
+            writable.setStopIndex(token.getStopIndex() + start);
+        }
+
+        var newLast = methodTokens.get(methodTokens.size() - 1);
+        var shift = new Shift(last.getLine(), newLast.getLine() - last.getLine(),
+                newLast.getCharPositionInLine() - last.getCharPositionInLine(), text.length() - length);
+
+        // Everything after the method only moves, and the nodes only if the edit changed their lines or columns
+        var methodNodes = getMethodNodes(result.getRootNode());
+        if (shift.movesNodes()) {
+            for (int i = index + 1; i < methodNodes.size(); i++) {
+                shift.apply(methodNodes.get(i));
+            }
+        }
+        methodNodes.get(index).replace(methodNode);
+
+        splice(index, methodTokens, shift);
+
+        return true;
+    }
+
+    /**
+     * Index of the method whose text contains the whole edited range, excluding its closing brace.
+     */
+    private int findMethod(int offset, int length) {
+        for (int i = 0; i < methods.size(); i++) {
+            var method = methods.get(i);
+            int start = tokens.get(method.start()).getStartIndex();
+            int close = tokens.get(method.end() - 1).getStartIndex();
+
+            if (offset >= start && offset + length <= close) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Replaces the tokens of the given method with its new tokens, and moves the tokens and ranges after it.
+     */
+    private void splice(int index, List<Token> methodTokens, Shift shift) {
+        var method = methods.get(index);
+        int delta = methodTokens.size() - (method.end() - method.start());
+
+        var newTokens = new ArrayList<Token>(tokens.size() + delta);
+        newTokens.addAll(tokens.subList(0, method.start()));
+        newTokens.addAll(methodTokens);
+        for (var token : tokens.subList(method.end(), tokens.size())) {
+            shift.apply((CommonToken) token);
+            newTokens.add(token);
+        }
+
+        for (int i = method.start(); i < newTokens.size(); i++) {
+            ((WritableToken) newTokens.get(i)).setTokenIndex(i);
+        }
+
+        var newMethods = new ArrayList<>(methods.subList(0, index));
+        newMethods.add(new MethodParallelParser.Range(method.start(), method.end() + delta));
+        for (var next : methods.subList(index + 1, methods.size())) {
+            newMethods.add(new MethodParallelParser.Range(next.start() + delta, next.end() + delta));
+        }
+
+        tokens = newTokens;
+        methods = newMethods;
+    }
+
+    private static List<JmmNode> getMethodNodes(JmmNode root) {
+        // The class is the last child of the program, after the imports
+        var classDecl = root.getJmmChild(root.getNumChildren() - 1);
+        Kind.CLASS_DECLARATION.checkOrThrow(classDecl);
+
+        return classDecl.getChildren().stream()
+                .filter(child -> Kind.check(child, Kind.METHOD_DECLARATION, Kind.MAIN_METHOD_DECLARATION))
+                .toList();
+    }
+
+    /**
+     * Lexes the given code, which starts at the given position of the file.
+     *
+     * @return the tokens without EOF, with their text already read, or null if there are lexical errors
+     */
+    private static List<Token> lex(String code, int line, int column) {
+        var lexer = new JavammLexer(new ANTLRInputStream(code));
+        lexer.removeErrorListeners();
+        var listener = new JmmErrorListener(Stage.LEXICAL);
+        lexer.addErrorListener(listener);
+        lexer.setLine(line);
+        lexer.setCharPositionInLine(column);
+
+        var lexed = lexer.getAllTokens();
+        if (!listener.getReports().isEmpty()) {
+            return null;
+        }
+
+        var tokens = new ArrayList<Token>(lexed.size());
+        for (var token : lexed) {
+            // The text is read from the input by position, which changes when the token is moved
+            var writable = (CommonToken) token;
+            writable.setText(token.getText());
+            writable.setTokenIndex(tokens.size());
+            tokens.add(writable);
+        }
+
+        return tokens;
+    }
+
+    /**
+     * How the positions after an edited method move.
+     *
+     * @param line       last line of the method before the edit, where the columns change too
+     * @param lineDelta
+     * @param colDelta   change of the column of the closing brace of the method
+     * @param charDelta  change of the length of the code
+     */
+    private record Shift(int line, int lineDelta, int colDelta, int charDelta) {
+
+        void apply(CommonToken token) {
+            if (token.getLine() == line) {
+                token.setCharPositionInLine(token.getCharPositionInLine() + colDelta);
+            }
+
+            token.setLine(token.getLine() + lineDelta);
+            token.setStartIndex(token.getStartIndex() + charDelta);
+            token.setStopIndex(token.getStopIndex() + charDelta);
+        }
+
+        boolean movesNodes() {
+            return lineDelta != 0 || colDelta != 0;
+        }
+
+        /**
+         * Moves the given node and all its descendants.
+         */
+        void apply(JmmNode node) {
+            int nodeLine = Integer.parseInt(node.get(NodePosition.LINE_START.getKey()));
+
+            if (nodeLine == line && colDelta != 0) {
+                int col = Integer.parseInt(node.get(NodePosition.COL_START.getKey()));
+                node.put(NodePosition.COL_START.getKey(), Integer.toString(col + colDelta));
+            }
+
+            if (lineDelta != 0) {
+                node.put(NodePosition.LINE_START.getKey(), Integer.toString(nodeLine + lineDelta));
+            }
+
+            for (var child : node.getChildren()) {
+                apply(child);
+            }
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.ast.NameTable;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
+import pt.up.fe.specs.util.SpecsSystem;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Copyright 2022 SPeCS.
@@ -24,8 +36,69 @@ import java.util.Map;
  * specific language governing permissions and limitations under the License. under the License.
  */
 
+/**
+ * Parses with the two-stage strategy recommended for ANTLR: the input is first parsed with SLL prediction, which is
+ * faster but can fail on inputs that need full-context prediction, and with a strategy that bails out on the first
+ * error. Only if that fails is the token stream rewound and parsed again with full LL prediction and the usual error
+ * recovery and reporting. The result is the same as a single LL parse.
+ * <p>
+ * The lexer and parser instances are reused by all parses on the same thread, see {@link ParserPool}, and the AST is
+ * built from the parse tree by the {@link AstBuilder}. With '-j', the methods are first parsed in parallel by the
+ * {@link MethodParallelParser}.
+ */
 public class JmmParserImpl implements JmmParser {
 
+    private static final AtomicLong PARSES = new AtomicLong();
+    private static final AtomicLong LL_FALLBACKS = new AtomicLong();
+    private static final AtomicLong PARALLEL_PARSES = new AtomicLong();
+
+    /**
+     * Number of inputs parsed so far, in this JVM.
+     *
+     * @return
+     */
+    public static long getParses() {
+        return PARSES.get();
+    }
+
+    /**
+     * Number of inputs that could not be parsed with SLL prediction alone and were parsed again with full LL, in this
+     * JVM. This includes every input with syntax errors.
+     *
+     * @return
+     */
+    public static long getLlFallbacks() {
+        return LL_FALLBACKS.get();
+    }
+
+    /**
+     * Number of inputs whose methods were parsed in parallel with '-j', in this JVM. Inputs that had to be parsed
+     * sequentially are not counted.
+     *
+     * @return
+     */
+    public static long getParallelParses() {
+        return PARALLEL_PARSES.get();
+    }
+
+    /**
+     * Number of states currently in the DFA caches shared by all parses.
+     *
+     * @return
+     */
+    public static long getDfaStates() {
+        return ParserPool.getDfaStates();
+    }
+
+    /**
+     * Number of times the DFA caches were cleared for growing past the limit given with '-f', in this JVM.
+     *
+     * @return
+     */
+    public static long getDfaClears() {
+        return ParserPool.getDfaClears();
+    }
+
     @Override
     public String getDefaultRule() {
         return "program";
@@ -33,24 +106,124 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        // Convert code string into a character stream
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
 
-        try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2024.JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+    /**
+     * Parses a character stream that is not backed by a String, such as a {@link MappedCharStream}.
+     *
+     * @param input
+     * @param config
+     * @return
+     */
+    public JmmParserResult parse(CharStream input, Map<String, String> config) {
+        return parse(input, getDefaultRule(), config);
+    }
+
+    public JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
+        return parse(input, startingRule, config, new NameTable());
+    }
+
+    /**
+     * Parses with the given table for the names of the AST, to share it with other parses of the same compilation.
+     */
+    JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config, NameTable names) {
+
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.PARSE)) {
+            PARSES.incrementAndGet();
 
+            // Reuse the lexer and parser of this thread, which keeps their caches warm
+            var pool = ParserPool.get(input);
+            var lex = pool.getLexer();
+            lex.removeErrorListeners();
+            var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+            lex.addErrorListener(lexerListener);
 
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+            // Transform characters into tokens all at once, so that both stages see the same tokens
+            pool.getTokens().fill();
+
+            var parser = pool.getParser();
+
+            if (lexerListener.getReports().isEmpty() && CompilerConfig.getParallelParse(config)
+                    && startingRule.equals(getDefaultRule())) {
+                var tokens = pool.getTokens().getTokens();
+                var root = MethodParallelParser.parse(tokens.subList(0, tokens.size() - 1), names);
+
+                if (root != null) {
+                    PARALLEL_PARSES.incrementAndGet();
+                    return new JmmParserResult(root, new ArrayList<>(), config);
+                }
+            }
+
+            if (lexerListener.getReports().isEmpty()) {
+                var tree = parseSll(parser, startingRule);
+
+                if (tree != null) {
+                    return new JmmParserResult(AstBuilder.build(tree, names), new ArrayList<>(), config);
+                }
+            }
+
+            LL_FALLBACKS.incrementAndGet();
+            try (var ignoredFallback = PipelineMetrics.measure(PipelineMetrics.PARSE_LL_FALLBACK)) {
+                return parseLl(parser, startingRule, config, lexerListener, names);
+            }
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
+        } finally {
+            ParserPool.trimDfaCache(CompilerConfig.getDfaLimit(config));
+        }
+    }
+
+    /**
+     * Parses with SLL prediction, stopping at the first syntax error.
+     *
+     * @return the parse tree, or null if SLL prediction was not enough or the input has errors
+     */
+    private static ParseTree parseSll(JavammParser parser, String startingRule) {
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+        try {
+            return (ParseTree) SpecsSystem.invoke(parser, startingRule);
+        } catch (RuntimeException e) {
+            // The rule is invoked through reflection, the cancellation arrives wrapped
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ParseCancellationException) {
+                    return null;
+                }
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Rewinds the tokens and parses them again with full LL prediction and the default error recovery.
+     */
+    private static JmmParserResult parseLl(JavammParser parser, String startingRule, Map<String, String> config,
+                                           JmmErrorListener lexerListener, NameTable names) {
+        parser.reset();
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+
+        parser.removeErrorListeners();
+        var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+        parser.addErrorListener(parserListener);
+
+        var tree = (ParseTree) SpecsSystem.invoke(parser, startingRule);
+
+        // The lexer already ran, its errors were collected before the parser started
+        var reports = new ArrayList<>(lexerListener.getReports());
+        reports.addAll(parserListener.getReports());
+
+        if (reports.stream().anyMatch(report -> report.getType() == ReportType.ERROR)) {
+            return new JmmParserResult(null, reports, config);
         }
+
+        return new JmmParserResult(AstBuilder.build(tree, names), reports, config);
     }
 }
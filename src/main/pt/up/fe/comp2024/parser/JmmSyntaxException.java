@@ -0,0 +1,12 @@
+package pt.up.fe.comp2024.parser;
+
+/**
+ * A lexical or syntax error found by the hand-written {@link JmmTokenizer} or {@link PrattParser}.
+ */
+class JmmSyntaxException extends RuntimeException {
+
+    JmmSyntaxException(int line, int column, String message) {
+        // The stack trace is never looked at, the error only stops the parse
+        super("line " + line + ":" + column + " " + message, null, false, false);
+    }
+}
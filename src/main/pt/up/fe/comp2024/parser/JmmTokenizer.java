@@ -0,0 +1,227 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.ast.NameTable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static pt.up.fe.comp2024.JavammLexer.*;
+
+/**
+ * A hand-written lexer for Java--, which gives the same tokens as {@link JavammLexer}, with the same token types and
+ * positions.
+ * <p>
+ * The tokens are kept in parallel arrays instead of token objects, and the text of a token is only looked up when the
+ * parser asks for it, e.g. for names and literals.
+ */
+final class JmmTokenizer {
+
+    private static final Map<String, Integer> KEYWORDS = Map.ofEntries(
+            Map.entry("import", IMPORT), Map.entry("extends", EXTENDS), Map.entry("static", STATIC),
+            Map.entry("class", CLASS), Map.entry("public", PUBLIC), Map.entry("return", RETURN),
+            Map.entry("if", IF), Map.entry("else", ELSE), Map.entry("while", WHILE), Map.entry("this", THIS),
+            Map.entry("new", NEW), Map.entry("true", TRUE), Map.entry("false", FALSE), Map.entry("int", INT),
+            Map.entry("String", STRING), Map.entry("boolean", BOOLEAN), Map.entry("void", VOID));
+
+    private final String code;
+
+    private int size;
+    private int[] types;
+    private int[] starts;
+    private int[] stops;
+    private int[] lines;
+    private int[] columns;
+
+    // Position of the next character to read
+    private int index;
+    private int line;
+    private int column;
+
+    private JmmTokenizer(String code) {
+        this.code = code;
+
+        // Roughly one token every four characters
+        int capacity = Math.max(16, code.length() / 4);
+        this.types = new int[capacity];
+        this.starts = new int[capacity];
+        this.stops = new int[capacity];
+        this.lines = new int[capacity];
+        this.columns = new int[capacity];
+
+        this.index = 0;
+        this.line = 1;
+        this.column = 0;
+    }
+
+    /**
+     * Splits the given code into tokens, which always end with EOF.
+     *
+     * @param code
+     * @return
+     * @throws JmmSyntaxException if a character does not start any token
+     */
+    static JmmTokenizer tokenize(String code) {
+        var tokenizer = new JmmTokenizer(code);
+        tokenizer.run();
+
+        return tokenizer;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int type(int token) {
+        return types[token];
+    }
+
+    int line(int token) {
+        return lines[token];
+    }
+
+    int column(int token) {
+        return columns[token];
+    }
+
+    String text(int token) {
+        return types[token] == EOF ? "<EOF>" : code.substring(starts[token], stops[token] + 1);
+    }
+
+    /**
+     * The text of the given token, interned in the given table without creating a String if it is already there.
+     */
+    String text(int token, NameTable names) {
+        return names.intern(code, starts[token], stops[token] + 1);
+    }
+
+    private void run() {
+        int length = code.length();
+
+        while (index < length) {
+            char c = code.charAt(index);
+
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                advance(1);
+            } else if (c == '/' && startsWith("//")) {
+                int end = code.indexOf('\n', index + 2);
+                advance((end < 0 ? length : end + 1) - index);
+            } else if (c == '/' && startsWith("/*") && code.indexOf("*/", index + 2) >= 0) {
+                // An unterminated comment is not a comment, just a '/' and a '*'
+                advance(code.indexOf("*/", index + 2) + 2 - index);
+            } else if (isLetter(c) || c == '$' || c == '_') {
+                int end = index + 1;
+                while (end < length && isIdentifierPart(code.charAt(end))) {
+                    end++;
+                }
+
+                var keyword = KEYWORDS.get(code.substring(index, end));
+                add(keyword != null ? keyword : ID, end - index);
+            } else if (c >= '0' && c <= '9') {
+                // A leading zero is a number by itself
+                int end = index + 1;
+                if (c != '0') {
+                    while (end < length && isDigit(code.charAt(end))) {
+                        end++;
+                    }
+                }
+
+                add(INTEGER, end - index);
+            } else {
+                addSymbol(c);
+            }
+        }
+
+        add(EOF, 0);
+    }
+
+    private void addSymbol(char c) {
+        switch (c) {
+            case '=' -> add(EQUALS, 1);
+            case ';' -> add(SEMI, 1);
+            case '.' -> {
+                if (startsWith("...")) {
+                    add(VARARGSUFFIX, 3);
+                } else {
+                    add(DOT, 1);
+                }
+            }
+            case ',' -> add(COMMA, 1);
+            case '{' -> add(LCURLY, 1);
+            case '}' -> add(RCURLY, 1);
+            case '(' -> add(LPAREN, 1);
+            case ')' -> add(RPAREN, 1);
+            case '[' -> add(LBRACKET, 1);
+            case ']' -> add(RBRACKET, 1);
+            case '*' -> add(MUL, 1);
+            case '/' -> add(DIV, 1);
+            case '+' -> add(ADD, 1);
+            case '-' -> add(SUB, 1);
+            case '<' -> add(LT, 1);
+            case '!' -> add(NOT, 1);
+            case '&' -> {
+                if (!startsWith("&&")) {
+                    throw unexpected();
+                }
+                add(AND, 2);
+            }
+            default -> throw unexpected();
+        }
+    }
+
+    private JmmSyntaxException unexpected() {
+        return new JmmSyntaxException(line, column, "token recognition error at: '" + code.charAt(index) + "'");
+    }
+
+    private boolean startsWith(String prefix) {
+        return code.startsWith(prefix, index);
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isLetter(c) || isDigit(c) || c == '_' || c == '$';
+    }
+
+    private void add(int type, int length) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            stops = Arrays.copyOf(stops, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+
+        types[size] = type;
+        starts[size] = index;
+        stops[size] = index + length - 1;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+
+        advance(length);
+    }
+
+    /**
+     * Moves past the given number of characters, counting lines as the ANTLR lexer does, only on '\n'.
+     */
+    private void advance(int length) {
+        int end = index + length;
+
+        for (; index < end; index++) {
+            if (code.charAt(index) == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A source file read by the lexer straight from a memory-mapped buffer, without copying it into a String first.
+ * <p>
+ * Java-- sources are usually plain ASCII, in which case every byte of the mapping is a character and nothing is
+ * decoded at all. Otherwise, e.g. with UTF-8 in comments, the file is decoded once into a single char buffer.
+ */
+public final class MappedCharStream implements CharStream {
+
+    private final String sourceName;
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final int size;
+    private int index;
+
+    private MappedCharStream(String sourceName, ByteBuffer bytes) {
+        this.sourceName = sourceName;
+        this.bytes = bytes;
+        this.chars = isAscii(bytes) ? null : StandardCharsets.UTF_8.decode(bytes.duplicate());
+        this.size = chars == null ? bytes.limit() : chars.limit();
+        this.index = 0;
+    }
+
+    /**
+     * Maps the given file into memory.
+     *
+     * @param path
+     * @return
+     */
+    public static MappedCharStream open(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException("File '" + path + "' is too large to be parsed");
+            }
+
+            // The mapping stays valid after the channel is closed
+            return new MappedCharStream(path.toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not map file '" + path + "'", e);
+        }
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The raw contents of the file, as a read-only view of the mapping.
+     *
+     * @return
+     */
+    public ByteBuffer getBytes() {
+        return bytes.asReadOnlyBuffer();
+    }
+
+    /**
+     * Number of lines of the file, counted as {@link String#lines()} does.
+     *
+     * @return
+     */
+    public int getLineCount() {
+        int lines = 0;
+
+        for (int i = 0; i < size; i++) {
+            int c = charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == size || charAt(i + 1) != '\n'))) {
+                lines++;
+            }
+        }
+
+        // The last line may have no terminator
+        if (size > 0 && charAt(size - 1) != '\n' && charAt(size - 1) != '\r') {
+            lines++;
+        }
+
+        return lines;
+    }
+
+    /**
+     * The whole contents as a String, which is only built when asked for.
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+
+    @Override
+    public void consume() {
+        if (index >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+
+        index++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            // Undefined
+            return 0;
+        }
+
+        // LA(-1) is the previous character
+        int position = i < 0 ? index + i : index + i - 1;
+        if (position < 0 || position >= size) {
+            return IntStream.EOF;
+        }
+
+        return charAt(position);
+    }
+
+    private int charAt(int position) {
+        return chars != null ? chars.get(position) : bytes.get(position) & 0xFF;
+    }
+
+    @Override
+    public int mark() {
+        // The whole file is always available, there is nothing to keep
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int index) {
+        this.index = Math.max(0, Math.min(index, size));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, size - 1);
+
+        if (start < 0 || stop < start) {
+            return "";
+        }
+
+        if (chars != null) {
+            return chars.subSequence(start, stop + 1).toString();
+        }
+
+        var text = new byte[stop - start + 1];
+        bytes.get(start, text);
+
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,198 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.WritableToken;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NameTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the methods of a class in parallel, from the tokens of a single lexer pass.
+ * <p>
+ * The tokens of each method are found by matching braces inside the class body, and each method is parsed with its
+ * own parser on the common fork-join pool. The rest of the program, without the methods, is parsed on the calling
+ * thread, and the method subtrees are then added to its ClassDeclaration in source order. Since the tokens are the
+ * same, the nodes have the same positions as in a sequential parse.
+ * <p>
+ * This only handles the common case of a well-formed program: if the tokens cannot be split, a field comes after a
+ * method or any part has a syntax error, nothing is returned and the caller parses the whole program sequentially,
+ * which also gives the usual error reports.
+ */
+final class MethodParallelParser {
+
+    private MethodParallelParser() {
+    }
+
+    /**
+     * Parses the given tokens, which must be the whole program up to, but not including, EOF.
+     *
+     * @param tokens
+     * @param names  the table for the names of all the parts
+     * @return the AST, or null if the program must be parsed sequentially
+     */
+    static JmmNode parse(List<Token> tokens, NameTable names) {
+        var methods = splitMethods(tokens);
+        if (methods == null || methods.size() < 2) {
+            return null;
+        }
+
+        try {
+            var futures = new ArrayList<Future<JmmNode>>(methods.size());
+            for (var method : methods) {
+                futures.add(ForkJoinPool.commonPool().submit(() -> parseMethod(tokens.subList(method.start(), method.end()), names)));
+            }
+
+            var program = parseSkeleton(tokens, methods, names);
+
+            // Wait for every method before returning, they all renumber tokens
+            var methodNodes = new ArrayList<JmmNode>(futures.size());
+            for (var future : futures) {
+                methodNodes.add(future.get());
+            }
+
+            if (program == null || methodNodes.contains(null)) {
+                return null;
+            }
+
+            // The class is the last child of the program, after the imports
+            var classDecl = program.getJmmChild(program.getNumChildren() - 1);
+            Kind.CLASS_DECLARATION.checkOrThrow(classDecl);
+            methodNodes.forEach(classDecl::add);
+
+            return program;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing methods", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected failure while parsing methods", e.getCause());
+        } finally {
+            // Each token stream numbered the tokens it read, restore their indexes in the whole program
+            for (int i = 0; i < tokens.size(); i++) {
+                ((WritableToken) tokens.get(i)).setTokenIndex(i);
+            }
+        }
+    }
+
+    /**
+     * Finds the range of tokens of each method in the class body.
+     *
+     * @return the ranges in source order, or null if the tokens do not have the expected shape
+     */
+    static List<Range> splitMethods(List<Token> tokens) {
+        int classStart = indexOf(tokens, JavammLexer.CLASS, 0);
+        int bodyStart = indexOf(tokens, JavammLexer.LCURLY, classStart + 1);
+        if (classStart < 0 || bodyStart < 0) {
+            return null;
+        }
+
+        var methods = new ArrayList<Range>();
+        int memberStart = bodyStart + 1;
+        int depth = 0;
+        boolean isMethod = false;
+
+        for (int i = memberStart; i < tokens.size(); i++) {
+            int type = tokens.get(i).getType();
+
+            if (depth == 0 && type == JavammLexer.SEMI && !isMethod) {
+                // Fields must come before all methods, otherwise the sequential parse reports the error
+                if (!methods.isEmpty()) {
+                    return null;
+                }
+
+                memberStart = i + 1;
+            } else if (depth == 0 && type == JavammLexer.LPAREN) {
+                isMethod = true;
+            } else if (type == JavammLexer.LCURLY) {
+                depth++;
+            } else if (type == JavammLexer.RCURLY) {
+                if (depth == 0) {
+                    // End of the class body, only EOF may follow
+                    return memberStart == i && i == tokens.size() - 1 ? methods : null;
+                }
+
+                depth--;
+                if (depth == 0 && isMethod) {
+                    methods.add(new Range(memberStart, i + 1));
+                    memberStart = i + 1;
+                    isMethod = false;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static int indexOf(List<Token> tokens, int type, int from) {
+        for (int i = Math.max(from, 0); i < tokens.size(); i++) {
+            if (tokens.get(i).getType() == type) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Parses the tokens of a single method.
+     *
+     * @return the method node, or null if the tokens are not exactly one method without syntax errors
+     */
+    static JmmNode parseMethod(List<Token> tokens, NameTable names) {
+        var parser = newParser(tokens);
+
+        try {
+            var tree = parser.methodDecl();
+
+            return parser.getCurrentToken().getType() == Token.EOF ? AstBuilder.build(tree, names) : null;
+        } catch (ParseCancellationException e) {
+            return null;
+        }
+    }
+
+    private static JmmNode parseSkeleton(List<Token> tokens, List<Range> methods, NameTable names) {
+        var skeleton = new ArrayList<Token>(tokens.size());
+        int next = 0;
+        for (var method : methods) {
+            skeleton.addAll(tokens.subList(next, method.start()));
+            next = method.end();
+        }
+        skeleton.addAll(tokens.subList(next, tokens.size()));
+
+        try {
+            return AstBuilder.build(newParser(skeleton).program(), names);
+        } catch (ParseCancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A parser over the given tokens with SLL prediction, that bails out on the first error.
+     */
+    static JavammParser newParser(List<Token> tokens) {
+        var parser = new JavammParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+        return parser;
+    }
+
+    /**
+     * Tokens from start, inclusive, to end, exclusive.
+     */
+    record Range(int start, int end) {
+    }
+}
@@ -0,0 +1,114 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.dfa.DFA;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lexer and parser instances confined to the thread that uses them, and reused by every parse on that thread.
+ * <p>
+ * The generated lexer and parser share their DFA caches through static fields, so reusing the instances keeps the
+ * caches warm and avoids rebuilding the recognizers for every input. The caches only grow, so long-running processes
+ * call {@link #trimDfaCache(long)} after each parse to clear them once they pass a budget of DFA states, which is
+ * what their memory is proportional to.
+ */
+final class ParserPool {
+
+    private static final ThreadLocal<ParserPool> POOL = ThreadLocal.withInitial(ParserPool::new);
+
+    private static final AtomicLong DFA_CLEARS = new AtomicLong();
+
+    private final JavammLexer lexer;
+    private final JavammParser parser;
+    private CommonTokenStream tokens;
+
+    private ParserPool() {
+        this.lexer = new JavammLexer(new ANTLRInputStream(""));
+        this.tokens = new CommonTokenStream(lexer);
+        this.parser = new JavammParser(tokens);
+    }
+
+    /**
+     * The instances of the current thread, reset to read the given input.
+     *
+     * @param input
+     * @return
+     */
+    static ParserPool get(CharStream input) {
+        var pool = POOL.get();
+
+        pool.lexer.setInputStream(input);
+        // The token buffer is cheap, and this version of ANTLR does not fully reset it in setTokenSource
+        pool.tokens = new CommonTokenStream(pool.lexer);
+        pool.parser.setTokenStream(pool.tokens);
+
+        return pool;
+    }
+
+    JavammLexer getLexer() {
+        return lexer;
+    }
+
+    CommonTokenStream getTokens() {
+        return tokens;
+    }
+
+    JavammParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Number of states in the DFA caches of the lexer and the parser, shared by all threads.
+     *
+     * @return
+     */
+    static long getDfaStates() {
+        // Every instance sees the same shared arrays
+        var pool = POOL.get();
+
+        return countStates(pool.lexer.getInterpreter().decisionToDFA)
+                + countStates(pool.parser.getInterpreter().decisionToDFA);
+    }
+
+    /**
+     * Number of times the DFA caches were cleared for passing their budget, in this JVM.
+     *
+     * @return
+     */
+    static long getDfaClears() {
+        return DFA_CLEARS.get();
+    }
+
+    /**
+     * Clears the DFA caches if they hold more than the given number of states. Threads in the middle of a parse keep
+     * using the DFAs they already have, so this is safe to call at any time.
+     *
+     * @param maxStates
+     */
+    static void trimDfaCache(long maxStates) {
+        if (getDfaStates() <= maxStates) {
+            return;
+        }
+
+        // Both recognizers share the static arrays, clearing through any instance clears them for all threads
+        var pool = POOL.get();
+        pool.lexer.getInterpreter().clearDFA();
+        pool.parser.getInterpreter().clearDFA();
+        DFA_CLEARS.incrementAndGet();
+    }
+
+    private static long countStates(DFA[] decisions) {
+        long states = 0;
+
+        for (DFA dfa : decisions) {
+            states += dfa.states.size();
+        }
+
+        return states;
+    }
+}
@@ -0,0 +1,552 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NameTable;
+
+import java.util.ArrayList;
+
+import static pt.up.fe.comp2024.JavammLexer.*;
+
+/**
+ * A hand-written recursive-descent parser for Java--, which builds the same AST as the ANTLR parser followed by the
+ * {@link AstBuilder}.
+ * <p>
+ * Expressions are parsed by precedence climbing: a primary expression is followed by a loop over the postfix and
+ * binary operators, so a long chain of operators is parsed in a single loop instead of one nested call per operator.
+ * The precedences and associativity are the ones that ANTLR gives to the left-recursive 'expr' rule, where earlier
+ * alternatives bind tighter.
+ * <p>
+ * There is no error recovery, the first error stops the parse with a {@link JmmSyntaxException}.
+ */
+final class PrattParser {
+
+    // Precedence of the operand of '!', higher than any binary operator
+    private static final int UNARY_PRECEDENCE = 5;
+
+    private final JmmTokenizer tokens;
+    private final NameTable names;
+    private int pos;
+
+    PrattParser(JmmTokenizer tokens, NameTable names) {
+        this.tokens = tokens;
+        this.names = names;
+        this.pos = 0;
+    }
+
+    /**
+     * Parses the tokens with the given rule of the grammar. As with the ANTLR parser, only the 'program' rule has to
+     * reach the end of the input.
+     *
+     * @param rule
+     * @return the AST, or null if the rule is not supported
+     */
+    JmmNode parse(String rule) {
+        return switch (rule) {
+            case "program" -> program();
+            case "importDecl" -> importDecl();
+            case "classDecl" -> classDecl();
+            case "varDecl" -> varDecl();
+            case "methodDecl" -> methodDecl();
+            case "returnStmt" -> returnStmt();
+            case "type" -> type();
+            case "literal" -> literal();
+            case "params" -> params();
+            case "stmt" -> stmt();
+            case "expr" -> expr(0);
+            default -> null;
+        };
+    }
+
+    private JmmNode program() {
+        var node = node(Kind.PROGRAM, "Program", pos);
+
+        while (peek() == IMPORT) {
+            node.add(importDecl());
+        }
+        node.add(classDecl());
+        expect(EOF);
+
+        return node;
+    }
+
+    private JmmNode importDecl() {
+        var node = node(Kind.IMPORT_DECLARATION, "ImportDecl", pos);
+        expect(IMPORT);
+
+        var name = new ArrayList<String>();
+        name.add(text(expect(ID)));
+        while (accept(DOT)) {
+            name.add(text(expect(ID)));
+        }
+        expect(SEMI);
+
+        node.put("ID", name.get(name.size() - 1));
+        node.putObject("name", name);
+
+        return node;
+    }
+
+    private JmmNode classDecl() {
+        var node = node(Kind.CLASS_DECLARATION, "ClassDecl", pos);
+        expect(CLASS);
+        node.setName(text(expect(ID)));
+
+        if (accept(EXTENDS)) {
+            node.put("parent", text(expect(ID)));
+        }
+
+        expect(LCURLY);
+        while (isVarDecl()) {
+            node.add(varDecl());
+        }
+        while (peek() != RCURLY && peek() != EOF) {
+            node.add(methodDecl());
+        }
+        expect(RCURLY);
+
+        return node;
+    }
+
+    private JmmNode varDecl() {
+        var node = node(Kind.VAR_DECLARATION, "VarDecl", pos);
+        node.add(type());
+        node.setName(text(expect(ID)));
+        expect(SEMI);
+
+        return node;
+    }
+
+    private JmmNode methodDecl() {
+        int start = pos;
+        boolean isPublic = accept(PUBLIC);
+
+        if (peek() == STATIC) {
+            return mainMethodDecl(start, isPublic);
+        }
+
+        var node = node(Kind.METHOD_DECLARATION, "MethodDecl", start);
+        node.add(type());
+        node.setName(text(expect(ID)));
+
+        expect(LPAREN);
+        if (peek() != RPAREN) {
+            node.add(params());
+        }
+        expect(RPAREN);
+
+        expect(LCURLY);
+        body(node);
+        node.add(returnStmt());
+        expect(RCURLY);
+
+        node.setPublic(isPublic);
+        node.setStatic(false);
+
+        return node;
+    }
+
+    private JmmNode mainMethodDecl(int start, boolean isPublic) {
+        var node = node(Kind.MAIN_METHOD_DECLARATION, "MethodDecl", start);
+        expect(STATIC);
+        expect(VOID);
+        node.setName(text(expect(ID)));
+
+        expect(LPAREN);
+        expect(STRING);
+        expect(LBRACKET);
+        expect(RBRACKET);
+        expect(ID);
+        expect(RPAREN);
+
+        expect(LCURLY);
+        body(node);
+        expect(RCURLY);
+
+        node.setPublic(isPublic);
+        node.setStatic(true);
+
+        return node;
+    }
+
+    /**
+     * The declarations and statements of a method, up to the return statement or the closing brace.
+     */
+    private void body(JmmNode method) {
+        while (isVarDecl()) {
+            method.add(varDecl());
+        }
+
+        while (peek() != RETURN && peek() != RCURLY && peek() != EOF) {
+            method.add(stmt());
+        }
+    }
+
+    /**
+     * A declaration starts with a type followed by a name, which no statement does.
+     */
+    private boolean isVarDecl() {
+        int next = afterType(pos);
+
+        return next > pos && peek(next) == ID && peek(next + 1) == SEMI;
+    }
+
+    /**
+     * Position after the type that starts at the given position, or the same position if there is no type there.
+     */
+    private int afterType(int at) {
+        int type = peek(at);
+        if (type != INT && type != STRING && type != BOOLEAN && type != ID) {
+            return at;
+        }
+
+        return peek(at + 1) == LBRACKET && peek(at + 2) == RBRACKET ? at + 3 : at + 1;
+    }
+
+    private JmmNode returnStmt() {
+        var node = node(Kind.RETURN, "ReturnStmt", pos);
+        expect(RETURN);
+        node.add(expr(0));
+        expect(SEMI);
+
+        return node;
+    }
+
+    private JmmNode type() {
+        int start = pos;
+        var literal = literal();
+
+        if (peek() == LBRACKET) {
+            expect(LBRACKET);
+            expect(RBRACKET);
+
+            var node = node(Kind.ARRAY_TYPE, "Type", start);
+            node.add(literal);
+            return node;
+        }
+
+        var node = node(Kind.PRIMITIVE_TYPE, "Type", start);
+        node.add(literal);
+        return node;
+    }
+
+    private JmmNode literal() {
+        var kind = switch (peek()) {
+            case INT -> Kind.INT_TYPE;
+            case STRING -> Kind.STRING_TYPE;
+            case BOOLEAN -> Kind.BOOLEAN_TYPE;
+            case ID -> Kind.NAMED_TYPE;
+            default -> throw unexpected();
+        };
+
+        var node = node(kind, "Literal", pos);
+        node.setName(text(pos++));
+
+        return node;
+    }
+
+    /**
+     * The parameters of a method, where each node has the first parameter and the node of the remaining ones.
+     */
+    private JmmNode params() {
+        var node = node(Kind.PARAMS, null, pos);
+        boolean isVarArg = peek() == INT && peek(pos + 1) == VARARGSUFFIX;
+
+        if (isVarArg) {
+            pos += 2;
+        } else {
+            node.add(type());
+        }
+        node.setName(text(expect(ID)));
+
+        if (accept(COMMA)) {
+            node.add(params());
+        }
+
+        node.setVarArg(isVarArg);
+
+        return node;
+    }
+
+    private JmmNode stmt() {
+        int start = pos;
+
+        switch (peek()) {
+            case LCURLY -> {
+                var node = node(Kind.SCOPE_STMT, "Stmt", start);
+                pos++;
+                while (peek() != RCURLY && peek() != EOF) {
+                    node.add(stmt());
+                }
+                expect(RCURLY);
+
+                return node;
+            }
+            case IF -> {
+                var node = node(Kind.IF_STMT, "Stmt", start);
+                pos++;
+                expect(LPAREN);
+                node.add(expr(0));
+                expect(RPAREN);
+                node.add(stmt());
+                expect(ELSE);
+                node.add(stmt());
+
+                return node;
+            }
+            case WHILE -> {
+                var node = node(Kind.WHILE_STMT, "Stmt", start);
+                pos++;
+                expect(LPAREN);
+                node.add(expr(0));
+                expect(RPAREN);
+                node.add(stmt());
+
+                return node;
+            }
+            case ID -> {
+                if (peek(pos + 1) == EQUALS) {
+                    var node = node(Kind.ASSIGN_STMT, "Stmt", start);
+                    node.setName(text(pos));
+                    pos += 2;
+                    node.add(expr(0));
+                    expect(SEMI);
+
+                    return node;
+                }
+
+                if (peek(pos + 1) == LBRACKET && isArrayAssign()) {
+                    var node = node(Kind.ARRAY_ASSIGN_STMT, "Stmt", start);
+                    node.setName(text(pos));
+                    pos += 2;
+                    node.add(expr(0));
+                    expect(RBRACKET);
+                    expect(EQUALS);
+                    node.add(expr(0));
+                    expect(SEMI);
+
+                    return node;
+                }
+            }
+            default -> {
+            }
+        }
+
+        var node = node(Kind.EXPR_STMT, "Stmt", start);
+        node.add(expr(0));
+        expect(SEMI);
+
+        return node;
+    }
+
+    /**
+     * True if the name and index at the current position are followed by '=', finding the closing bracket of the index.
+     */
+    private boolean isArrayAssign() {
+        int depth = 0;
+
+        for (int at = pos + 1; at < tokens.size(); at++) {
+            int type = peek(at);
+
+            if (type == LBRACKET) {
+                depth++;
+            } else if (type == RBRACKET && --depth == 0) {
+                return peek(at + 1) == EQUALS;
+            } else if (type == EOF || type == SEMI) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses an expression whose binary operators bind at least as tightly as the given precedence.
+     */
+    private JmmNode expr(int precedence) {
+        int start = pos;
+        var left = primary();
+
+        while (true) {
+            int type = peek();
+
+            if (type == LBRACKET) {
+                pos++;
+                var index = expr(0);
+                expect(RBRACKET);
+
+                left = node(Kind.ARRAY_ACCESS_OP, "Expr", start, left, index);
+            } else if (type == DOT) {
+                pos++;
+                var name = text(expect(ID));
+
+                if (accept(LPAREN)) {
+                    var node = node(Kind.METHOD_CALL, "Expr", start, left);
+                    if (peek() != RPAREN) {
+                        do {
+                            node.add(expr(0));
+                        } while (accept(COMMA));
+                    }
+                    expect(RPAREN);
+
+                    node.setName(name);
+                    left = node;
+                } else {
+                    var node = node(Kind.ATTRIBUTE, "Expr", start, left);
+                    node.setName(name);
+                    left = node;
+                }
+            } else {
+                int operator = getPrecedence(type);
+                if (operator < precedence) {
+                    return left;
+                }
+
+                var op = text(pos++);
+                // Left associative, the right operand only takes tighter operators
+                var right = expr(operator + 1);
+
+                var node = node(Kind.BINARY_OP, "Expr", start, left, right);
+                node.setOp(op);
+                left = node;
+            }
+        }
+    }
+
+    /**
+     * Precedence of a binary operator, or -1 if the token is not one.
+     */
+    private static int getPrecedence(int type) {
+        return switch (type) {
+            case MUL, DIV -> 4;
+            case ADD, SUB -> 3;
+            case LT -> 2;
+            case AND -> 1;
+            default -> -1;
+        };
+    }
+
+    private JmmNode primary() {
+        int start = pos;
+
+        switch (peek()) {
+            case LPAREN -> {
+                pos++;
+                var node = node(Kind.PAREN_EXPR, "Expr", start, expr(0));
+                expect(RPAREN);
+
+                return node;
+            }
+            case NEW -> {
+                pos++;
+
+                if (accept(INT)) {
+                    expect(LBRACKET);
+                    var node = node(Kind.ARRAY_DECLARATION, "Expr", start, expr(0));
+                    expect(RBRACKET);
+
+                    return node;
+                }
+
+                var node = node(Kind.OBJECT_DECLARATION, "Expr", start);
+                node.setName(text(expect(ID)));
+                expect(LPAREN);
+                expect(RPAREN);
+
+                return node;
+            }
+            case LBRACKET -> {
+                pos++;
+                var node = node(Kind.ARRAY_EXPRESSION, "Expr", start);
+                if (peek() != RBRACKET) {
+                    do {
+                        node.add(expr(0));
+                    } while (accept(COMMA));
+                }
+                expect(RBRACKET);
+
+                return node;
+            }
+            case NOT -> {
+                var op = text(pos++);
+                var node = node(Kind.UNARY_OP, "Expr", start, expr(UNARY_PRECEDENCE));
+                node.setOp(op);
+
+                return node;
+            }
+            case ID -> {
+                return value(Kind.IDENTIFIER);
+            }
+            case INTEGER -> {
+                return value(Kind.INTEGER_LITERAL);
+            }
+            case TRUE, FALSE -> {
+                return value(Kind.BOOLEAN_LITERAL);
+            }
+            case THIS -> {
+                return value(Kind.THIS);
+            }
+            default -> throw unexpected();
+        }
+    }
+
+    private JmmNode value(Kind kind) {
+        var node = node(kind, "Expr", pos);
+        node.setValue(text(pos++));
+
+        return node;
+    }
+
+    /**
+     * Creates a node with the position of the given token and the given children.
+     */
+    private CompactJmmNode node(Kind kind, String rule, int start, JmmNode... children) {
+        var node = new CompactJmmNode(kind, AstBuilder.getHierarchy(kind, rule));
+        node.setPosition(tokens.line(start), tokens.column(start));
+
+        for (var child : children) {
+            node.add(child);
+        }
+
+        return node;
+    }
+
+    private int peek() {
+        return tokens.type(pos);
+    }
+
+    private int peek(int at) {
+        return at < tokens.size() ? tokens.type(at) : EOF;
+    }
+
+    private String text(int token) {
+        return tokens.text(token, names);
+    }
+
+    private boolean accept(int type) {
+        if (peek() != type) {
+            return false;
+        }
+
+        pos++;
+        return true;
+    }
+
+    /**
+     * Consumes a token of the given type.
+     *
+     * @return the position of the token
+     */
+    private int expect(int type) {
+        if (peek() != type) {
+            throw unexpected();
+        }
+
+        return pos++;
+    }
+
+    private JmmSyntaxException unexpected() {
+        return new JmmSyntaxException(tokens.line(pos), tokens.column(pos), "unexpected input '" + tokens.text(pos) + "'");
+    }
+}
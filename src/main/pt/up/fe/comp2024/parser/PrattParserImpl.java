@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.parser.JmmParser;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.ast.NameTable;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses with the hand-written {@link JmmTokenizer} and {@link PrattParser} instead of ANTLR, building the same AST
+ * as {@link JmmParserImpl}.
+ * <p>
+ * Only programs without errors are handled here: at the first lexical or syntax error, the input is parsed again by
+ * {@link JmmParserImpl}, so that the reports are the same as with the ANTLR parser. To use this parser in the tests,
+ * set 'ParserClass' in config.properties to this class; the compiler uses it with '-x=pratt'.
+ */
+public class PrattParserImpl implements JmmParser {
+
+    private static final AtomicLong FALLBACKS = new AtomicLong();
+
+    /**
+     * Number of inputs that had errors and were parsed again by the ANTLR parser, in this JVM.
+     *
+     * @return
+     */
+    public static long getFallbacks() {
+        return FALLBACKS.get();
+    }
+
+    @Override
+    public String getDefaultRule() {
+        return "program";
+    }
+
+    @Override
+    public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+
+        try (var ignored = PipelineMetrics.measure(PipelineMetrics.PARSE)) {
+            var root = new PrattParser(JmmTokenizer.tokenize(jmmCode), new NameTable()).parse(startingRule);
+
+            if (root != null) {
+                return new JmmParserResult(root, new ArrayList<>(), config);
+            }
+        } catch (JmmSyntaxException e) {
+            // Reported below by the ANTLR parser
+        }
+
+        FALLBACKS.incrementAndGet();
+        return new JmmParserImpl().parse(jmmCode, startingRule, config);
+    }
+}
@@ -0,0 +1,253 @@
+package pt.up.fe.comp2024.runner;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs compiled Java-- programs inside the current JVM, instead of launching a new JVM for each of them.
+ * <p>
+ * Every run defines the class in a fresh class loader, whose parent is the platform class loader and whose path only
+ * has the runtime libraries, so programs cannot see the compiler nor each other, and get their own copy of static
+ * state such as the input buffer of 'io'. The standard streams are routed per thread, which lets many programs run
+ * at the same time, each with its own input and captured output.
+ * <p>
+ * Programs that run past the timeout cannot always be stopped. They are interrupted, which Java-- programs never
+ * check, and then stopped with {@link Thread#stop()}, which JDK 20 and later no longer support. On those JDKs, the
+ * result is still returned once the timeout expires, but the program keeps running on a daemon thread, using a core,
+ * until it finishes or the JVM exits. Programs that may not terminate should therefore be run in their own JVM.
+ */
+public class ProgramRunner {
+
+    public static final Path DEFAULT_RUNTIME = Path.of("libs-jmm", "compiled");
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final URL[] classpath;
+    private final Duration timeout;
+
+    public ProgramRunner() {
+        this(List.of(DEFAULT_RUNTIME), DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param classpath runtime libraries the programs can use
+     * @param timeout   how long to wait for a program before returning a timed out result, see the class
+     *                  documentation for what happens to the program
+     */
+    public ProgramRunner(List<Path> classpath, Duration timeout) {
+        this.classpath = classpath.stream().map(ProgramRunner::toUrl).toArray(URL[]::new);
+        this.timeout = timeout;
+    }
+
+    private static URL toUrl(Path path) {
+        try {
+            return path.toAbsolutePath().toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("Invalid classpath entry '" + path + "'", e);
+        }
+    }
+
+    /**
+     * A compiled program and the input to give it.
+     *
+     * @param className
+     * @param classBytes
+     * @param input      text read from the standard input, or null for none
+     */
+    public record Program(String className, byte[] classBytes, String input) {
+
+        public static Program of(CompilationSession session, String input) {
+            return new Program(session.getClassName(), session.getClassBytes(), input);
+        }
+
+        public static Program of(JasminResult jasminResult, String input) {
+            return new Program(jasminResult.getClassName(), JasminBackendImpl.assemble(jasminResult), input);
+        }
+    }
+
+    /**
+     * What a program printed and how it finished.
+     *
+     * @param output    everything printed to the standard output
+     * @param error     everything printed to the standard error, including the stack trace of uncaught exceptions
+     * @param exception the exception that ended the program, or null if main returned normally
+     * @param timedOut  true if the program ran longer than the timeout, in which case it may still be running
+     */
+    public record RunResult(String output, String error, Throwable exception, boolean timedOut) {
+
+        public boolean isSuccess() {
+            return exception == null && !timedOut;
+        }
+    }
+
+    public RunResult run(CompilationSession session, String input) {
+        return run(Program.of(session, input));
+    }
+
+    /**
+     * Runs the main method of the program, waiting for it to finish or time out.
+     *
+     * @param program
+     * @param args
+     * @return
+     */
+    public RunResult run(Program program, String... args) {
+        StandardStreams.install();
+
+        var out = new ByteArrayOutputStream();
+        var err = new ByteArrayOutputStream();
+        var in = new ByteArrayInputStream(program.input() == null ? new byte[0] : program.input().getBytes(Charset.defaultCharset()));
+        var exception = new Throwable[1];
+
+        try (var loader = new ProgramClassLoader(program, classpath)) {
+            var thread = new Thread(() -> {
+                StandardStreams.redirect(new StandardStreams.Redirect(in, out, err));
+                try {
+                    exception[0] = invokeMain(loader, program.className(), args);
+                } finally {
+                    System.out.flush();
+                    System.err.flush();
+                    StandardStreams.clear();
+                }
+            }, "jmm-run-" + program.className());
+            thread.setDaemon(true);
+            thread.start();
+
+            boolean timedOut = !join(thread);
+            if (timedOut) {
+                stop(thread);
+            }
+
+            var error = err.toString(Charset.defaultCharset());
+            if (exception[0] != null) {
+                error += getStackTrace(exception[0]);
+            }
+
+            return new RunResult(out.toString(Charset.defaultCharset()), error, exception[0], timedOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close class loader of " + program.className(), e);
+        }
+    }
+
+    /**
+     * Runs several programs at the same time, each on its own thread and class loader.
+     *
+     * @param programs
+     * @param threads  how many programs run at once
+     * @return the results, in the same order as the programs
+     */
+    public List<RunResult> runAll(List<Program> programs, int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(programs.size(), 1)));
+
+        try {
+            var futures = new ArrayList<Future<RunResult>>(programs.size());
+            for (var program : programs) {
+                futures.add(pool.submit(() -> run(program)));
+            }
+
+            var results = new ArrayList<RunResult>(programs.size());
+            for (var future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for programs to run", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected failure while running programs", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Throwable invokeMain(ClassLoader loader, String className, String[] args) {
+        try {
+            var main = Class.forName(className, true, loader).getMethod("main", String[].class);
+
+            // Classes generated from Jasmin are not public
+            main.setAccessible(true);
+            main.invoke(null, (Object) args);
+
+            return null;
+        } catch (InvocationTargetException e) {
+            return e.getCause();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return e;
+        }
+    }
+
+    private boolean join(Thread thread) {
+        try {
+            thread.join(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return !thread.isAlive();
+    }
+
+    /**
+     * Stops a program that is still running, where the JVM allows it. Programs do not check for interrupts, so the
+     * thread is also forcibly stopped, which fails on JDK 20 and later.
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    private static void stop(Thread thread) {
+        thread.interrupt();
+
+        try {
+            thread.stop();
+        } catch (UnsupportedOperationException e) {
+            // The thread is a daemon, so at least it does not keep the JVM alive
+        }
+    }
+
+    private static String getStackTrace(Throwable exception) {
+        var trace = new StringWriter();
+        var writer = new PrintWriter(trace);
+        writer.print("Exception in thread \"main\" ");
+        exception.printStackTrace(writer);
+        writer.flush();
+
+        return trace.toString();
+    }
+
+    private static class ProgramClassLoader extends URLClassLoader {
+
+        private final Program program;
+
+        ProgramClassLoader(Program program, URL[] classpath) {
+            super(classpath, ClassLoader.getPlatformClassLoader());
+            this.program = program;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(program.className())) {
+                return defineClass(name, program.classBytes(), 0, program.classBytes().length);
+            }
+
+            return super.findClass(name);
+        }
+    }
+}
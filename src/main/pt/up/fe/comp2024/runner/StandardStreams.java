@@ -0,0 +1,142 @@
+package pt.up.fe.comp2024.runner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Routes the standard streams of the JVM per thread, so that programs running at the same time in the same JVM each
+ * read their own input and have their output captured separately.
+ * <p>
+ * Once installed, System.in, System.out and System.err delegate to the streams registered for the current thread,
+ * or to the original streams for threads without any.
+ */
+class StandardStreams {
+
+    private static final ThreadLocal<Redirect> CURRENT = new ThreadLocal<>();
+    private static InputStream installedIn;
+    private static PrintStream installedOut;
+    private static PrintStream installedErr;
+
+    /**
+     * The streams used by a thread instead of the standard ones.
+     *
+     * @param in
+     * @param out
+     * @param err
+     */
+    record Redirect(InputStream in, OutputStream out, OutputStream err) {
+    }
+
+    /**
+     * Replaces the standard streams with routing ones, unless they are already in place. Streams that were set by
+     * someone else in the meantime are routed to for threads without redirects.
+     */
+    static synchronized void install() {
+        if (System.in != installedIn) {
+            installedIn = new RoutedInputStream(System.in);
+            System.setIn(installedIn);
+        }
+
+        if (System.out != installedOut) {
+            installedOut = new PrintStream(new RoutedOutputStream(System.out, false), true);
+            System.setOut(installedOut);
+        }
+
+        if (System.err != installedErr) {
+            installedErr = new PrintStream(new RoutedOutputStream(System.err, true), true);
+            System.setErr(installedErr);
+        }
+    }
+
+    static void redirect(Redirect redirect) {
+        CURRENT.set(redirect);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    private static class RoutedOutputStream extends OutputStream {
+
+        private final OutputStream original;
+        private final boolean isErr;
+
+        RoutedOutputStream(OutputStream original, boolean isErr) {
+            this.original = original;
+            this.isErr = isErr;
+        }
+
+        private OutputStream target() {
+            var redirect = CURRENT.get();
+            if (redirect == null) {
+                return original;
+            }
+
+            return isErr ? redirect.err() : redirect.out();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    /**
+     * Hands out input at most one line per read, like a terminal does, since programs may create a new reader over
+     * System.in for every line they read.
+     */
+    private static class RoutedInputStream extends InputStream {
+
+        private final InputStream original;
+
+        RoutedInputStream(InputStream original) {
+            this.original = original;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var redirect = CURRENT.get();
+            return redirect == null ? original.read() : redirect.in().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var redirect = CURRENT.get();
+            if (redirect == null) {
+                return original.read(b, off, len);
+            }
+
+            int count = 0;
+            while (count < len) {
+                int next = redirect.in().read();
+                if (next == -1) {
+                    break;
+                }
+
+                b[off + count++] = (byte) next;
+                if (next == '\n') {
+                    break;
+                }
+            }
+
+            return count == 0 && len > 0 ? -1 : count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return CURRENT.get() == null ? original.available() : 0;
+        }
+    }
+}
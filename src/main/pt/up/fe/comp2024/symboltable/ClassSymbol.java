@@ -12,20 +12,21 @@ public class ClassSymbol {
     private final String className;
     private final String superclass;
     private final List<Symbol> fields;
+    private final Map<String,ResolvedSymbol> fieldsByName;
     private final Map<String,MethodSymbol> methods;
 
-    public ClassSymbol(String className, String superclass, List<Symbol> fields, Map<String,MethodSymbol> methods) {
+    public ClassSymbol(String className, String superclass, List<Symbol> fields, Map<String,ResolvedSymbol> fieldsByName,
+                       Map<String,MethodSymbol> methods) {
         this.className = className;
         this.superclass = superclass;
         this.fields = fields;
+        this.fieldsByName = fieldsByName;
         this.methods = methods;
     }
 
-    public ClassSymbol(String className, List<Symbol> fields, Map<String,MethodSymbol> methods) {
-        this.className = className;
-        this.superclass = null;
-        this.fields = fields;
-        this.methods = methods;
+    public ClassSymbol(String className, List<Symbol> fields, Map<String,ResolvedSymbol> fieldsByName,
+                       Map<String,MethodSymbol> methods) {
+        this(className, null, fields, fieldsByName, methods);
     }
 
     public String getClassName() {
@@ -40,6 +41,10 @@ public class ClassSymbol {
         return fields;
     }
 
+    public ResolvedSymbol getField(String fieldName) {
+        return fieldsByName.get(fieldName);
+    }
+
     public List<String> getMethods() {
         return new ArrayList<>(this.methods.keySet());
     }
@@ -11,10 +11,25 @@ public class JmmSymbolTable implements SymbolTable {
 
     private final ClassSymbol declaredClass;
 
+    private final TypeTable types;
+
     public JmmSymbolTable(List<String> imports,
-                          ClassSymbol declaredClass) {
+                          ClassSymbol declaredClass,
+                          TypeTable types) {
         this.imports = imports;
         this.declaredClass = declaredClass;
+        this.types = types;
+    }
+
+    /**
+     * The single instance, in this compilation, of the type with the given name, and whether it is an array.
+     *
+     * @param name
+     * @param isArray
+     * @return
+     */
+    public Type getType(String name, boolean isArray) {
+        return types.getType(name, isArray);
     }
 
     @Override
@@ -71,24 +86,39 @@ public class JmmSymbolTable implements SymbolTable {
         return declaredClass.getMethodSymbol(method);
     }
 
+    /**
+     * Finds the declaration a variable name refers to inside a method, in constant time: a parameter, then a local
+     * variable, then a field.
+     *
+     * @param varName
+     * @param method the name of the method, or null to only look for fields
+     * @return the declaration, or null if there is none
+     */
+    public ResolvedSymbol resolve(String varName, String method) {
+        var methodSymbol = method == null ? null : getMethodSymbol(method);
+
+        if (methodSymbol == null) {
+            return declaredClass.getField(varName);
+        }
+
+        return methodSymbol.resolve(varName);
+    }
+
+    /**
+     * @param varName
+     * @param method
+     * @return true if the name refers to a field inside the method, and not to a parameter or local variable
+     */
+    public boolean isField(String varName, String method) {
+        var resolved = resolve(varName, method);
+
+        return resolved != null && resolved.isField();
+    }
+
     public Symbol getVarDeclaration(String varName, String method) {
+        var resolved = resolve(varName, method);
 
-        for (Symbol varDecl : getParameters(method)) {
-            if (varDecl.getName().equals(varName)) {
-                return varDecl;
-            }
-        }
-        for (Symbol varDecl : getLocalVariables(method)) {
-            if (varDecl.getName().equals(varName)) {
-                return varDecl;
-            }
-        }
-        for (Symbol varDecl : getFields()) {
-            if (varDecl.getName().equals(varName)) {
-                return varDecl;
-            }
-        }
-        return null;
+        return resolved == null ? null : resolved.getSymbol();
     }
 
     public boolean classExtends() {
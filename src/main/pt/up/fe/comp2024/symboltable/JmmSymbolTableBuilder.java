@@ -15,10 +15,11 @@ import static pt.up.fe.comp2024.ast.Kind.VAR_DECLARATION;
 
 public class JmmSymbolTableBuilder {
     public static JmmSymbolTable build(JmmNode root) {
+        var types = new TypeTable();
         var imports = buildImports(root);
-        var declaredClass = buildClass(root);
+        var declaredClass = buildClass(root, types);
 
-        return new JmmSymbolTable(imports, declaredClass);
+        return new JmmSymbolTable(imports, declaredClass, types);
     }
 
     private static List<String> buildImports(JmmNode root) {
@@ -32,30 +33,31 @@ public class JmmSymbolTableBuilder {
         return imports;
     }
 
-    private static ClassSymbol buildClass(JmmNode root) {
+    private static ClassSymbol buildClass(JmmNode root, TypeTable types) {
         int classDeclIndex = root.getNumChildren()-1;
         var classDecl = root.getJmmChild(classDeclIndex);
         //SpecsCheck.checkArgument(Kind.CLASS_DECL.check(classDecl), () -> "Expected a class declaration: " + classDecl);
         String className = classDecl.get("name");
 
         var superclass = buildSuper(classDecl);
-        var fields = buildFields(classDecl);
-        var methods = buildMethods(classDecl);
+        var fields = buildFields(classDecl, types);
+        var fieldsByName = buildFieldsByName(fields);
+        var methods = buildMethods(classDecl, fieldsByName, types);
 
-        return new ClassSymbol(className, superclass, fields, methods);
+        return new ClassSymbol(className, superclass, fields, fieldsByName, methods);
     }
 
     private static String buildSuper(JmmNode classDecl) {
         return classDecl.hasAttribute("parent") ? classDecl.get("parent") : null;
     }
 
-    private static List<Symbol> buildFields(JmmNode classDecl) {
+    private static List<Symbol> buildFields(JmmNode classDecl, TypeTable types) {
         List<Symbol> fields = new ArrayList<>();
 
         for (JmmNode child: classDecl.getChildren()) {
             if (!child.getKind().equals("VarDeclaration")) continue;
 
-            Type type = buildType(child.getChild(0));
+            Type type = buildType(child.getChild(0), types);
 
             Symbol field = new Symbol(type, child.get("name"));
             fields.add(field);
@@ -64,13 +66,48 @@ public class JmmSymbolTableBuilder {
         return fields;
     }
 
-    private static Type buildType(JmmNode typeNode) {
+    private static Map<String, ResolvedSymbol> buildFieldsByName(List<Symbol> fields) {
+        Map<String, ResolvedSymbol> fieldsByName = new HashMap<>();
+
+        for (int i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            fieldsByName.putIfAbsent(field.getName(), new ResolvedSymbol(field, ResolvedSymbol.Scope.FIELD, i));
+        }
+
+        return fieldsByName;
+    }
+
+    /**
+     * The declaration each name refers to inside a method. Parameters hide local variables with the same name, and
+     * both hide fields. Among declarations in the same scope, the first one is kept.
+     */
+    private static Map<String, ResolvedSymbol> buildVariables(List<ParamSymbol> params, List<Symbol> locals,
+                                                              Map<String, ResolvedSymbol> fieldsByName) {
+        Map<String, ResolvedSymbol> variables = new HashMap<>();
+
+        for (int i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+            variables.putIfAbsent(param.getName(), new ResolvedSymbol(param, ResolvedSymbol.Scope.PARAM, i));
+        }
+
+        for (int i = 0; i < locals.size(); i++) {
+            var local = locals.get(i);
+            variables.putIfAbsent(local.getName(), new ResolvedSymbol(local, ResolvedSymbol.Scope.LOCAL, i));
+        }
+
+        fieldsByName.forEach(variables::putIfAbsent);
+
+        return variables;
+    }
+
+    private static Type buildType(JmmNode typeNode, TypeTable types) {
         String typeName = typeNode.getChild(0).get("name");
         boolean isArray = typeNode.getKind().equals("ArrayType");
-        return new Type(typeName, isArray);
+        return types.getType(typeName, isArray);
     }
 
-    private static Map<String, MethodSymbol> buildMethods(JmmNode classDecl) {
+    private static Map<String, MethodSymbol> buildMethods(JmmNode classDecl, Map<String, ResolvedSymbol> fieldsByName,
+                                                         TypeTable types) {
         Map<String, MethodSymbol> methodSymbols = new HashMap<>();
 
         // Main method
@@ -78,13 +115,13 @@ public class JmmSymbolTableBuilder {
             JmmNode mainMethod = classDecl.getChildren("MainMethodDeclaration").get(0);
 
             String name = mainMethod.get("name");
-            Type returnType = new Type(TypeUtils.getVoidTypeName(), false);
+            Type returnType = types.getType(TypeUtils.getVoidTypeName(), false);
 
             List<ParamSymbol> params = new ArrayList<>();
-            ParamSymbol param = new ParamSymbol(new Type("String", true), "args");
+            ParamSymbol param = new ParamSymbol(types.getType("String", true), "args");
             params.add(param);
 
-            List<Symbol> locals = buildFields(mainMethod);
+            List<Symbol> locals = buildFields(mainMethod, types);
 
             MethodSymbol methodSymbol = new MethodSymbol(
                     name,
@@ -92,7 +129,8 @@ public class JmmSymbolTableBuilder {
                     mainMethod.get("isStatic").equals("true"),
                     mainMethod.get("isPublic").equals("true"),
                     params,
-                    locals
+                    locals,
+                    buildVariables(params, locals, fieldsByName)
             );
 
             methodSymbols.put(name, methodSymbol);
@@ -101,10 +139,10 @@ public class JmmSymbolTableBuilder {
         for (JmmNode method: classDecl.getChildren("MethodDeclaration")) {
 
             String name = method.get("name");
-            Type returnType = buildType(method.getChild(0));
+            Type returnType = buildType(method.getChild(0), types);
 
-            List<ParamSymbol> params = buildParams(method);
-            List<Symbol> locals = buildFields(method);
+            List<ParamSymbol> params = buildParams(method, types);
+            List<Symbol> locals = buildFields(method, types);
 
             MethodSymbol methodSymbol = new MethodSymbol(
                     name,
@@ -112,7 +150,8 @@ public class JmmSymbolTableBuilder {
                     method.get("isStatic").equals("true"),
                     method.get("isPublic").equals("true"),
                     params,
-                    locals
+                    locals,
+                    buildVariables(params, locals, fieldsByName)
             );
 
             methodSymbols.put(name, methodSymbol);
@@ -121,7 +160,7 @@ public class JmmSymbolTableBuilder {
         return methodSymbols;
     }
 
-    private static List<ParamSymbol> buildParams(JmmNode methodDecl) {
+    private static List<ParamSymbol> buildParams(JmmNode methodDecl, TypeTable types) {
         List<ParamSymbol> params = new ArrayList<>();
 
         List<JmmNode> paramChildren = methodDecl.getChildren("Params");
@@ -133,9 +172,9 @@ public class JmmSymbolTableBuilder {
             ParamSymbol symbol;
 
             if (param.get("isVarArg").equals("true")) {
-                symbol = new ParamSymbol(new Type(TypeUtils.getIntTypeName(), true), param.get("name"), true);
+                symbol = new ParamSymbol(types.getType(TypeUtils.getIntTypeName(), true), param.get("name"), true);
             } else {
-                symbol = new ParamSymbol(buildType(param.getChild(0)), param.get("name"));
+                symbol = new ParamSymbol(buildType(param.getChild(0), types), param.get("name"));
             }
 
             params.add(symbol);
@@ -4,6 +4,7 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 
 import java.util.List;
+import java.util.Map;
 
 public class MethodSymbol {
     private final String name;
@@ -18,13 +19,17 @@ public class MethodSymbol {
 
     private final List<Symbol> locals;
 
-    public MethodSymbol(String name, Type type, Boolean isStatic, Boolean isPublic, List<ParamSymbol> params, List<Symbol> locals) {
+    private final Map<String, ResolvedSymbol> variables;
+
+    public MethodSymbol(String name, Type type, Boolean isStatic, Boolean isPublic, List<ParamSymbol> params,
+                        List<Symbol> locals, Map<String, ResolvedSymbol> variables) {
         this.name = name;
         this.type = type;
         this.isStatic = isStatic;
         this.isPublic = isPublic;
         this.params = params;
         this.locals = locals;
+        this.variables = variables;
     }
 
     public String getName() {
@@ -46,4 +51,12 @@ public class MethodSymbol {
     public List<Symbol> getLocals() {
         return locals;
     }
+
+    /**
+     * @param varName
+     * @return the parameter, local variable or field the name refers to inside the method, or null if there is none
+     */
+    public ResolvedSymbol resolve(String varName) {
+        return variables.get(varName);
+    }
 }
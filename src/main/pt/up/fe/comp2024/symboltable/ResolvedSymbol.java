@@ -0,0 +1,64 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * The declaration a variable name refers to inside a method: a parameter, a local variable or a field of the class.
+ */
+public class ResolvedSymbol {
+
+    public enum Scope {
+        PARAM,
+        LOCAL,
+        FIELD
+    }
+
+    private final Symbol symbol;
+
+    private final Scope scope;
+
+    private final int index;
+
+    public ResolvedSymbol(Symbol symbol, Scope scope, int index) {
+        this.symbol = symbol;
+        this.scope = scope;
+        this.index = index;
+    }
+
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public String getName() {
+        return symbol.getName();
+    }
+
+    public Type getType() {
+        return symbol.getType();
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @return the position of the parameter in the method, starting at 0, or of the local variable or field in its
+     * declarations
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isParam() {
+        return scope == Scope.PARAM;
+    }
+
+    public boolean isLocal() {
+        return scope == Scope.LOCAL;
+    }
+
+    public boolean isField() {
+        return scope == Scope.FIELD;
+    }
+}
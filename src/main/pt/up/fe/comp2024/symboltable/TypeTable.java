@@ -0,0 +1,42 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The types used in a compilation, so that the declarations and the annotated nodes of the same program share a single
+ * instance of each type. Built-in types are the ones shared by all compilations, given by {@link TypeUtils}.
+ */
+public class TypeTable {
+
+    private final Map<String, Type> types = new ConcurrentHashMap<>();
+
+    private final Map<String, Type> arrayTypes = new ConcurrentHashMap<>();
+
+    /**
+     * The single instance, in this compilation, of the type with the given name, and whether it is an array.
+     *
+     * @param name
+     * @param isArray
+     * @return
+     */
+    public Type getType(String name, boolean isArray) {
+        var type = TypeUtils.getBuiltInType(name, isArray);
+        if (type != null) {
+            return type;
+        }
+
+        // A type being annotated may not have a name yet
+        if (name == null) {
+            return new Type(null, isArray);
+        }
+
+        var typesByName = isArray ? arrayTypes : types;
+        type = typesByName.get(name);
+
+        return type != null ? type : typesByName.computeIfAbsent(name, key -> new Type(key, isArray));
+    }
+}
@@ -19,10 +19,12 @@ import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.runner.ProgramRunner;
 import pt.up.fe.specs.util.SpecsCollections;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
 import pt.up.fe.specs.util.utilities.LineStream;
 
 import java.io.File;
@@ -51,9 +53,34 @@ public class CpUtils {
     public static final String IF_REGEX = "((if_icmpeq|if_icmpne|if_icmplt|if_icmpge|if_icmpgt|if_icmple|ifeq|ifne|iflt|ifge|ifgt|ifle)\\s+\\w+)";
     public static final String GOTO_REGEX = "(goto\\s+\\w+)";
 
+    // Runs the compiled programs in this JVM, instead of starting a new one for each of them
+    private static final ProgramRunner RUNNER = new ProgramRunner();
+
     static final String FIELD_PREFIX = "\\.field\\s+((public|private)\\s+)?(')?";
     static final String FIELD_SUFFIX = "(')?\\s+";
 
+    /**
+     * Assembles and runs the Jasmin code, as {@link JasminResult#runWithFullOutput()}.
+     *
+     * @param result
+     * @return the output of the program, with return value 0 if it finished normally
+     */
+    public static ProcessOutputAsString runWithFullOutput(JasminResult result) {
+        var run = RUNNER.run(ProgramRunner.Program.of(result, null));
+
+        return new ProcessOutputAsString(run.isSuccess() ? 0 : 1, run.output(), run.error());
+    }
+
+    /**
+     * Assembles and runs the Jasmin code, as {@link JasminResult#run()}.
+     *
+     * @param result
+     * @return everything the program printed
+     */
+    public static String run(JasminResult result) {
+        return runWithFullOutput(result).getOutput();
+    }
+
     public static String toMessage(String message, OllirResult result) {
         var finalMessage = new StringBuilder();
 
@@ -121,7 +148,7 @@ public class CpUtils {
 
         var testName = new File(resource).getName();
         System.out.println(testName + ":\n" + result.getJasminCode());
-        var runOutput = result.runWithFullOutput();
+        var runOutput = runWithFullOutput(result);
         Assert.assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput() + "\n\nJasmin code:\n"
                 + result.getJasminCode(), 0, runOutput.getReturnValue());
         System.out.println("\n Result: " + runOutput.getOutput());
@@ -145,7 +172,7 @@ public class CpUtils {
 
             var testName = new File(resource).getName();
             System.out.println(testName + ":\n" + result.getJasminCode());
-            var runOutput = result.runWithFullOutput();
+            var runOutput = runWithFullOutput(result);
             Assert.assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput() + "\n\nJasmin code:\n"
                             + result.getJasminCode(), 0,
                     runOutput.getReturnValue());
@@ -528,7 +555,7 @@ public class CpUtils {
 
     public static void runJasmin(JasminResult jasminResult, String expected) {
         try {
-            var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+            var output = SpecsStrings.normalizeFileContents(run(jasminResult), true);
             assertEquals("Jasmin output", expected, output, jasminResult);
         } catch (Exception e) {
             throw new RuntimeException("Problems while running Jasmin code:\n" + jasminResult.getJasminCode(), e);
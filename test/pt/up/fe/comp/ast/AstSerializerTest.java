@@ -0,0 +1,136 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.AstSerializer;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.optimization.OptUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+public class AstSerializerTest {
+
+    private static JmmNode roundTrip(JmmNode root) {
+        return AstSerializer.deserialize(AstSerializer.serialize(root));
+    }
+
+    private static void assertSameTree(JmmNode expected, JmmNode actual) {
+        assertEquals(expected.toTree(), actual.toTree());
+
+        var expectedNodes = expected.getDescendantsAndSelfStream().toList();
+        var actualNodes = actual.getDescendantsAndSelfStream().toList();
+        assertEquals(expectedNodes.size(), actualNodes.size());
+
+        for (int i = 0; i < expectedNodes.size(); i++) {
+            var expectedNode = expectedNodes.get(i);
+            var actualNode = actualNodes.get(i);
+
+            assertEquals(expectedNode.getHierarchy(), actualNode.getHierarchy());
+            assertEquals(expectedNode.getClass(), actualNode.getClass());
+            for (var attribute : expectedNode.getAttributes()) {
+                assertEquals(attribute, expectedNode.getObject(attribute), actualNode.getObject(attribute));
+            }
+            assertEquals(expectedNode.getAttributes().size(), actualNode.getAttributes().size());
+        }
+    }
+
+    @Test
+    public void parsedTree() {
+        var code = new ProgramGenerator(6, ProgramGenerator.Options.defaults()).generate("Generated");
+        var root = TestUtils.parse(code).getRootNode();
+
+        assertSameTree(root, roundTrip(root));
+    }
+
+    @Test
+    public void annotatedTree() {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cpf/3_ollir/control_flow/SimpleWhileStat.jmm");
+        var result = TestUtils.analyse(code);
+        var root = roundTrip(result.getRootNode());
+
+        assertSameTree(result.getRootNode(), root);
+
+        var identifiers = root.getDescendants(IDENTIFIER);
+        var expectedIdentifiers = result.getRootNode().getDescendants(IDENTIFIER);
+        for (int i = 0; i < identifiers.size(); i++) {
+            var identifier = (CompactJmmNode) identifiers.get(i);
+            var expected = (CompactJmmNode) expectedIdentifiers.get(i);
+
+            assertEquals(expected.getType(), identifier.getType());
+            assertEquals(expected.getSymbol(), identifier.getSymbol());
+        }
+
+        // The decoded tree can be compiled without parsing and annotating again
+        OptUtils.resetTempNumber();
+        var expectedOllir = TestUtils.optimize(result).getOllirCode();
+        OptUtils.resetTempNumber();
+        var decoded = new JmmSemanticsResult(roundTrip(result.getRootNode()), result.getSymbolTable(),
+                new ArrayList<>(), result.getConfig());
+        assertEquals(expectedOllir, TestUtils.optimize(decoded).getOllirCode());
+    }
+
+    @Test
+    public void otherNodesAndValues() {
+        var root = new JmmNodeImpl("Custom");
+        root.put("text", "ol\u00e1\n\0\u2713");
+        root.put("lineStart", "not a number");
+
+        var literal = new JmmNodeImpl(INTEGER_LITERAL.getNodeName());
+        literal.put("value", "3");
+        literal.put("lineStart", "2");
+        literal.put("colStart", "7");
+        root.add(literal);
+
+        var decoded = roundTrip(root);
+
+        assertSameTree(root, decoded);
+        assertEquals("ol\u00e1\n\0\u2713", decoded.get("text"));
+        assertEquals("7", decoded.getChild(0).get("colStart"));
+    }
+
+    @Test
+    public void rejectsOtherData() {
+        var data = AstSerializer.serialize(TestUtils.parse("class A {}").getRootNode());
+
+        // Another version
+        var otherVersion = data.clone();
+        otherVersion[4] = (byte) (AstSerializer.FORMAT_VERSION + 1);
+        assertRejected(otherVersion, "version");
+
+        assertRejected(Arrays.copyOf(data, data.length - 1), "truncated");
+        assertRejected(Arrays.copyOf(data, data.length + 1), "unexpected");
+        assertRejected("class A {}".getBytes(), "not an encoded AST");
+    }
+
+    private static void assertRejected(byte[] data, String message) {
+        try {
+            AstSerializer.deserialize(data);
+            fail("Expected data to be rejected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void unsupportedValuesAreReported() {
+        var root = new JmmNodeImpl("Custom");
+        root.putObject("map", new HashMap<>());
+
+        try {
+            AstSerializer.serialize(root);
+            fail("Expected the attribute to be reported");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("'map'"));
+        }
+    }
+}
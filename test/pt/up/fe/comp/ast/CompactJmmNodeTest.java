@@ -0,0 +1,211 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.PrattParserImpl;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactJmmNodeTest {
+
+    private static CompactJmmNode node(Kind kind) {
+        return new CompactJmmNode(kind, List.of(kind.getNodeName()));
+    }
+
+    @Test
+    public void attributesMapToTypedFields() {
+        var node = node(Kind.METHOD_DECLARATION);
+        node.put("lineStart", "3");
+        node.put("colStart", "4");
+        node.put("name", "foo");
+        node.putObject("isPublic", true);
+        node.putObject("isStatic", false);
+
+        assertEquals(3, node.getLine());
+        assertEquals(4, node.getColumn());
+        assertEquals("foo", node.getName());
+        assertTrue(node.isPublic());
+        assertFalse(node.isStatic());
+        assertEquals(true, node.getObject("isPublic"));
+        assertEquals("false", node.get("isStatic"));
+        assertFalse(node.hasAttribute("isVarArg"));
+        assertFalse(node.hasAttribute("value"));
+
+        node.setValue("1");
+        assertEquals("1", node.get("value"));
+    }
+
+    @Test
+    public void typeIsSetByItsTwoAttributes() {
+        var node = node(Kind.IDENTIFIER);
+
+        node.put("type", "int");
+        assertNull(node.getType());
+        assertEquals("int", node.get("type"));
+        assertFalse(node.hasAttribute("isArray"));
+
+        node.put("isArray", "true");
+        assertEquals(new Type("int", true), node.getType());
+
+        node.setType(new Type("Foo", false));
+        assertEquals("Foo", node.get("type"));
+        assertEquals("false", node.get("isArray"));
+    }
+
+    @Test
+    public void otherAttributesAndValues() {
+        var node = node(Kind.IMPORT_DECLARATION);
+        var name = List.of("a", "b");
+
+        node.putObject("name", name);
+        node.put("ID", "b");
+
+        assertSame(name, node.getObject("name"));
+        assertNull(node.getName());
+        assertEquals("b", node.get("ID"));
+
+        // A typed value replaces the previous one
+        assertSame(name, node.putObject("name", "c"));
+        assertEquals("c", node.getName());
+        assertEquals(2, node.getAttributes().size());
+        assertFalse(node.getOptionalObject("missing").isPresent());
+    }
+
+    @Test
+    public void printsLikeJmmNodeImpl() {
+        var code = new ProgramGenerator(2, ProgramGenerator.Options.defaults()).generate("Generated");
+        var root = new JmmParserImpl().parse(code, new HashMap<>()).getRootNode();
+
+        assertTrue(root instanceof CompactJmmNode);
+        root.getDescendantsAndSelfStream().forEach(node -> {
+            var impl = new JmmNodeImpl(node.getKind());
+            for (var attribute : node.getAttributes()) {
+                impl.putObject(attribute, node.getObject(attribute));
+            }
+
+            assertEquals(impl.toString(), node.toString());
+        });
+    }
+
+    @Test
+    public void parsersBuildTheSameNodes() {
+        var code = new ProgramGenerator(3, ProgramGenerator.Options.defaults()).generate("Generated");
+
+        var antlr = new JmmParserImpl().parse(code, new HashMap<>()).getRootNode();
+        var pratt = new PrattParserImpl().parse(code, new HashMap<>()).getRootNode();
+
+        assertEquals(antlr.toTree(), pratt.toTree());
+        assertEquals(antlr.getDescendants().size(), pratt.getDescendants().size());
+    }
+
+    @Test
+    public void childrenCanBeChanged() {
+        var parent = node(Kind.BINARY_OP);
+        var left = node(Kind.INTEGER_LITERAL);
+        var right = node(Kind.IDENTIFIER);
+
+        parent.add(left);
+        parent.add(right);
+        assertEquals(List.of(left, right), parent.getChildren());
+        assertSame(parent, right.getParent());
+
+        // Nodes of other implementations can be mixed in
+        JmmNode folded = new JmmNodeImpl("IntegerLiteral");
+        right.replace(folded);
+        assertSame(folded, parent.getChild(1));
+        assertNull(right.getParent());
+        assertSame(parent, folded.getParent());
+
+        var middle = node(Kind.THIS);
+        parent.add(middle, 1);
+        assertEquals(1, middle.getIndexOfSelf());
+        assertEquals(3, parent.getNumChildren());
+
+        assertSame(left, parent.removeJmmChild(0));
+        assertNull(left.getParent());
+        assertEquals(List.of(middle, folded), parent.getChildren());
+
+        middle.detach();
+        assertEquals(List.of(folded), parent.getChildren());
+    }
+
+    @Test
+    public void nodesSwapWithChildrenOfOtherImplementations() {
+        var parent = node(Kind.BINARY_OP);
+        var literal = node(Kind.INTEGER_LITERAL);
+        parent.add(literal);
+
+        var otherParent = new JmmNodeImpl("ParenExpr");
+        var moved = new JmmNodeImpl("BooleanLiteral");
+        otherParent.add(moved);
+
+        // A JmmNodeImpl parent only takes the replaced child if it is of its class
+        try {
+            parent.setChild(moved, 0);
+            fail("Expected a compact node to be rejected by a JmmNodeImpl parent");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("JmmNodeImpl"));
+        }
+
+        assertSame(literal, parent.getChild(0));
+        assertSame(otherParent, moved.getParent());
+
+        var replaced = new JmmNodeImpl("IntegerLiteral");
+        parent.add(replaced);
+        parent.setChild(moved, 1);
+        assertSame(moved, parent.getChild(1));
+        assertSame(parent, moved.getParent());
+        assertSame(replaced, otherParent.getChild(0));
+        assertSame(otherParent, replaced.getParent());
+    }
+
+    @Test
+    public void copyIsDeep() {
+        var parent = node(Kind.UNARY_OP);
+        parent.setOp("!");
+        parent.setPosition(1, 2);
+        parent.add(node(Kind.BOOLEAN_LITERAL));
+
+        var copy = (CompactJmmNode) parent.copy();
+        copy.setOp("-");
+
+        assertEquals("!", parent.getOp());
+        assertEquals(2, copy.getColumn());
+        assertEquals(1, copy.getNumChildren());
+        assertNotSame(parent.getChild(0), copy.getChild(0));
+        assertSame(copy, copy.getChild(0).getParent());
+    }
+
+    @Test
+    public void identifiersKeepTheirDeclaration() {
+        var result = TestUtils.analyse("""
+                class Foo {
+                    int[] a;
+                    public int bar(int b) {
+                        a = new int[b];
+                        return a[0];
+                    }
+                }
+                """);
+
+        var identifiers = result.getRootNode().getDescendants(Kind.IDENTIFIER);
+        assertFalse(identifiers.isEmpty());
+
+        for (var identifier : identifiers) {
+            var compact = (CompactJmmNode) identifier;
+            assertNotNull(compact.getSymbol());
+            assertEquals(compact.getSymbol().getType(), compact.getType());
+            assertEquals(compact.getValue(), compact.getSymbol().getName());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.PostorderJmmVisitor;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.KindVisitor;
+import pt.up.fe.comp2024.ast.PostorderKindVisitor;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+public class KindVisitorTest {
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, new HashMap<>()).getRootNode();
+    }
+
+    @Test
+    public void dispatchesByKindAndRule() {
+        var root = parse("class A { public int f(int a) { return a + 1 * 2; } }");
+
+        var visitor = new KindVisitor<Void, String>() {
+            @Override
+            protected void buildVisitor() {
+                addVisit(BINARY_OP, (node, unused) -> node.get("op"));
+                addVisit("Expr", (node, unused) -> "expr");
+                setDefaultValue(() -> "other");
+            }
+        };
+
+        var add = root.getDescendants(BINARY_OP).get(0);
+        assertEquals("+", visitor.visit(add));
+        assertEquals("expr", visitor.visit(add.getChild(0)));
+        assertEquals("other", visitor.visit(root));
+
+        // Nodes of other implementations are looked up by their own hierarchy
+        assertEquals("other", visitor.visit(new JmmNodeImpl(INTEGER_LITERAL.getNodeName())));
+
+        // Visits added later replace the cached ones
+        visitor.addVisit(IDENTIFIER, (node, unused) -> node.get("value"));
+        assertEquals("a", visitor.visit(add.getChild(0)));
+    }
+
+    @Test
+    public void visitsInTheSameOrderAsTheLibrary() {
+        var code = new ProgramGenerator(4, ProgramGenerator.Options.defaults()).generate("Generated");
+        var root = parse(code);
+
+        var preorder = new StringBuilder();
+        new PreorderKindVisitor<StringBuilder, Void>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit((node, out) -> {
+                    out.append(node.getKind()).append(' ');
+                    return null;
+                });
+            }
+        }.visit(root, preorder);
+
+        var expectedPreorder = new StringBuilder();
+        new PreorderJmmVisitor<StringBuilder, Void>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit((node, out) -> {
+                    out.append(node.getKind()).append(' ');
+                    return null;
+                });
+            }
+        }.visit(root, expectedPreorder);
+
+        assertEquals(expectedPreorder.toString(), preorder.toString());
+
+        var postorder = new PostorderKindVisitor<Void, Integer>() {
+            @Override
+            protected void buildVisitor() {
+                addVisit(IDENTIFIER, (node, unused) -> 1);
+                setDefaultValue(() -> 0);
+            }
+        };
+
+        var expectedPostorder = new PostorderJmmVisitor<Void, Integer>() {
+            @Override
+            protected void buildVisitor() {
+                addVisit(IDENTIFIER, (node, unused) -> 1);
+                setDefaultValue(() -> 0);
+            }
+        };
+
+        // Set here, since the constructor of the library visitors resets it after buildVisitor
+        postorder.setReduceSimple(Integer::sum);
+        expectedPostorder.setReduceSimple(Integer::sum);
+
+        assertEquals(expectedPostorder.visit(root), postorder.visit(root));
+        assertEquals(root.getDescendants(IDENTIFIER).size(), (int) postorder.visit(root));
+    }
+}
@@ -0,0 +1,81 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.parser.JmmParser;
+import pt.up.fe.comp2024.ast.NameTable;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.PrattParserImpl;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class NameTableTest {
+
+    private static final Set<String> POSITIONS = Set.of(NodePosition.LINE_START.getKey(),
+            NodePosition.COL_START.getKey());
+
+    @Test
+    public void sameTextGivesSameInstance() {
+        var names = new NameTable();
+        var first = names.intern(new String("foo"));
+
+        assertSame(first, names.intern(new String("foo")));
+        assertSame(first, names.intern("int foo;", 4, 7));
+        assertNotSame(first, names.intern("fo"));
+        assertEquals(2, names.size());
+    }
+
+    @Test
+    public void tableGrows() {
+        var names = new NameTable();
+        var interned = new String[10_000];
+
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = names.intern("name" + i);
+        }
+
+        assertEquals(interned.length, names.size());
+        for (int i = 0; i < interned.length; i++) {
+            assertSame(interned[i], names.intern("name" + i));
+        }
+    }
+
+    @Test
+    public void astSharesNames() {
+        var code = new ProgramGenerator(1, ProgramGenerator.Options.defaults().withMethods(10)).generate("Generated");
+
+        assertNoDuplicates(new JmmParserImpl(), code, new HashMap<>());
+        assertNoDuplicates(new JmmParserImpl(), code, Map.of("parallelParse", "true"));
+        assertNoDuplicates(new PrattParserImpl(), code, new HashMap<>());
+    }
+
+    private static void assertNoDuplicates(JmmParser parser, String code, Map<String, String> config) {
+        var root = parser.parse(code, config).getRootNode();
+        var instances = new HashMap<String, String>();
+        var distinct = new IdentityHashMap<String, Boolean>();
+
+        root.getDescendantsAndSelfStream().forEach(node -> {
+            for (var attribute : node.getAttributes()) {
+                // Positions are kept as numbers, and only printed on demand
+                if (POSITIONS.contains(attribute)) {
+                    continue;
+                }
+
+                if (node.getObject(attribute) instanceof String value) {
+                    var first = instances.putIfAbsent(value, value);
+                    assertTrue(node + ", " + attribute, first == null || first == value);
+                    distinct.put(value, true);
+                }
+            }
+        });
+
+        assertFalse(instances.isEmpty());
+        assertEquals(instances.size(), distinct.size());
+    }
+}
@@ -0,0 +1,113 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.ScopeIndex;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+public class ScopeIndexTest {
+
+    private static final String CODE = """
+            class A {
+                int f;
+                public int m(int a, boolean b) {
+                    int x;
+                    int y;
+                    x = 1;
+                    while (x < a) {
+                        if (b && x < 3) {
+                            y = x;
+                        } else {
+                            f = 2;
+                        }
+                        x = x + 1;
+                    }
+                    return y;
+                }
+                public static void main(String[] args) {
+                    int z;
+                    z = 0;
+                }
+            }
+            """;
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, new HashMap<>()).getRootNode();
+    }
+
+    private static void assertSameAsAncestors(ScopeIndex scopes, JmmNode root) {
+        for (var node : root.getDescendants()) {
+            var method = node.getAncestor(METHOD_DECLARATION).or(() -> node.getAncestor(MAIN_METHOD_DECLARATION));
+            var ifStmt = node.getAncestor(IF_STMT);
+
+            assertSame(node.toString(), method.orElse(null), scopes.getMethod(node));
+            assertSame(node.toString(), node.getAncestor(WHILE_STMT).orElse(null), scopes.getLoop(node));
+            assertSame(node.toString(), ifStmt.orElse(null), scopes.getConditional(node));
+            assertEquals(node.toString(), ifStmt.isPresent()
+                            && ifStmt.get().getChild(0).getDescendantsAndSelfStream().anyMatch(n -> n == node),
+                    scopes.isInCondition(node));
+
+            if (WHILE_STMT.check(node) || IF_STMT.check(node)) {
+                Set<String> assigned = node.getDescendants(ASSIGN_STMT).stream()
+                        .map(assignment -> assignment.get("name"))
+                        .collect(Collectors.toSet());
+                assertEquals(assigned, scopes.getAssignedVariables(node));
+            }
+        }
+    }
+
+    @Test
+    public void matchesAncestors() {
+        var root = parse(CODE);
+        assertSameAsAncestors(new ScopeIndex(root), root);
+
+        var generated = parse(new ProgramGenerator(5, ProgramGenerator.Options.defaults()).generate("Generated"));
+        assertSameAsAncestors(new ScopeIndex(generated), generated);
+    }
+
+    @Test
+    public void indexesOnDemand() {
+        var root = parse(CODE);
+        var scopes = new ScopeIndex();
+
+        assertSameAsAncestors(scopes, root);
+        assertEquals("m", scopes.getMethodName(root.getDescendants(IDENTIFIER).get(0)));
+    }
+
+    @Test
+    public void followsReplacements() {
+        var root = parse(CODE);
+        var scopes = new ScopeIndex(root);
+
+        // As the constant propagation does, an identifier is replaced by a copy of the value of an assignment
+        var condition = root.getDescendants(IF_STMT).get(0).getChild(0);
+        var identifier = condition.getDescendants(IDENTIFIER).get(0);
+        var parent = identifier.getParent();
+        int index = identifier.getIndexOfSelf();
+        identifier.replace(root.getDescendants(ASSIGN_STMT).get(0).getChild(0));
+
+        var value = parent.getChild(index);
+        assertTrue(scopes.isInCondition(value));
+        assertSame(root.getDescendants(WHILE_STMT).get(0), scopes.getLoop(value));
+        assertNull(scopes.getConditional(identifier));
+        assertNull(scopes.getMethod(identifier));
+
+        // And the constant folding adds new nodes
+        var folded = new JmmNodeImpl(INTEGER_LITERAL.getNodeName());
+        var sum = root.getDescendants(BINARY_OP).stream().filter(op -> op.get("op").equals("+")).findFirst().get();
+        sum.replace(folded);
+
+        assertSame(root.getDescendants(WHILE_STMT).get(0), scopes.getLoop(folded));
+        assertNull(scopes.getConditional(folded));
+        assertSameAsAncestors(scopes, root);
+    }
+}
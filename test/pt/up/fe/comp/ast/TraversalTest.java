@@ -0,0 +1,184 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.PostorderJmmVisitor;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.ast.PostorderKindVisitor;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.optimization.optimizers.ast.ASTOptimizer;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+public class TraversalTest {
+
+    // Much deeper than the call stack allows when visiting recursively
+    private static final int DEPTH = 20_000;
+
+    /**
+     * A program whose method returns 'x + 1 + 1 + ...', with DEPTH additions nested as the parser nests them.
+     */
+    private static JmmParserResult parseDeep() {
+        var result = TestUtils.parse("""
+                class A {
+                    public int m(int a) {
+                        int x;
+                        x = 1;
+                        return x + 1;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """);
+
+        // Built from copies of the parsed addition, since the parser itself is recursive
+        var sum = result.getRootNode().getDescendants(BINARY_OP).get(0);
+        var expr = sum.getChild(0).copyNode();
+        for (int i = 0; i < DEPTH; i++) {
+            var op = sum.copyNode();
+            op.add(expr);
+            op.add(sum.getChild(1).copyNode());
+            expr = op;
+        }
+
+        sum.replace(expr);
+
+        return result;
+    }
+
+    // Found without getDescendants, which is recursive
+    private static JmmNode getReturned(JmmNode root) {
+        var classDecl = root.getChildren(CLASS_DECLARATION).get(0);
+        var method = classDecl.getChildren(METHOD_DECLARATION).get(0);
+
+        return method.getChildren(RETURN).get(0).getChild(0);
+    }
+
+    private static int depth(JmmNode node) {
+        int depth = 0;
+        for (; node.getNumChildren() > 0; node = node.getChild(0)) {
+            depth++;
+        }
+
+        return depth;
+    }
+
+    private static int count(JmmNode root) {
+        var pending = new ArrayDeque<JmmNode>();
+        pending.push(root);
+
+        int count = 0;
+        while (!pending.isEmpty()) {
+            count++;
+            pending.pop().getChildren().forEach(pending::push);
+        }
+
+        return count;
+    }
+
+    private static class Order extends PreorderKindVisitor<List<JmmNode>, Integer> {
+
+        @Override
+        protected void buildVisitor() {
+            setDefaultVisit((node, visited) -> {
+                visited.add(node);
+                return 1;
+            });
+        }
+    }
+
+    private static class ReverseOrder extends PostorderKindVisitor<List<JmmNode>, Integer> {
+
+        @Override
+        protected void buildVisitor() {
+            setDefaultVisit((node, visited) -> {
+                visited.add(node);
+                return 1;
+            });
+        }
+    }
+
+    @Test
+    public void sameOrderAsRecursion() {
+        var root = TestUtils.parse(new ProgramGenerator(4, ProgramGenerator.Options.defaults()).generate("Generated"))
+                .getRootNode();
+
+        var expected = new ArrayList<JmmNode>();
+        var preorder = new PreorderJmmVisitor<List<JmmNode>, Integer>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit((node, visited) -> {
+                    visited.add(node);
+                    return 1;
+                });
+            }
+        };
+        preorder.visit(root, expected);
+
+        var visited = new ArrayList<JmmNode>();
+        new Order().visit(root, visited);
+        assertEquals(expected, visited);
+
+        expected.clear();
+        var postorder = new PostorderJmmVisitor<List<JmmNode>, Integer>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit((node, visited) -> {
+                    visited.add(node);
+                    return 1;
+                });
+            }
+        };
+        postorder.visit(root, expected);
+
+        visited.clear();
+        new ReverseOrder().visit(root, visited);
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    public void reducesDeepTrees() {
+        var root = parseDeep().getRootNode();
+        int numNodes = count(root);
+
+        var order = new Order();
+        order.setReduceSimple(Integer::sum);
+        assertEquals(numNodes, order.visit(root, new ArrayList<>()).intValue());
+
+        var reverseOrder = new ReverseOrder();
+        reverseOrder.setReduceSimple(Integer::sum);
+        assertEquals(numNodes, reverseOrder.visit(root, new ArrayList<>()).intValue());
+
+        // Without a reduce function, the result is the one of the root
+        assertEquals(1, new Order().visit(root, new ArrayList<>()).intValue());
+        assertEquals(1, new ReverseOrder().visit(root, new ArrayList<>()).intValue());
+    }
+
+    @Test
+    public void analysesAndOptimizesDeepExpressions() {
+        var parserResult = parseDeep();
+        assertEquals(DEPTH, depth(getReturned(parserResult.getRootNode())));
+
+        var result = TestUtils.analyse(parserResult);
+        TestUtils.noErrors(result);
+
+        var returned = getReturned(result.getRootNode());
+        assertEquals("int", returned.get("type"));
+
+        // 'x' is propagated and the additions are folded, one level at a time
+        new ASTOptimizer().visit(result.getRootNode(), (JmmSymbolTable) result.getSymbolTable());
+
+        returned = getReturned(result.getRootNode());
+        assertTrue(INTEGER_LITERAL.check(returned));
+        assertEquals(Integer.toString(DEPTH + 1), returned.get("value"));
+    }
+}
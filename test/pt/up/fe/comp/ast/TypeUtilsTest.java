@@ -0,0 +1,98 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+public class TypeUtilsTest {
+
+    @Test
+    public void builtInTypesAreShared() {
+        var intArray = TypeUtils.getType("int", true);
+
+        assertSame(intArray, TypeUtils.getType(new String("int"), true));
+        assertSame(intArray, TypeUtils.getType(new Type("int", true)));
+        assertNotSame(intArray, TypeUtils.getType("int", false));
+        assertSame(TypeUtils.getType("boolean", false), TypeUtils.getBuiltInType("boolean", false));
+
+        // Types of classes are not kept, nor are their names interned
+        var name = new String("Foo");
+        var foo = TypeUtils.getType(name, false);
+        assertEquals(new Type("Foo", false), foo);
+        assertNotSame(foo, TypeUtils.getType("Foo", false));
+        assertSame(name, foo.getName());
+        assertNull(TypeUtils.getBuiltInType("Foo", false));
+        assertNull(TypeUtils.getBuiltInType("boolean", true));
+    }
+
+    @Test
+    public void typesOfClassesAreSharedWithinACompilation() {
+        var code = """
+                class Foo {
+                    Foo a;
+                    public Foo bar(Foo b, int[] c) {
+                        return b;
+                    }
+                }
+                """;
+
+        var table = (JmmSymbolTable) TestUtils.analyse(code).getSymbolTable();
+        var foo = table.getFields().get(0).getType();
+
+        assertSame(foo, table.getReturnType("bar"));
+        assertSame(foo, table.getParameters("bar").get(0).getType());
+        assertSame(foo, table.getType(new String("Foo"), false));
+        assertNotSame(foo, table.getType("Foo", true));
+        assertSame(TypeUtils.getType("int", true), table.getParameters("bar").get(1).getType());
+
+        // Another compilation has its own instances
+        var otherTable = (JmmSymbolTable) TestUtils.analyse(code).getSymbolTable();
+        assertEquals(foo, otherTable.getType("Foo", false));
+        assertNotSame(foo, otherTable.getType("Foo", false));
+    }
+
+    @Test
+    public void annotatedExpressionsShareTheirType() {
+        var result = TestUtils.analyse("""
+                class Foo {
+                    int[] a;
+                    public int bar(int b, boolean c) {
+                        Foo f;
+                        f = new Foo();
+                        a = new int[b];
+                        a[0] = b + 1;
+                        c = !c && b < a.length;
+                        return f.baz(a[0]);
+                    }
+                    public int baz(int d) {
+                        return d;
+                    }
+                }
+                """);
+
+        var table = (JmmSymbolTable) result.getSymbolTable();
+        var expressions = result.getRootNode().getDescendants().stream()
+                .filter(node -> node.isInstance("Expr") && !THIS.check(node) && !PAREN_EXPR.check(node))
+                .toList();
+
+        assertFalse(expressions.isEmpty());
+        for (var expr : expressions) {
+            var type = TypeUtils.getExprType(expr, table);
+
+            assertSame(expr.toString(), table.getType(type.getName(), type.isArray()), type);
+            assertSame(expr.toString(), type, TypeUtils.getExprType(expr, table));
+            assertEquals(expr.toString(), expr.get("type"), type.getName());
+        }
+
+        for (var identifier : result.getRootNode().getDescendants(IDENTIFIER)) {
+            var declaration = ((CompactJmmNode) identifier).getSymbol();
+            assertEquals(declaration.getType(), TypeUtils.getExprType(identifier, table));
+        }
+    }
+}
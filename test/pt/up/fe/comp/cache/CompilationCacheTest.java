@@ -0,0 +1,148 @@
+package pt.up.fe.comp.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.cache.CacheEntry;
+import pt.up.fe.comp2024.cache.CompilationCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class CompilationCacheTest {
+
+    private static final int CLASS_BYTES = 1000;
+
+    // Class name, OLLIR and Jasmin files of the entries, besides the class file
+    private static final int TEXT_BYTES = "A00".length() + "ollir".length() + "jasmin".length();
+
+    private static final long ENTRY_BYTES = CLASS_BYTES + TEXT_BYTES;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static CacheEntry entry(int id) {
+        var classBytes = new byte[CLASS_BYTES];
+        Arrays.fill(classBytes, (byte) id);
+
+        return new CacheEntry(String.format("A%02d", id), "ollir", "jasmin", classBytes);
+    }
+
+    private static String key(int id) {
+        return "key" + id;
+    }
+
+    private static long entriesSize(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getParent().equals(directory))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+
+    // Last-used times are file times, so consecutive operations are spaced to order them
+    private static void tick() throws InterruptedException {
+        Thread.sleep(20);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws InterruptedException {
+        var cache = new CompilationCache(temp.getRoot().toPath(), 3 * ENTRY_BYTES);
+
+        for (int id = 0; id < 3; id++) {
+            cache.put(key(id), entry(id));
+            tick();
+        }
+
+        // Reading the oldest entry makes the second one the least recently used
+        assertTrue(cache.get(key(0)).isPresent());
+        tick();
+
+        cache.put(key(3), entry(3));
+
+        assertTrue(cache.get(key(0)).isPresent());
+        assertFalse(cache.get(key(1)).isPresent());
+        assertTrue(cache.get(key(2)).isPresent());
+        assertTrue(cache.get(key(3)).isPresent());
+    }
+
+    @Test
+    public void staysWithinLimit() throws IOException {
+        var directory = temp.getRoot().toPath();
+        var cache = new CompilationCache(directory, 5 * ENTRY_BYTES);
+
+        for (int id = 0; id < 30; id++) {
+            cache.put(key(id), entry(id));
+            assertTrue(entriesSize(directory) <= 5 * ENTRY_BYTES);
+        }
+
+        // The last entry always fits
+        var last = cache.get(key(29)).orElseThrow();
+        assertEquals("A29", last.className());
+        assertArrayEquals(entry(29).classBytes(), last.classBytes());
+    }
+
+    @Test
+    public void concurrentWritersShareDirectory() throws Exception {
+        var directory = temp.getRoot().toPath();
+        long limit = 20 * ENTRY_BYTES;
+
+        int writers = 4;
+        var pool = Executors.newFixedThreadPool(writers);
+        try {
+            var tasks = new ArrayList<Callable<Void>>();
+            for (int writer = 0; writer < writers; writer++) {
+                int first = writer * 10;
+                tasks.add(() -> {
+                    // Each writer has its own instance, as separate compilations do
+                    var cache = new CompilationCache(directory, limit);
+                    for (int round = 0; round < 3; round++) {
+                        for (int id = first; id < first + 15; id++) {
+                            cache.put(key(id), entry(id));
+                            cache.get(key((id + 7) % 55));
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            for (var result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(entriesSize(directory) <= limit);
+
+        // Whatever survived is complete, and no temporary directories are left behind
+        var cache = new CompilationCache(directory, limit);
+        int found = 0;
+        for (int id = 0; id < 55; id++) {
+            var entry = cache.get(key(id));
+            if (entry.isEmpty()) continue;
+
+            found++;
+            assertEquals(String.format("A%02d", id), entry.get().className());
+            assertArrayEquals(entry(id).classBytes(), entry.get().classBytes());
+        }
+        assertTrue(found > 0);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> leftovers = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(".tmp-"))
+                    .toList();
+            assertEquals(List.of(), leftovers);
+        }
+    }
+}
@@ -2,12 +2,14 @@ package pt.up.fe.comp.cp2;
 
 import org.junit.Test;
 import org.specs.comp.ollir.*;
+import pt.up.fe.comp.CpUtils;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.specs.util.SpecsIo;
 
 import java.io.File;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import static org.hamcrest.CoreMatchers.hasItem;
@@ -37,6 +39,11 @@ public class OllirTest {
         testJmmCompilation("pt/up/fe/comp/cp2/ollir/CompileAssignment.jmm", this::compileAssignment);
     }
 
+    @Test
+    public void compileCompoundStore() {
+        testJmmCompilation("pt/up/fe/comp/cp2/ollir/CompileCompoundStore.jmm", this::compileCompoundStore);
+    }
+
     public static void testJmmCompilation(String resource, Consumer<ClassUnit> ollirTester, String executionOutput) {
 
         // If AstToJasmin pipeline, generate Jasmin
@@ -46,7 +53,7 @@ public class OllirTest {
 
             var testName = new File(resource).getName();
             System.out.println(testName + ":\n" + result.getJasminCode());
-            var runOutput = result.runWithFullOutput();
+            var runOutput = CpUtils.runWithFullOutput(result);
             assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput(), 0,
                     runOutput.getReturnValue());
             System.out.println("\n Result: " + runOutput.getOutput());
@@ -182,4 +189,44 @@ public class OllirTest {
         assertEquals("Assignment does not have the expected type", ElementType.INT32,
                 assignInst.get().getTypeOfAssign().getTypeOfElement());
     }
+
+    public void compileCompoundStore(ClassUnit classUnit) {
+        var methodName = "foo";
+        Method methodFoo = classUnit.getMethods().stream()
+                .filter(method -> method.getMethodName().equals(methodName))
+                .findFirst()
+                .orElse(null);
+
+        assertNotNull("Could not find method " + methodName, methodFoo);
+
+        // Every value stored to a field or an array element must have been computed before the store
+        var defined = new HashSet<String>();
+        methodFoo.getParams().forEach(param -> defined.add(((Operand) param).getName()));
+
+        int fieldStores = 0;
+        int arrayStores = 0;
+        for (var inst : methodFoo.getInstructions()) {
+            if (inst instanceof PutFieldInstruction putField) {
+                assertDefined(defined, putField.getValue(), putField);
+                fieldStores++;
+            } else if (inst instanceof AssignInstruction assign) {
+                if (assign.getDest() instanceof ArrayOperand && assign.getRhs() instanceof SingleOpInstruction value) {
+                    assertDefined(defined, value.getSingleOperand(), assign);
+                    arrayStores++;
+                }
+
+                defined.add(((Operand) assign.getDest()).getName());
+            }
+        }
+
+        assertEquals("Expected two stores to the field", 2, fieldStores);
+        assertEquals("Expected three stores to array elements", 3, arrayStores);
+    }
+
+    private static void assertDefined(Set<String> defined, Element value, Instruction store) {
+        if (value instanceof Operand operand) {
+            assertTrue("Value stored by '" + store + "' is not computed before the store",
+                    defined.contains(operand.getName()));
+        }
+    }
 }
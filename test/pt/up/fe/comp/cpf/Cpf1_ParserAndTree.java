@@ -30,7 +30,7 @@ public class Cpf1_ParserAndTree {
     public void section1_OpPrecedence_1_AddMultConstants() {
         var result = getJmmResult("AddMultConstants.jmm");
         TestUtils.noErrors(result.getReports());
-        CpUtils.assertEquals("Wrong results", "7\n12\n9", SpecsStrings.normalizeFileContents(result.run(), true),
+        CpUtils.assertEquals("Wrong results", "7\n12\n9", SpecsStrings.normalizeFileContents(CpUtils.run(result), true),
                 result);
     }
 
@@ -110,7 +110,7 @@ public class Cpf2_SemanticAnalysis {
     public void section2_Lookup_VarLookup_Local() {
         var jasminResult = getJasminResult("lookup/VarLookup_Local.jmm");
 
-        assertEquals("10", jasminResult.run().trim());
+        assertEquals("10", CpUtils.run(jasminResult).trim());
     }
 
     /**
@@ -120,7 +120,7 @@ public class Cpf2_SemanticAnalysis {
     public void section2_Lookup_VarLookup_Field() {
         var jasminResult = getJasminResult("lookup/VarLookup_Field.jmm");
 
-        CpUtils.assertEquals("Lookup of field", "10", jasminResult.run().trim(), jasminResult);
+        CpUtils.assertEquals("Lookup of field", "10", CpUtils.run(jasminResult).trim(), jasminResult);
     }
 
 
@@ -0,0 +1,182 @@
+package pt.up.fe.comp.daemon;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.daemon.CompileDaemon;
+import pt.up.fe.comp2024.daemon.DaemonClient;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompileDaemonTest {
+
+    private static final String CODE = """
+            import io;
+            class Simple {
+                public static void main(String[] args) {
+                    io.println(1);
+                }
+            }
+            """;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path input;
+    private Path tokenFile;
+    private int port;
+    private Thread server;
+
+    @Before
+    public void startDaemon() throws IOException {
+        input = temp.newFile("Simple.jmm").toPath();
+        Files.writeString(input, CODE);
+
+        tokenFile = temp.getRoot().toPath().resolve("daemon.token");
+
+        var daemon = new CompileDaemon(0, 2, tokenFile);
+        port = daemon.bind();
+
+        server = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopDaemon() throws InterruptedException {
+        if (Files.exists(tokenFile)) {
+            DaemonClient.stop(port, tokenFile);
+        }
+
+        server.join();
+    }
+
+    private Map<String, String> parseArgs(String... options) {
+        var args = new String[options.length + 2];
+        args[0] = "-i=" + input;
+        args[1] = "-p=" + port;
+        System.arraycopy(options, 0, args, 2, options.length);
+
+        return CompilerConfig.parseArgs(args);
+    }
+
+    @Test
+    public void compiles() throws IOException {
+        var outputDir = temp.newFolder("out").toPath();
+        var config = parseArgs("-d=" + outputDir, "-a=jasmin,class");
+
+        var response = DaemonClient.tryCompile(config, tokenFile);
+        assertNotNull(response);
+        assertTrue(response.output(), response.success());
+
+        assertTrue(Files.isRegularFile(outputDir.resolve("Simple.j")));
+        assertTrue(Files.isRegularFile(outputDir.resolve("Simple.class")));
+    }
+
+    @Test
+    public void rejectsRequestsWithoutDirectories() throws IOException {
+        var config = parseArgs();
+        config.remove("classDir");
+
+        var response = DaemonClient.tryCompile(config, tokenFile);
+        assertFalse(response.success());
+        assertTrue(response.output(), response.output().contains("working directory"));
+    }
+
+    @Test
+    public void rejectsRelativeMetricsFiles() throws IOException {
+        // Printed metrics are kept as given, a file is resolved against the directory of the client
+        assertEquals("json", CompilerConfig.getMetrics(parseArgs("-m=json")).orElseThrow());
+        assertEquals(Path.of("metrics.json").toAbsolutePath().toString(),
+                CompilerConfig.getMetrics(parseArgs("-m=metrics.json")).orElseThrow());
+
+        var config = parseArgs("-d=" + temp.getRoot());
+        config.put("metrics", "metrics.json");
+
+        var response = DaemonClient.tryCompile(config, tokenFile);
+        assertFalse(response.success());
+        assertTrue(response.output(), response.output().contains("absolute paths"));
+    }
+
+    @Test
+    public void rejectsRequestsWithoutToken() throws IOException {
+        var otherTokenFile = temp.newFile("other.token").toPath();
+        Files.writeString(otherTokenFile, "not the token");
+
+        var response = DaemonClient.tryCompile(parseArgs("-d=" + temp.getRoot()), otherTokenFile);
+        assertFalse(response.success());
+        assertTrue(response.output(), response.output().contains("token"));
+
+        // Nor can it stop the daemon
+        DaemonClient.stop(port, otherTokenFile);
+        assertTrue(DaemonClient.tryCompile(parseArgs("-d=" + temp.getRoot()), tokenFile).success());
+    }
+
+    @Test
+    public void stops() throws IOException, InterruptedException {
+        var message = DaemonClient.stop(port, tokenFile);
+        assertTrue(message, message.contains("stopped"));
+
+        server.join();
+        assertFalse(Files.exists(tokenFile));
+
+        // Without a daemon, the client falls back to compiling by itself
+        assertNull(DaemonClient.tryCompile(parseArgs(), tokenFile));
+    }
+
+    @Test
+    public void rejectsUnknownCommands() throws IOException {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            var token = Files.readString(tokenFile).getBytes(StandardCharsets.UTF_8);
+
+            // Protocol version, command and token
+            var out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(2);
+            out.writeInt(42);
+            out.writeInt(token.length);
+            out.write(token);
+            out.flush();
+
+            var in = new DataInputStream(socket.getInputStream());
+            assertFalse(in.readBoolean());
+
+            var reply = new byte[in.readInt()];
+            in.readFully(reply);
+            assertTrue(new String(reply, StandardCharsets.UTF_8).contains("Unknown compile daemon command 42"));
+        }
+    }
+
+    @Test
+    public void fallsBackWithoutDaemon() throws IOException {
+        int closedPort;
+        try (var socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+
+        // A token file left behind by a daemon that is no longer listening
+        var config = parseArgs("-p=" + closedPort);
+        assertNull(DaemonClient.tryCompile(config, tokenFile));
+
+        // No token file, so no daemon of this user
+        assertNull(DaemonClient.tryCompile(parseArgs("-d=" + temp.getRoot()), temp.getRoot().toPath().resolve("missing.token")));
+    }
+}
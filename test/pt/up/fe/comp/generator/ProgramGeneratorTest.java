@@ -0,0 +1,59 @@
+package pt.up.fe.comp.generator;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.generator.ProgramGenerator.Options;
+import pt.up.fe.comp2024.runner.ProgramRunner;
+import pt.up.fe.comp2024.runner.ProgramRunner.Program;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProgramGeneratorTest {
+
+    private static final List<Options> OPTIONS = List.of(
+            Options.defaults(),
+            Options.defaults().withMethods(1).withStatementsPerMethod(0).withLocalsPerMethod(0).withFields(0),
+            Options.defaults().withExpressionDepth(6).withAndChainLength(5),
+            Options.defaults().withLoopNesting(4).withStatementsPerMethod(20),
+            Options.defaults().withMethods(30).withLocalsPerMethod(12).withFields(10));
+
+    @Test
+    public void sameSeedGeneratesSameProgram() {
+        var first = new ProgramGenerator(42, Options.defaults()).generate("Generated");
+        var second = new ProgramGenerator(42, Options.defaults()).generate("Generated");
+        var other = new ProgramGenerator(43, Options.defaults()).generate("Generated");
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    public void generatedProgramsCompileAndRun() {
+        var programs = new ArrayList<Program>();
+        var sources = new ArrayList<String>();
+
+        for (int i = 0; i < OPTIONS.size(); i++) {
+            for (long seed = 0; seed < 4; seed++) {
+                var code = new ProgramGenerator(seed, OPTIONS.get(i)).generate("Generated" + i + "_" + seed);
+                var session = new CompilationSession(code, CompilerConfig.getDefault());
+
+                assertTrue(session.getReports() + "\n" + code, session.compile());
+                programs.add(Program.of(session, null));
+                sources.add(code);
+            }
+        }
+
+        var results = new ProgramRunner().runAll(programs, 4);
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+
+            assertTrue(result.error() + "\n" + sources.get(i), result.isSuccess());
+            assertFalse(sources.get(i), result.output().isBlank());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package pt.up.fe.comp.metrics;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.Launcher;
+import pt.up.fe.comp2024.metrics.PipelineMetrics;
+import pt.up.fe.comp2024.metrics.StageMetrics;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+
+    private static final String CODE = SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/calls/ConditionArgsFuncCall.jmm");
+
+    private static final List<String> STAGES = List.of(PipelineMetrics.PARSE, PipelineMetrics.SYMBOL_TABLE,
+            PipelineMetrics.ANNOTATION, PipelineMetrics.ANALYSIS, PipelineMetrics.OLLIR_GENERATION,
+            PipelineMetrics.OLLIR_PARSING, PipelineMetrics.JASMIN);
+
+    private static Map<String, StageMetrics> compile() {
+        var metrics = PipelineMetrics.start();
+        try {
+            assertTrue(new CompilationSession(CODE, CompilerConfig.getDefault()).compile());
+        } finally {
+            metrics.stop();
+        }
+
+        return metrics.getStages().stream().collect(Collectors.toMap(StageMetrics::getName, Function.identity()));
+    }
+
+    @Test
+    public void recordsEachStage() {
+        var stages = compile();
+
+        for (var name : STAGES) {
+            var stage = stages.get(name);
+            assertNotNull("Missing stage '" + name + "'", stage);
+            assertEquals(name, 1, stage.getCalls());
+            assertTrue(name, stage.getWallNanos() > 0);
+
+            // -1 where the JVM cannot measure them
+            assertTrue(name, stage.getCpuNanos() >= -1);
+            assertTrue(name, stage.getAllocatedBytes() >= -1);
+        }
+
+        // Each analysis pass is also measured, inside the analysis stage
+        assertTrue(stages.keySet().stream().anyMatch(name -> name.startsWith(PipelineMetrics.ANALYSIS_PASS)));
+    }
+
+    @Test
+    public void resetsPerCompilation() {
+        compile();
+        var second = compile();
+
+        for (var name : STAGES) {
+            assertEquals(name, 1, second.get(name).getCalls());
+        }
+
+        // Without a collector attached, nothing is recorded
+        var detached = PipelineMetrics.start();
+        detached.stop();
+        assertTrue(new CompilationSession(CODE, CompilerConfig.getDefault()).compile());
+        assertTrue(detached.getStages().isEmpty());
+    }
+
+    @Test
+    public void mergesCompilations() {
+        var merged = new PipelineMetrics();
+
+        for (int i = 0; i < 3; i++) {
+            var metrics = PipelineMetrics.start();
+            try {
+                assertTrue(new CompilationSession(CODE, CompilerConfig.getDefault()).compile());
+            } finally {
+                metrics.stop();
+            }
+            merged.merge(metrics);
+        }
+
+        var stages = merged.getStages().stream()
+                .collect(Collectors.toMap(StageMetrics::getName, StageMetrics::getCalls));
+        for (var name : STAGES) {
+            assertEquals(name, 3, stages.get(name).intValue());
+        }
+    }
+
+    @Test
+    public void launcherReportsEveryCompilation() {
+        var config = CompilerConfig.getDefault();
+        config.put("metrics", "table");
+
+        for (int i = 0; i < 2; i++) {
+            var buffer = new ByteArrayOutputStream();
+            Launcher.compile(CODE, config, new PrintStream(buffer, true, StandardCharsets.UTF_8));
+
+            // One call per stage, not an accumulation of both compilations
+            var totalRow = buffer.toString(StandardCharsets.UTF_8).lines()
+                    .filter(line -> line.startsWith(PipelineMetrics.TOTAL + " "))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals("1", totalRow.substring(PipelineMetrics.TOTAL.length()).strip().split("\\s+")[0]);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package pt.up.fe.comp.output;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.output.Artifact;
+import pt.up.fe.comp2024.output.ArtifactEmitter;
+import pt.up.fe.comp2024.output.ArtifactSink;
+import pt.up.fe.comp2024.output.DirectorySink;
+import pt.up.fe.comp2024.output.StreamSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ArtifactEmitterTest {
+
+    private static final String CODE = """
+            import io;
+            class Simple {
+                public static void main(String[] args) {
+                    io.println(1);
+                }
+            }
+            """;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File input;
+
+    @Before
+    public void writeInput() throws IOException {
+        input = temp.newFile("Input.jmm");
+        Files.writeString(input.toPath(), CODE);
+    }
+
+    private Map<String, String> parseArgs(String... options) {
+        var args = new String[options.length + 1];
+        args[0] = "-i=" + input;
+        System.arraycopy(options, 0, args, 1, options.length);
+
+        return CompilerConfig.parseArgs(args);
+    }
+
+    private static String emit(Map<String, String> config) {
+        var session = new CompilationSession(CODE, config);
+        assertTrue(session.getReports().toString(), session.compile());
+
+        var buffer = new ByteArrayOutputStream();
+        ArtifactEmitter.fromConfig(config, new PrintStream(buffer, true, StandardCharsets.UTF_8)).emit(session);
+
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+        }
+    }
+
+    @Test
+    public void quietByDefault() throws IOException {
+        var config = parseArgs();
+
+        assertTrue(CompilerConfig.getArtifacts(config).isEmpty());
+        assertTrue(ArtifactEmitter.fromConfig(config, System.out).isEmpty());
+
+        assertEquals("", emit(config));
+        assertEquals(Set.of("Input.jmm"), listFiles(temp.getRoot().toPath()));
+    }
+
+    @Test
+    public void selectsArtifacts() throws IOException {
+        var outputDir = temp.getRoot().toPath().resolve("out");
+
+        // Only the Jasmin code when there is an output directory but no selection
+        assertEquals("", emit(parseArgs("-d=" + outputDir)));
+        assertEquals(Set.of("Input.j"), listFiles(outputDir));
+
+        // Text artifacts are named after the input, class files after their class
+        assertEquals("", emit(parseArgs("-d=" + outputDir, "-a=ollir,class")));
+        assertEquals(Set.of("Input.j", "Input.ollir", "Simple.class"), listFiles(outputDir));
+
+        // Without an output directory, text artifacts are printed
+        var printed = emit(parseArgs("-a=ollir"));
+        assertTrue(printed, printed.contains("Simple"));
+        assertTrue(printed, printed.contains("invokestatic(io, \"println\""));
+    }
+
+    @Test
+    public void classDirIsResolvedWhenParsing() {
+        var cwd = new File("").getAbsoluteFile();
+
+        assertEquals(cwd, CompilerConfig.getClassDir(parseArgs()).orElseThrow());
+        assertEquals(new File(cwd, "relative"), CompilerConfig.getClassDir(parseArgs("-d=relative")).orElseThrow());
+    }
+
+    @Test
+    public void streamSinkPrintsTextAndDelegatesBinaries() throws IOException {
+        var buffer = new ByteArrayOutputStream();
+        var binaries = new ArrayList<String>();
+
+        var fallback = new ArtifactSink() {
+            @Override
+            public void writeText(Artifact artifact, String name, TextContent content) {
+                fail("Text artifacts should be printed");
+            }
+
+            @Override
+            public void writeBinary(Artifact artifact, String name, BinaryContent content) {
+                binaries.add(name + artifact.getExtension());
+            }
+        };
+
+        var sink = new StreamSink(new PrintStream(buffer, true, StandardCharsets.UTF_8), fallback);
+        sink.writeText(Artifact.OLLIR, "A", writer -> writer.write("first"));
+        sink.writeText(Artifact.JASMIN, "A", writer -> writer.write("second"));
+        sink.writeBinary(Artifact.CLASS, "A", stream -> stream.write(1));
+
+        assertEquals("first" + System.lineSeparator() + "second" + System.lineSeparator(),
+                buffer.toString(StandardCharsets.UTF_8));
+        assertEquals(List.of("A.class"), binaries);
+    }
+
+    @Test
+    public void directorySinkWritesOneFilePerArtifact() throws IOException {
+        var directory = temp.getRoot().toPath().resolve("nested").resolve("out");
+        var sink = new DirectorySink(directory);
+
+        sink.writeText(Artifact.AST, "A", writer -> writer.write("tree"));
+        sink.writeText(Artifact.OLLIR, "A", writer -> writer.write("ollir"));
+        sink.writeBinary(Artifact.CLASS, "B", stream -> stream.write(new byte[]{(byte) 0xCA, (byte) 0xFE}));
+
+        assertEquals(Set.of("A.ast", "A.ollir", "B.class"), listFiles(directory));
+        assertEquals("ollir", Files.readString(directory.resolve("A.ollir")));
+        assertArrayEquals(new byte[]{(byte) 0xCA, (byte) 0xFE}, Files.readAllBytes(directory.resolve("B.class")));
+    }
+}
@@ -0,0 +1,78 @@
+package pt.up.fe.comp.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.AstBuilder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class AstBuilderTest {
+
+    /**
+     * Attributes of the generic conversion that no stage reads.
+     */
+    private static final Set<String> UNUSED = Set.of("lineEnd", "colEnd", "paramName");
+
+    @Test
+    public void sameAstAsGenericConversionOnFixtures() throws IOException {
+        try (Stream<Path> paths = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            for (var path : paths.filter(path -> path.toString().endsWith(".jmm")).toList()) {
+                checkSameAst(SpecsIo.read(path.toFile()), path.toString());
+            }
+        }
+    }
+
+    @Test
+    public void sameAstAsGenericConversionOnGeneratedProgram() {
+        var code = new ProgramGenerator(0, ProgramGenerator.Options.defaults()).generate("Generated");
+
+        checkSameAst(code, "generated program");
+    }
+
+    private static void checkSameAst(String code, String source) {
+        var parser = new JavammParser(new CommonTokenStream(new JavammLexer(new ANTLRInputStream(code))));
+        parser.removeErrorListeners();
+        var tree = parser.program();
+
+        // Fixtures with syntax errors never reach the AST
+        if (parser.getNumberOfSyntaxErrors() > 0) {
+            return;
+        }
+
+        checkSameNode(AntlrToJmmNodeConverter.convert(tree, parser), AstBuilder.build(tree), source);
+    }
+
+    private static void checkSameNode(JmmNode expected, JmmNode actual, String source) {
+        var where = source + ", " + expected;
+
+        assertEquals(where, expected.getKind(), actual.getKind());
+        assertEquals(where, new HashSet<>(expected.getHierarchy()), new HashSet<>(actual.getHierarchy()));
+
+        var attributes = new HashSet<>(expected.getAttributes());
+        attributes.removeAll(UNUSED);
+        assertEquals(where, attributes, new HashSet<>(actual.getAttributes()));
+
+        for (var attribute : attributes) {
+            assertEquals(where + ", " + attribute, expected.getObject(attribute), actual.getObject(attribute));
+        }
+
+        assertEquals(where, expected.getNumChildren(), actual.getNumChildren());
+        for (int i = 0; i < expected.getNumChildren(); i++) {
+            checkSameNode(expected.getJmmChild(i), actual.getJmmChild(i), source);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package pt.up.fe.comp.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.IncrementalParser;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IncrementalParserTest {
+
+    private static final String CODE = """
+            class A {
+                int field;
+                public int foo(int a) {
+                    int b;
+                    b = a + 1;
+                    return b;
+                }
+                public int bar() { return 2; } public int baz() { return this.bar(); }
+                public static void main(String[] args) {
+                    int c;
+                    c = 3;
+                }
+            }
+            """;
+
+    private static void assertSameAsFullParse(IncrementalParser parser, String source) {
+        var full = new JmmParserImpl().parse(parser.getCode(), new HashMap<>());
+        var incremental = parser.getResult();
+
+        assertEquals(source, full.getReports().toString(), incremental.getReports().toString());
+        if (full.getRootNode() == null) {
+            assertNull(source, incremental.getRootNode());
+            return;
+        }
+
+        // The tree includes every attribute, positions too
+        assertEquals(source, full.getRootNode().toTree(), incremental.getRootNode().toTree());
+    }
+
+    private static IncrementalParser edit(String target, String replacement) {
+        var parser = new IncrementalParser(CODE, new HashMap<>());
+        parser.edit(CODE.indexOf(target), target.length(), replacement);
+        assertSameAsFullParse(parser, target + " -> " + replacement);
+
+        return parser;
+    }
+
+    @Test
+    public void editInsideMethodReparsesOnlyThatMethod() {
+        var parser = edit("a + 1", "a * 2 + foo");
+
+        assertEquals(1, parser.getFullParses());
+        assertEquals(1, parser.getIncrementalParses());
+    }
+
+    @Test
+    public void newLinesMoveTheFollowingMethods() {
+        var parser = edit("b = a + 1;", "b = a;\n        b = b +\n 1;");
+
+        assertEquals(1, parser.getIncrementalParses());
+    }
+
+    @Test
+    public void columnsMoveOnTheSameLine() {
+        var parser = edit("return 2;", "return 2 + 40;");
+
+        assertEquals(1, parser.getIncrementalParses());
+    }
+
+    @Test
+    public void mainMethodIsReparsed() {
+        var parser = edit("c = 3;", "c = 3;\n        c = c * c;");
+
+        assertEquals(1, parser.getIncrementalParses());
+    }
+
+    @Test
+    public void editOutsideMethodsParsesFully() {
+        var parser = edit("int field;", "int field;\n    boolean other;");
+
+        assertEquals(2, parser.getFullParses());
+        assertEquals(0, parser.getIncrementalParses());
+    }
+
+    @Test
+    public void syntaxErrorIsReportedAndFixed() {
+        var parser = edit("return b;", "return b");
+        assertEquals(2, parser.getFullParses());
+        assertNull(parser.getResult().getRootNode());
+
+        // Fixing the error parses fully again, after which edits are incremental
+        parser.edit(parser.getCode().indexOf("return b") + "return b".length(), 0, ";");
+        assertSameAsFullParse(parser, "fixed");
+        parser.edit(parser.getCode().indexOf("return b"), 0, "b = 1; ");
+        assertSameAsFullParse(parser, "after fix");
+
+        assertEquals(3, parser.getFullParses());
+        assertEquals(1, parser.getIncrementalParses());
+    }
+
+    @Test
+    public void commentsThatLeaveTheMethodParseFully() {
+        var lineComment = edit("return 2;", "return 2; //");
+        assertEquals(0, lineComment.getIncrementalParses());
+
+        var blockComment = edit("b = a + 1;", "/* b = a + 1;");
+        assertEquals(0, blockComment.getIncrementalParses());
+    }
+
+    @Test
+    public void randomEditsOfGeneratedProgram() {
+        var random = new Random(7);
+        var code = new ProgramGenerator(5, ProgramGenerator.Options.defaults().withMethods(10)).generate("Generated");
+        var parser = new IncrementalParser(code, new HashMap<>());
+
+        for (int i = 0; i < 100; i++) {
+            var current = parser.getCode();
+            int offset = random.nextInt(current.length());
+            char c = current.charAt(offset);
+
+            // Whitespace and digits can be changed without making the program invalid
+            if (Character.isWhitespace(c)) {
+                parser.edit(offset, 0, random.nextBoolean() ? "\n" : "  ");
+            } else if (Character.isDigit(c)) {
+                parser.edit(offset, 1, Integer.toString(random.nextInt(100)));
+            } else {
+                continue;
+            }
+
+            assertSameAsFullParse(parser, "edit " + i);
+        }
+
+        assertTrue(parser.getIncrementalParses() > 0);
+    }
+}
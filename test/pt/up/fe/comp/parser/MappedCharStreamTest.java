@@ -0,0 +1,75 @@
+package pt.up.fe.comp.parser;
+
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.cache.CompilationCache;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.MappedCharStream;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class MappedCharStreamTest {
+
+    private static final String FIXTURE = "pt/up/fe/comp/cpf/1_parser_and_tree/AddMultConstants.jmm";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String code) throws IOException {
+        var file = folder.newFile("Input.jmm").toPath();
+        Files.writeString(file, code, StandardCharsets.UTF_8);
+
+        return file;
+    }
+
+    private static void assertSameAst(JmmParserResult expected, JmmParserResult actual) {
+        assertNotNull(actual.getRootNode());
+        assertEquals(expected.getRootNode().toTree(), actual.getRootNode().toTree());
+    }
+
+    @Test
+    public void asciiFileParsesLikeString() throws IOException {
+        var code = SpecsIo.getResource(FIXTURE);
+        var stream = MappedCharStream.open(write(code));
+
+        assertEquals(code, stream.toString());
+        assertEquals(code.lines().count(), stream.getLineCount());
+        assertSameAst(new JmmParserImpl().parse(code, new HashMap<>()), new JmmParserImpl().parse(stream, new HashMap<>()));
+    }
+
+    @Test
+    public void utf8FileParsesLikeString() throws IOException {
+        var code = "// Ol\u00e1, a\u00e7\u00e3o\nclass A {\r\n    int a; /* \u2211 */\n}";
+        var stream = MappedCharStream.open(write(code));
+
+        assertEquals(code, stream.toString());
+        assertEquals("a\u00e7\u00e3o", stream.getText(Interval.of(8, 11)));
+        assertEquals(code.lines().count(), stream.getLineCount());
+        assertSameAst(new JmmParserImpl().parse(code, new HashMap<>()), new JmmParserImpl().parse(stream, new HashMap<>()));
+    }
+
+    @Test
+    public void sessionFromFileHasSameCacheKey() throws IOException {
+        var code = SpecsIo.getResource(FIXTURE);
+        var file = write(code);
+        var config = new HashMap<String, String>();
+
+        assertEquals(CompilationCache.key(code, config),
+                CompilationCache.key(MappedCharStream.open(file).getBytes(), config));
+
+        var session = CompilationSession.fromFile(file.toFile(), config);
+        assertTrue(session.compile());
+        assertEquals(code, session.getCode());
+    }
+}
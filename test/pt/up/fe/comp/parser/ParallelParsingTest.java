@@ -0,0 +1,78 @@
+package pt.up.fe.comp.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ParallelParsingTest {
+
+    private static final Map<String, String> PARALLEL = Map.of("parallelParse", "true");
+
+    private static void assertSameAsSequential(String code, String source) {
+        var sequential = new JmmParserImpl().parse(code, new HashMap<>());
+        var parallel = new JmmParserImpl().parse(code, PARALLEL);
+
+        assertEquals(source, sequential.getReports().toString(), parallel.getReports().toString());
+        if (sequential.getRootNode() == null) {
+            assertNull(source, parallel.getRootNode());
+            return;
+        }
+
+        // The tree includes every attribute, positions too
+        assertEquals(source, sequential.getRootNode().toTree(), parallel.getRootNode().toTree());
+    }
+
+    @Test
+    public void sameAstAsSequentialOnFixtures() throws IOException {
+        try (Stream<Path> paths = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            for (var path : paths.filter(path -> path.toString().endsWith(".jmm")).toList()) {
+                assertSameAsSequential(SpecsIo.read(path.toFile()), path.toString());
+            }
+        }
+    }
+
+    @Test
+    public void generatedProgramIsParsedInParallel() {
+        var code = new ProgramGenerator(3, ProgramGenerator.Options.defaults().withMethods(20)).generate("Generated");
+        long parallelParses = JmmParserImpl.getParallelParses();
+
+        assertSameAsSequential(code, "generated program");
+        assertEquals(parallelParses + 1, JmmParserImpl.getParallelParses());
+    }
+
+    @Test
+    public void fieldAfterMethodIsStillAnError() {
+        var code = """
+                class A {
+                    public int foo() { return 0; }
+                    int a;
+                    public int bar() { return 1; }
+                }
+                """;
+
+        assertSameAsSequential(code, "field after method");
+        assertNull(new JmmParserImpl().parse(code, PARALLEL).getRootNode());
+    }
+
+    @Test
+    public void syntaxErrorInMethodIsReported() {
+        var code = """
+                class A {
+                    public int foo() { return 0 }
+                    public int bar() { return 1; }
+                }
+                """;
+
+        assertSameAsSequential(code, "syntax error");
+    }
+}
@@ -0,0 +1,45 @@
+package pt.up.fe.comp.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ParserPoolTest {
+
+    private static final String FIXTURE = "pt/up/fe/comp/cpf/1_parser_and_tree/AddMultConstants.jmm";
+
+    @Test
+    public void reusedParserGivesSameTree() {
+        var parser = new JmmParserImpl();
+        var code = SpecsIo.getResource(FIXTURE);
+
+        var first = parser.parse(code, new HashMap<>());
+        // A failed parse in between must not leave state behind
+        parser.parse("class A { int a; public int foo( { return 0; } }", new HashMap<>());
+        var second = parser.parse(code, new HashMap<>());
+
+        assertNotNull(first.getRootNode());
+        assertEquals(first.getRootNode().toTree(), second.getRootNode().toTree());
+    }
+
+    @Test
+    public void dfaCacheIsClearedPastLimit() {
+        var parser = new JmmParserImpl();
+        var code = SpecsIo.getResource(FIXTURE);
+
+        parser.parse(code, new HashMap<>());
+        assertTrue(JmmParserImpl.getDfaStates() > 0);
+
+        long clears = JmmParserImpl.getDfaClears();
+        var result = parser.parse(code, Map.of("dfaLimit", "0"));
+
+        assertNotNull(result.getRootNode());
+        assertEquals(clears + 1, JmmParserImpl.getDfaClears());
+        assertEquals(0, JmmParserImpl.getDfaStates());
+    }
+}
@@ -0,0 +1,120 @@
+package pt.up.fe.comp.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.PrattParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class PrattParserTest {
+
+    private static void assertSameAsAntlr(String code, String rule, String source) {
+        var antlr = new JmmParserImpl().parse(code, rule, new HashMap<>());
+        var pratt = new PrattParserImpl().parse(code, rule, new HashMap<>());
+
+        assertEquals(source, antlr.getReports().toString(), pratt.getReports().toString());
+        if (antlr.getRootNode() == null) {
+            assertNull(source, pratt.getRootNode());
+            return;
+        }
+
+        checkSameNode(antlr.getRootNode(), pratt.getRootNode(), source);
+    }
+
+    private static void checkSameNode(JmmNode expected, JmmNode actual, String source) {
+        var where = source + ", " + expected;
+
+        assertEquals(where, expected.getKind(), actual.getKind());
+        assertEquals(where, expected.getHierarchy(), actual.getHierarchy());
+        assertEquals(where, new HashSet<>(expected.getAttributes()), new HashSet<>(actual.getAttributes()));
+
+        for (var attribute : expected.getAttributes()) {
+            assertEquals(where + ", " + attribute, expected.getObject(attribute), actual.getObject(attribute));
+        }
+
+        assertEquals(where, expected.getNumChildren(), actual.getNumChildren());
+        for (int i = 0; i < expected.getNumChildren(); i++) {
+            checkSameNode(expected.getJmmChild(i), actual.getJmmChild(i), source);
+        }
+    }
+
+    @Test
+    public void sameAstAsAntlrOnFixtures() throws IOException {
+        try (Stream<Path> paths = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            for (var path : paths.filter(path -> path.toString().endsWith(".jmm")).toList()) {
+                assertSameAsAntlr(SpecsIo.read(path.toFile()), "program", path.toString());
+            }
+        }
+    }
+
+    @Test
+    public void sameAstAsAntlrOnGeneratedPrograms() {
+        var options = ProgramGenerator.Options.defaults().withExpressionDepth(8).withAndChainLength(12);
+
+        for (long seed = 0; seed < 5; seed++) {
+            var code = new ProgramGenerator(seed, options).generate("Generated");
+            assertSameAsAntlr(code, "program", "seed " + seed);
+        }
+    }
+
+    @Test
+    public void precedenceAndAssociativity() {
+        var expressions = new String[]{
+                "a + b * c - d / e", "a - b - c", "a < b < c", "a && b && c < d + e",
+                "!a && b", "!a.b(c)[0]", "!!a < b", "(a + b) * c", "a[b][c].length",
+                "new int[a + 1][0]", "new A().foo(1, b, [1, 2], []).bar", "this.foo()",
+        };
+
+        for (var expression : expressions) {
+            assertSameAsAntlr(expression, "expr", expression);
+        }
+    }
+
+    @Test
+    public void statementsAndDeclarations() {
+        assertSameAsAntlr("a[b[0]] = c;", "stmt", "array assignment");
+        assertSameAsAntlr("a[0];", "stmt", "array access");
+        assertSameAsAntlr("if (a) { b = 1; } else while (c) c = false;", "stmt", "if and while");
+        assertSameAsAntlr("public int foo(int a, Foo[] b, int... c) { Foo x; int[] y; x.bar(); return 0; }",
+                "methodDecl", "method");
+        assertSameAsAntlr("public static void main(String[] args) { }", "methodDecl", "main method");
+        assertSameAsAntlr("import a.b.c;", "importDecl", "import");
+    }
+
+    @Test
+    public void tokensMatchTheAntlrLexer() {
+        var code = """
+                class A { // comment
+                    /* multi
+                       line */ int $a_1; int b;
+                    public int foo() {
+                        $a_1 = 0 + 10;\treturn 1/2/*x*/;
+                    }
+                }
+                """;
+
+        assertSameAsAntlr(code, "program", "tokens");
+    }
+
+    @Test
+    public void errorsAreReportedAsWithAntlr() {
+        long fallbacks = PrattParserImpl.getFallbacks();
+
+        assertSameAsAntlr("class A { int a = 1; }", "program", "initialized field");
+        assertSameAsAntlr("class A { public int foo() { return 007; } }", "program", "leading zeros");
+        assertSameAsAntlr("class A { public int foo() { return a # b; } }", "program", "unknown character");
+        assertSameAsAntlr("class A { public int foo() { return a /* b; } }", "program", "unterminated comment");
+
+        assertEquals(fallbacks + 4, PrattParserImpl.getFallbacks());
+    }
+}
@@ -0,0 +1,69 @@
+package pt.up.fe.comp.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class TwoStageParsingTest {
+
+    private static final String FIXTURE = "pt/up/fe/comp/cpf/1_parser_and_tree/AddMultConstants.jmm";
+
+    @Test
+    public void validProgramDoesNotFallBack() {
+        long parses = JmmParserImpl.getParses();
+        long fallbacks = JmmParserImpl.getLlFallbacks();
+
+        var result = new JmmParserImpl().parse(SpecsIo.getResource(FIXTURE), new HashMap<>());
+
+        assertNotNull(result.getRootNode());
+        assertTrue(result.getReports().isEmpty());
+        assertEquals(parses + 1, JmmParserImpl.getParses());
+        assertEquals(fallbacks, JmmParserImpl.getLlFallbacks());
+    }
+
+    @Test
+    public void syntaxErrorFallsBackAndIsReported() {
+        long fallbacks = JmmParserImpl.getLlFallbacks();
+
+        var result = new JmmParserImpl().parse("class A { int a; public int foo( { return 0; } }", new HashMap<>());
+
+        assertNull(result.getRootNode());
+        assertEquals(fallbacks + 1, JmmParserImpl.getLlFallbacks());
+        assertTrue(result.getReports().stream()
+                .anyMatch(report -> report.getType() == ReportType.ERROR && report.getStage() == Stage.SYNTATIC));
+    }
+
+    @Test
+    public void lexicalErrorIsReported() {
+        var result = new JmmParserImpl().parse("class A { int a; # }", new HashMap<>());
+
+        assertNull(result.getRootNode());
+        assertTrue(result.getReports().stream()
+                .anyMatch(report -> report.getType() == ReportType.ERROR && report.getStage() == Stage.LEXICAL));
+    }
+
+    @Test
+    public void fixturesNeverNeedFullContext() throws IOException {
+        try (Stream<Path> paths = Files.walk(Path.of("test/pt/up/fe/comp/cpf"))) {
+            for (var path : paths.filter(path -> path.toString().endsWith(".jmm")).toList()) {
+                long fallbacks = JmmParserImpl.getLlFallbacks();
+                var result = new JmmParserImpl().parse(SpecsIo.read(path.toFile()), new HashMap<>());
+
+                // Fixtures with syntax errors always go through the second stage
+                if (result.getRootNode() != null) {
+                    assertEquals("Fell back to LL on " + path, fallbacks, JmmParserImpl.getLlFallbacks());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package pt.up.fe.comp.pipeline;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.BatchCompiler;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.Launcher;
+import pt.up.fe.specs.util.SpecsSystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchCompilerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File sources;
+
+    private void write(String name, String code) throws IOException {
+        Files.writeString(sources.toPath().resolve(name), code);
+    }
+
+    @Before
+    public void writeSources() throws IOException {
+        sources = temp.newFolder("src");
+
+        write("First.jmm", """
+                class First {
+                    public int get() {
+                        return 1;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """);
+        write("Broken.jmm", """
+                class Broken {
+                    public int get() {
+                        return true + 1;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """);
+        write("Second.jmm", """
+                class Second {
+                    public int get() {
+                        return 2;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """);
+    }
+
+    @Test
+    public void brokenFileDoesNotStopTheOthers() {
+        var outputDir = new File(temp.getRoot(), "out");
+        var config = CompilerConfig.parseArgs(new String[]{"-b=" + sources, "-d=" + outputDir, "-t=2"});
+
+        var buffer = new ByteArrayOutputStream();
+        var inputs = BatchCompiler.resolveInputs(sources.getPath());
+        var results = new BatchCompiler(config).compile(inputs, new PrintStream(buffer, true, StandardCharsets.UTF_8));
+
+        // Results are in input order, sorted by path
+        assertEquals(List.of("Broken.jmm", "First.jmm", "Second.jmm"),
+                results.stream().map(result -> result.file().getName()).toList());
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+
+        assertTrue(new File(outputDir, "First.j").isFile());
+        assertTrue(new File(outputDir, "Second.j").isFile());
+        assertFalse(new File(outputDir, "Broken.j").exists());
+
+        var output = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(output, output.contains("[FAILED] " + inputs.get(0)));
+        assertTrue(output, output.contains("Compiled 3 file(s), 1 failed"));
+    }
+
+    @Test
+    public void unreadableFileDoesNotStopTheOthers() {
+        var outputDir = new File(temp.getRoot(), "out");
+        var config = CompilerConfig.parseArgs(new String[]{"-b=" + sources, "-d=" + outputDir, "-t=2"});
+
+        var missing = new File(sources, "Missing.jmm");
+        var inputs = List.of(new File(sources, "First.jmm"), missing, new File(sources, "Second.jmm"));
+        var buffer = new ByteArrayOutputStream();
+        var results = new BatchCompiler(config).compile(inputs, new PrintStream(buffer, true, StandardCharsets.UTF_8));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+
+        var failed = results.get(1);
+        assertFalse(failed.isSuccess());
+        assertEquals(0, failed.lines());
+        assertEquals(1, failed.reports().size());
+        assertEquals(Stage.OTHER, failed.reports().get(0).getStage());
+
+        var output = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(output, output.contains("[FAILED] " + missing));
+        assertTrue(output, output.contains("Compiled 3 file(s), 1 failed"));
+    }
+
+    @Test
+    public void exitStatusReportsFailures() {
+        var outputDir = new File(temp.getRoot(), "out");
+        var javaPath = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        var command = List.of(javaPath, "-cp", System.getProperty("java.class.path"), Launcher.class.getName(),
+                "-b=" + sources, "-d=" + outputDir);
+        var result = SpecsSystem.runProcess(command, temp.getRoot(), true, false);
+
+        assertNotEquals(0, result.getReturnValue());
+        assertTrue(result.getOutput(), result.getOutput().contains("1 of 3 files failed to compile"));
+
+        assertTrue(new File(outputDir, "First.j").isFile());
+        assertTrue(new File(outputDir, "Second.j").isFile());
+    }
+}
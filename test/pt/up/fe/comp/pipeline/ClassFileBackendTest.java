@@ -0,0 +1,142 @@
+package pt.up.fe.comp.pipeline;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.runner.ProgramRunner;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ClassFileBackendTest {
+
+    private static final ProgramRunner RUNNER = new ProgramRunner();
+
+    private static final List<String> RESOURCES = List.of(
+            "pt/up/fe/comp/cpf/4_jasmin/arithmetic/Arithmetic_and.jmm",
+            "pt/up/fe/comp/cpf/4_jasmin/arithmetic/Arithmetic_less.jmm",
+            "pt/up/fe/comp/cpf/4_jasmin/arithmetic/Arithmetic_not.jmm",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayAccess.jmm",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ComplexArrayAccess.jmm",
+            "pt/up/fe/comp/cpf/4_jasmin/calls/ConditionArgsFuncCall.jmm",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/IfWhileNested.jmm",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/SwitchStat.jmm",
+            "pt/up/fe/comp/cpf/4_jasmin/limits/LocalLimits.jmm",
+            "pt/up/fe/comp/cpf/5_optimizations/inst_selection/InstSelection_ldc_32768.jmm");
+
+    private static CompilationSession newSession(String resource, String backend) {
+        var config = CompilerConfig.getDefault();
+        config.put("backend", backend);
+
+        return new CompilationSession(SpecsIo.getResource(resource), config);
+    }
+
+    @Test
+    public void classesBehaveLikeAssembledJasmin() {
+        for (String resource : RESOURCES) {
+            var direct = newSession(resource, CompilerConfig.CLASS_FILE_BACKEND);
+            var jasmin = newSession(resource, CompilerConfig.JASMIN_BACKEND);
+
+            assertTrue(resource, direct.compile());
+            assertTrue(resource, jasmin.compile());
+
+            // Loading the class verifies its bytecode, including the computed stack and locals limits
+            var expected = RUNNER.run(jasmin, null);
+            var actual = RUNNER.run(direct, null);
+
+            assertEquals(resource, expected.output(), actual.output());
+            assertEquals(resource, String.valueOf(expected.exception()), String.valueOf(actual.exception()));
+        }
+    }
+
+    /**
+     * The access flags of the class, followed by the sorted flags of its fields and then of its methods.
+     */
+    private static List<Integer> getAccessFlags(byte[] classBytes) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(classBytes));
+        in.skipBytes(8); // magic and version
+
+        int poolSize = in.readUnsignedShort();
+        for (int i = 1; i < poolSize; i++) {
+            switch (in.readUnsignedByte()) {
+                case 1 -> in.skipBytes(in.readUnsignedShort());
+                case 5, 6 -> {
+                    // Longs and doubles take two entries
+                    in.skipBytes(8);
+                    i++;
+                }
+                case 7, 8, 16, 19, 20 -> in.skipBytes(2);
+                case 15 -> in.skipBytes(3);
+                default -> in.skipBytes(4);
+            }
+        }
+
+        var flags = new ArrayList<Integer>();
+        flags.add(in.readUnsignedShort());
+        in.skipBytes(4); // this and super classes
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+
+        // Fields and then methods
+        for (int members = 0; members < 2; members++) {
+            var memberFlags = new ArrayList<Integer>();
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                memberFlags.add(in.readUnsignedShort());
+                in.skipBytes(4); // name and descriptor
+
+                int attributes = in.readUnsignedShort();
+                for (int j = 0; j < attributes; j++) {
+                    in.skipBytes(2);
+                    in.skipBytes(in.readInt());
+                }
+            }
+
+            memberFlags.sort(null);
+            flags.addAll(memberFlags);
+        }
+
+        return flags;
+    }
+
+    @Test
+    public void accessFlagsMatchAssembledJasmin() throws IOException {
+        var resources = new ArrayList<>(RESOURCES);
+        resources.add("pt/up/fe/comp/cpf/2_semantic_analysis/symboltable/MethodsAndFields.jmm");
+
+        for (String resource : resources) {
+            var direct = newSession(resource, CompilerConfig.CLASS_FILE_BACKEND);
+            var jasmin = newSession(resource, CompilerConfig.JASMIN_BACKEND);
+
+            assertTrue(resource, direct.compile());
+            assertTrue(resource, jasmin.compile());
+
+            assertEquals(resource, getAccessFlags(jasmin.getClassBytes()), getAccessFlags(direct.getClassBytes()));
+        }
+    }
+
+    @Test
+    public void jasminIsOnlyGeneratedWhenRequested() {
+        var session = newSession("pt/up/fe/comp/cpf/4_jasmin/calls/ConditionArgsFuncCall.jmm",
+                CompilerConfig.CLASS_FILE_BACKEND);
+
+        assertTrue(session.compile());
+        assertEquals(0xCAFEBABE, java.nio.ByteBuffer.wrap(session.getClassBytes()).getInt());
+
+        // Asking for the Jasmin code generates it on demand, without changing the class
+        var classBytes = session.getClassBytes();
+        assertTrue(session.getJasminCode().contains(".class ConditionArgsFuncCall"));
+        assertSame(classBytes, session.getClassBytes());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void unknownBackendIsRejected() {
+        CompilerConfig.getBackend(Map.of("backend", "llvm"));
+    }
+}
@@ -0,0 +1,78 @@
+package pt.up.fe.comp.pipeline;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompilationSessionTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static CompilationSession newSession(String resource, Map<String, String> config) {
+        return new CompilationSession(SpecsIo.getResource(resource), config);
+    }
+
+    @Test
+    public void stagesAreComputedOnce() {
+        var session = newSession("pt/up/fe/comp/cpf/4_jasmin/calls/ConditionArgsFuncCall.jmm", CompilerConfig.getDefault());
+
+        assertTrue(session.compile());
+
+        assertSame(session.getParserResult(), session.getParserResult());
+        assertSame(session.getSemanticsResult(), session.getSemanticsResult());
+        assertSame(session.getOllirResult(), session.getOllirResult());
+        assertSame(session.getJasminResult(), session.getJasminResult());
+
+        // Analysis annotates the tree produced by the parser, not a copy
+        assertSame(session.getParserResult().getRootNode(), session.getSemanticsResult().getRootNode());
+        assertTrue(session.getSemanticsResult().getRootNode().getDescendants("Identifier").stream()
+                .allMatch(identifier -> identifier.hasAttribute("type")));
+
+        assertEquals("ConditionArgsFuncCall", session.getClassName());
+        assertEquals(session.getJasminResult().getJasminCode(), session.getJasminCode());
+        assertFalse(session.isCached());
+    }
+
+    @Test
+    public void errorsStopLaterStages() {
+        var session = newSession("pt/up/fe/comp/cpf/2_semantic_analysis/lookup/VarLookup_Field_Main_Fail.jmm",
+                CompilerConfig.getDefault());
+
+        assertFalse(session.compile());
+        assertTrue(session.getReports().stream().anyMatch(report -> report.getStage() == Stage.SEMANTIC));
+
+        try {
+            session.getOllirResult();
+            fail("Expected the OLLIR stage to refuse code with semantic errors");
+        } catch (CompilationSession.CompilationException e) {
+            assertEquals(Stage.SEMANTIC, e.getStage());
+        }
+    }
+
+    @Test
+    public void cachedCompilationSkipsStages() throws Exception {
+        var config = CompilerConfig.getDefault();
+        config.put("cacheDir", temp.newFolder("cache").getAbsolutePath());
+
+        var first = newSession("pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayAccess.jmm", config);
+        assertTrue(first.compile());
+        assertFalse(first.isCached());
+
+        var second = newSession("pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayAccess.jmm", config);
+        assertTrue(second.compile());
+        assertTrue(second.isCached());
+
+        assertEquals(first.getOllirCode(), second.getOllirCode());
+        assertEquals(first.getJasminCode(), second.getJasminCode());
+        assertArrayEquals(first.getClassBytes(), second.getClassBytes());
+    }
+}
@@ -0,0 +1,90 @@
+package pt.up.fe.comp.runner;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilationSession;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.runner.ProgramRunner;
+import pt.up.fe.comp2024.runner.ProgramRunner.Program;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProgramRunnerTest {
+
+    private static final String SUM = """
+            import io;
+            class Sum {
+                public static void main(String[] args) {
+                    int a;
+                    int b;
+                    a = io.read();
+                    b = io.read();
+                    io.println(a + b);
+                }
+            }
+            """;
+
+    private static final String LOOP = """
+            class Loop {
+                public static void main(String[] args) {
+                    while (true) {
+                    }
+                }
+            }
+            """;
+
+    private static Program compile(String code, String input) {
+        var session = new CompilationSession(code, CompilerConfig.getDefault());
+        assertTrue(session.getReports().toString(), session.compile());
+
+        return Program.of(session, input);
+    }
+
+    @Test
+    public void capturesOutput() {
+        var program = compile(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/arithmetic/Arithmetic_and.jmm"), null);
+        var result = new ProgramRunner().run(program);
+
+        assertTrue(result.error(), result.isSuccess());
+        assertEquals("1", result.output().strip());
+    }
+
+    @Test
+    public void readsInputOneLineAtATime() {
+        // io creates a new reader for every line it reads, so the first one must not take the whole input
+        var result = new ProgramRunner().run(compile(SUM, "3\n4\n"));
+
+        assertTrue(result.error(), result.isSuccess());
+        assertEquals("7", result.output().strip());
+    }
+
+    @Test
+    public void stopsProgramsThatTimeOut() {
+        var runner = new ProgramRunner(List.of(ProgramRunner.DEFAULT_RUNTIME), Duration.ofMillis(200));
+        var result = runner.run(compile(LOOP, null));
+
+        assertTrue(result.timedOut());
+        assertFalse(result.isSuccess());
+    }
+
+    @Test
+    public void runsProgramsConcurrently() {
+        var sum = compile(SUM, null);
+
+        var programs = new ArrayList<Program>();
+        for (int i = 0; i < 32; i++) {
+            programs.add(new Program(sum.className(), sum.classBytes(), i + "\n" + i + "\n"));
+        }
+
+        var results = new ProgramRunner().runAll(programs, 8);
+
+        for (int i = 0; i < programs.size(); i++) {
+            assertTrue(results.get(i).error(), results.get(i).isSuccess());
+            assertEquals(String.valueOf(2 * i), results.get(i).output().strip());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package pt.up.fe.comp.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol.Scope;
+
+import static org.junit.Assert.*;
+
+public class SymbolResolutionTest {
+
+    private static JmmSymbolTable build(String code) {
+        return JmmSymbolTableBuilder.build(TestUtils.parse(code).getRootNode());
+    }
+
+    private static final String CODE = """
+            class A {
+                int a;
+                boolean b;
+                int[] c;
+                public int m(int a, boolean x, int... y) {
+                    int b;
+                    int x;
+                    return a;
+                }
+                public static void main(String[] args) {
+                    int c;
+                }
+            }
+            """;
+
+    @Test
+    public void innerScopesHideOuterOnes() {
+        var table = build(CODE);
+
+        // Parameters hide local variables, and both hide fields
+        var a = table.resolve("a", "m");
+        assertEquals(Scope.PARAM, a.getScope());
+        assertEquals(0, a.getIndex());
+
+        var x = table.resolve("x", "m");
+        assertEquals(Scope.PARAM, x.getScope());
+        assertEquals("boolean", x.getType().getName());
+
+        var y = table.resolve("y", "m");
+        assertTrue(y.isParam());
+        assertEquals(2, y.getIndex());
+        assertSame(table.getParameters("m").get(2), y.getSymbol());
+
+        var b = table.resolve("b", "m");
+        assertTrue(b.isLocal());
+        assertEquals("int", b.getType().getName());
+
+        var c = table.resolve("c", "m");
+        assertTrue(c.isField());
+        assertTrue(c.getType().isArray());
+        assertEquals(2, c.getIndex());
+
+        assertTrue(table.resolve("c", "main").isLocal());
+        assertTrue(table.resolve("args", "main").isParam());
+    }
+
+    @Test
+    public void sameAsDeclarationLists() {
+        var table = build(CODE);
+
+        for (var method : table.getMethods()) {
+            for (var name : new String[]{"a", "b", "c", "x", "y", "args", "z"}) {
+                var resolved = table.resolve(name, method);
+                var declaration = table.getVarDeclaration(name, method);
+
+                assertSame(declaration, resolved == null ? null : resolved.getSymbol());
+                assertEquals(resolved != null && resolved.isField(), table.isField(name, method));
+            }
+        }
+    }
+
+    @Test
+    public void unknownNamesAndMethods() {
+        var table = build(CODE);
+
+        assertNull(table.resolve("z", "m"));
+        assertFalse(table.isField("z", "m"));
+
+        // Outside a method, only fields are found
+        assertTrue(table.resolve("a", null).isField());
+        assertTrue(table.resolve("b", "unknown").isField());
+        assertNull(table.resolve("x", null));
+    }
+}